@@ -0,0 +1,150 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (BenchmarkFixture.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+
+/**
+ * <p>Provides the tzdata input of the benchmarks. </p>
+ *
+ * @author  Meno Hochschild
+ */
+final class BenchmarkFixture {
+
+    //~ Statische Felder/Initialisierungen --------------------------------
+
+    private static final String FIXTURE = "tzdata-fixture.tar.gz";
+
+    //~ Konstruktoren -----------------------------------------------------
+
+    private BenchmarkFixture() {
+        // no instantiation
+    }
+
+    //~ Methoden ----------------------------------------------------------
+
+    /**
+     * <p>Resolves the archive to be used by a benchmark. </p>
+     *
+     * @param   archive     path of a tzdata archive or empty for the
+     *                      bundled fixture
+     * @return  archive file
+     * @throws  IOException if the bundled fixture cannot be copied
+     */
+    static File getArchive(String archive) throws IOException {
+
+        if (!archive.isEmpty()) {
+            return new File(archive);
+        }
+
+        File file = File.createTempFile("tzdata-fixture", ".tar.gz");
+        file.deleteOnExit();
+        InputStream in = BenchmarkFixture.class.getResourceAsStream("/" + FIXTURE);
+
+        if (in == null) {
+            throw new IOException("Fixture not found in classpath: " + FIXTURE);
+        }
+
+        OutputStream out = null;
+
+        try {
+            out = new FileOutputStream(file);
+            byte[] data = new byte[2048];
+            int count;
+            while ((count = in.read(data)) != -1) {
+                out.write(data, 0, count);
+            }
+        } finally {
+            try {
+                in.close();
+            } finally {
+                if (out != null) {
+                    out.close();
+                }
+            }
+        }
+
+        return file;
+
+    }
+
+    /**
+     * <p>Inflates given tar-gz-archive into a temporary plain tar file. </p>
+     *
+     * <p>The index sidecar written by the compiler on first read is removed
+     * on exit, too. </p>
+     *
+     * @param   archive     tar-gz-archive
+     * @return  tar file
+     * @throws  IOException in case of I/O-errors
+     */
+    static File inflate(File archive) throws IOException {
+
+        File file = File.createTempFile("tzdata-fixture", ".tar");
+        file.deleteOnExit();
+        new File(file.getPath() + ".index").deleteOnExit();
+        InputStream in = new GZIPInputStream(new FileInputStream(archive));
+
+        try {
+            Files.copy(in, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            in.close();
+        }
+
+        return file;
+
+    }
+
+    /**
+     * <p>Collects the contents of the source files accepted by the
+     * compiler. </p>
+     *
+     * @param   contents    file contents mapped by their names
+     * @return  list of source texts
+     */
+    static List<String> getSources(Map<String, String> contents) {
+
+        List<String> sources = new ArrayList<>();
+
+        for (Map.Entry<String, String> e : contents.entrySet()) {
+            if (TimezoneRepositoryCompiler.isAccepted(e.getKey())) {
+                sources.add(e.getValue());
+            }
+        }
+
+        return sources;
+
+    }
+
+}
@@ -0,0 +1,76 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (BenchmarkRunner.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+
+/**
+ * <p>Starts the compiler benchmarks with the GC-profiler always enabled
+ * so that the allocation rate of every phase is reported together with
+ * its throughput. </p>
+ *
+ * <p>All standard JMH command line options are accepted. Example for
+ * running the benchmarks against a complete tzdata archive: </p>
+ *
+ * <pre>
+ *  java -jar target/benchmarks.jar -p archive=/path/to/tzdata2021a.tar.gz
+ * </pre>
+ *
+ * @author  Meno Hochschild
+ */
+public class BenchmarkRunner {
+
+    //~ Konstruktoren -----------------------------------------------------
+
+    private BenchmarkRunner() {
+        // no instantiation
+    }
+
+    //~ Methoden ----------------------------------------------------------
+
+    /**
+     * <p>Runs the benchmarks. </p>
+     *
+     * @param   args    JMH command line options
+     * @throws  CommandLineOptionException if the options are not valid
+     * @throws  RunnerException if the benchmarks fail
+     */
+    public static void main(String[] args)
+        throws CommandLineOptionException, RunnerException {
+
+        Options options =
+            new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+
+    }
+
+}
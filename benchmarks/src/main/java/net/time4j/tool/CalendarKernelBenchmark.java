@@ -0,0 +1,151 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (CalendarKernelBenchmark.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import net.time4j.PlainDate;
+import net.time4j.base.GregorianMath;
+import net.time4j.engine.EpochDays;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * <p>Compares the resolution of the day patterns of all rule lines via
+ * {@code DaylightSavingRule.getDate(int)} and {@code PlainDate} with the
+ * pure epoch day arithmetic of {@link CalendarKernel}. </p>
+ *
+ * <p>Only the timing is measured here, the agreement of both ways is
+ * checked by {@code CalendarKernelTest}. </p>
+ *
+ * @author  Meno Hochschild
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CalendarKernelBenchmark {
+
+    //~ Statische Felder/Initialisierungen --------------------------------
+
+    private static final int MIN_YEAR = 1800;
+    private static final int MAX_YEAR = 2200;
+
+    //~ Instanzvariablen --------------------------------------------------
+
+    /**
+     * Path of a tzdata archive in tar.gz-format, empty for the bundled
+     * fixture.
+     */
+    @Param({""})
+    public String archive;
+
+    private List<TimezoneRepositoryCompiler.RuleLine> rules;
+
+    //~ Methoden ----------------------------------------------------------
+
+    @Setup
+    public void setUp() throws IOException {
+
+        List<String> sources =
+            BenchmarkFixture.getSources(
+                TimezoneRepositoryCompiler.loadArchive(
+                    BenchmarkFixture.getArchive(this.archive)));
+        SymbolTable symbols = new SymbolTable();
+        this.rules = new ArrayList<>();
+
+        for (String source : sources) {
+            LineTokenizer tokenizer = new LineTokenizer(new StringReader(source));
+            while (tokenizer.next()) {
+                if (
+                    tokenizer.isField(0, "Rule")
+                    && tokenizer.isField(4, "-")
+                ) {
+                    this.rules.add(
+                        TimezoneRepositoryCompiler.RuleLine.parse(
+                            tokenizer.getSymbol(1, symbols),
+                            tokenizer));
+                }
+            }
+        }
+
+        if (this.rules.isEmpty()) {
+            throw new IllegalStateException("No rule lines found.");
+        }
+
+    }
+
+    @Benchmark
+    public void plainDate(Blackhole blackhole) {
+
+        for (TimezoneRepositoryCompiler.RuleLine rule : this.rules) {
+            for (int year = MIN_YEAR; year <= MAX_YEAR; year += 8) {
+                blackhole.consume(toEpochDay(rule.getPattern().getDate(year)));
+            }
+        }
+
+    }
+
+    @Benchmark
+    public void kernel(Blackhole blackhole) {
+
+        for (TimezoneRepositoryCompiler.RuleLine rule : this.rules) {
+            for (int year = MIN_YEAR; year <= MAX_YEAR; year += 8) {
+                blackhole.consume(
+                    CalendarKernel.getEpochDay(
+                        year, rule.month, rule.dayKind, rule.dayOfMonth, rule.dayOfWeek));
+            }
+        }
+
+    }
+
+    // the former way of the compiler
+    private static long toEpochDay(PlainDate date) {
+
+        long mjd =
+            GregorianMath.toMJD(
+                date.getYear(),
+                date.getMonth(),
+                date.getDayOfMonth());
+        return EpochDays.UNIX.transform(mjd, EpochDays.MODIFIED_JULIAN_DATE);
+
+    }
+
+}
@@ -0,0 +1,294 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (CompilerBenchmark.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import net.time4j.tz.TransitionHistory;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+
+/**
+ * <p>Measures the single phases of the timezone repository compiler
+ * separately. </p>
+ *
+ * <p>Every benchmark method works on the results of the preceding phases
+ * which are prepared once per trial so that regressions can be attributed
+ * to the phase causing them. By default the bundled tzdata fixture is
+ * used, a complete archive can be given by the parameter
+ * &quot;archive&quot;. </p>
+ *
+ * @author  Meno Hochschild
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompilerBenchmark {
+
+    //~ Statische Felder/Initialisierungen --------------------------------
+
+    private static final String VERSION = "2000a";
+
+    //~ Instanzvariablen --------------------------------------------------
+
+    /**
+     * Path of a tzdata archive in tar.gz-format, empty for the bundled
+     * fixture.
+     */
+    @Param({""})
+    public String archive;
+
+    /**
+     * Count of threads used for parsing the source files and compiling
+     * the zones.
+     */
+    @Param({"1"})
+    public int threads;
+
+    private File archiveFile;
+    private File tarFile;
+    private TimezoneRepositoryCompiler compiler;
+    private TimezoneRepositoryCompiler cachingCompiler;
+    private Map<String, String> contents;
+    private List<String> sources;
+    private TimezoneRepositoryCompiler.Tables tables;
+    private List<TimezoneRepositoryCompiler.ZoneModel> models;
+    private List<TransitionHistory> histories;
+    private List<byte[]> serialized;
+    private List<byte[]> encoded;
+    private ByteBuffer indexed;
+    private byte[] pooled;
+
+    //~ Methoden ----------------------------------------------------------
+
+    @Setup
+    public void setUp() throws IOException {
+
+        this.archiveFile = BenchmarkFixture.getArchive(this.archive);
+        this.tarFile = BenchmarkFixture.inflate(this.archiveFile);
+        this.compiler =
+            new TimezoneRepositoryCompiler(
+                this.archiveFile.getAbsoluteFile().getParentFile(),
+                false
+            ).withParallelism(this.threads);
+        this.cachingCompiler = this.compiler.withModelCache(true);
+        this.cachingCompiler.parse(this.archiveFile); // fills the model cache
+        this.contents = TimezoneRepositoryCompiler.loadArchive(this.archiveFile);
+        this.sources = BenchmarkFixture.getSources(this.contents);
+        this.tables = this.compiler.parse(this.contents);
+        this.models = new ArrayList<>();
+        this.histories = new ArrayList<>();
+        this.serialized = new ArrayList<>();
+        this.encoded = new ArrayList<>();
+
+        for (String zoneID : this.tables.getZoneIDs()) {
+            TimezoneRepositoryCompiler.ZoneModel model =
+                this.compiler.compileModel(this.tables, zoneID);
+            TransitionHistory history = model.toHistory();
+            this.models.add(model);
+            this.histories.add(history);
+            this.serialized.add(TimezoneRepositoryCompiler.serialize(history));
+            this.encoded.add(CompactFormat.encode(model));
+        }
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(1024 * 1024);
+        DataOutputStream dos = new DataOutputStream(bos);
+        this.compiler.withFormat(RepositoryFormat.INDEXED).write(dos, VERSION, this.tables);
+        dos.close();
+        this.indexed = ByteBuffer.wrap(bos.toByteArray());
+
+        bos = new ByteArrayOutputStream(1024 * 1024);
+        dos = new DataOutputStream(bos);
+        this.compiler.withFormat(RepositoryFormat.POOLED).write(dos, VERSION, this.tables);
+        dos.close();
+        this.pooled = bos.toByteArray();
+
+    }
+
+    @Benchmark
+    public Map<String, String> load() throws IOException {
+
+        return TimezoneRepositoryCompiler.loadArchive(this.archiveFile);
+
+    }
+
+    @Benchmark
+    public void tokenize(Blackhole blackhole) throws IOException {
+
+        for (String source : this.sources) {
+            LineTokenizer tokenizer = new LineTokenizer(new StringReader(source));
+            while (tokenizer.next()) {
+                blackhole.consume(tokenizer.getFieldCount());
+            }
+        }
+
+    }
+
+    @Benchmark
+    public Object parse() throws IOException {
+
+        return this.compiler.parse(this.contents);
+
+    }
+
+    @Benchmark
+    public Object streamingParse() throws IOException {
+
+        return this.compiler.parse(this.archiveFile);
+
+    }
+
+    @Benchmark
+    public Object indexedTarParse() throws IOException {
+
+        return this.compiler.parse(this.tarFile);
+
+    }
+
+    @Benchmark
+    public Object cachedParse() throws IOException {
+
+        return this.cachingCompiler.parse(this.archiveFile);
+
+    }
+
+    @Benchmark
+    public void transitions(Blackhole blackhole) {
+
+        for (String zoneID : this.tables.getZoneIDs()) {
+            blackhole.consume(this.compiler.compileZone(this.tables, zoneID));
+        }
+
+    }
+
+    @Benchmark
+    public void serialize(Blackhole blackhole) throws IOException {
+
+        for (TransitionHistory history : this.histories) {
+            blackhole.consume(TimezoneRepositoryCompiler.serialize(history));
+        }
+
+    }
+
+    @Benchmark
+    public void encodeCompact(Blackhole blackhole) {
+
+        for (TimezoneRepositoryCompiler.ZoneModel model : this.models) {
+            blackhole.consume(CompactFormat.encode(model));
+        }
+
+    }
+
+    @Benchmark
+    public void deserialize(Blackhole blackhole)
+        throws IOException, ClassNotFoundException {
+
+        for (byte[] data : this.serialized) {
+            ObjectInputStream ois =
+                new ObjectInputStream(new ByteArrayInputStream(data));
+            blackhole.consume(ois.readObject());
+        }
+
+    }
+
+    @Benchmark
+    public void decodeCompact(Blackhole blackhole) throws IOException {
+
+        for (byte[] data : this.encoded) {
+            blackhole.consume(CompactFormat.decode(data));
+        }
+
+    }
+
+    @Benchmark
+    public void lookupIndexed(Blackhole blackhole) throws IOException {
+
+        for (String zoneID : this.tables.getZoneIDs()) {
+            blackhole.consume(IndexedFormat.lookup(this.indexed, zoneID));
+        }
+
+    }
+
+    @Benchmark
+    public Object decodePooled() throws IOException {
+
+        DataInputStream dis =
+            new DataInputStream(new ByteArrayInputStream(this.pooled));
+        dis.skipBytes(7); // magic bytes and format code
+        dis.readUTF(); // version
+        return PooledFormat.readHistories(dis);
+
+    }
+
+    @Benchmark
+    public CompiledRepository inMemory() throws IOException {
+
+        return this.compiler.compile(this.contents);
+
+    }
+
+    @Benchmark
+    public CompilerMetrics inMemoryWithMetrics() throws IOException {
+
+        return this.compiler.withMetrics(true).compile(this.contents).getMetrics();
+
+    }
+
+    @Benchmark
+    public int pipeline() throws IOException {
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(1024 * 1024);
+        DataOutputStream dos = new DataOutputStream(bos);
+        this.compiler.write(dos, VERSION, this.compiler.parse(this.archiveFile));
+        dos.close();
+        return bos.size();
+
+    }
+
+}
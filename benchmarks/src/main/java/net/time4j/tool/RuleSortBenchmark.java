@@ -0,0 +1,184 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (RuleSortBenchmark.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import net.time4j.PlainTimestamp;
+import net.time4j.tz.ZonalOffset;
+import net.time4j.tz.model.DaylightSavingRule;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+
+/**
+ * <p>Compares the former sorting of rule lines after every insertion
+ * with a posix time computed in every comparison against the sorting
+ * once per rule set with cached sort keys. </p>
+ *
+ * @author  Meno Hochschild
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleSortBenchmark {
+
+    //~ Statische Felder/Initialisierungen --------------------------------
+
+    private static final Comparator<TimezoneRepositoryCompiler.RuleLine> UNCACHED =
+        new Comparator<TimezoneRepositoryCompiler.RuleLine>() {
+            @Override
+            public int compare(
+                TimezoneRepositoryCompiler.RuleLine o1,
+                TimezoneRepositoryCompiler.RuleLine o2
+            ) {
+                return Long.compare(getPosixTime(o1), getPosixTime(o2));
+            }
+        };
+
+    //~ Instanzvariablen --------------------------------------------------
+
+    /**
+     * Path of a tzdata archive in tar.gz-format, empty for the bundled
+     * fixture.
+     */
+    @Param({""})
+    public String archive;
+
+    private String ruleLines; // only the rule lines of all sources
+
+    //~ Methoden ----------------------------------------------------------
+
+    @Setup
+    public void setUp() throws IOException {
+
+        List<String> sources =
+            BenchmarkFixture.getSources(
+                TimezoneRepositoryCompiler.loadArchive(
+                    BenchmarkFixture.getArchive(this.archive)));
+        StringBuilder sb = new StringBuilder();
+
+        for (String source : sources) {
+            LineTokenizer tokenizer = new LineTokenizer(new StringReader(source));
+            while (tokenizer.next()) {
+                if (
+                    tokenizer.isField(0, "Rule")
+                    && tokenizer.isField(4, "-")
+                ) {
+                    sb.append(tokenizer.getLine()).append('\n');
+                }
+            }
+        }
+
+        this.ruleLines = sb.toString();
+
+    }
+
+    @Benchmark
+    public Object sortPerInsertion() throws IOException {
+
+        Map<String, List<TimezoneRepositoryCompiler.RuleLine>> rules =
+            new HashMap<>();
+        SymbolTable symbols = new SymbolTable();
+        LineTokenizer tokenizer = new LineTokenizer(new StringReader(this.ruleLines));
+
+        while (tokenizer.next()) {
+            int nameID = tokenizer.getSymbol(1, symbols);
+            List<TimezoneRepositoryCompiler.RuleLine> ruleLines =
+                getRuleLines(rules, symbols.get(nameID));
+            ruleLines.add(TimezoneRepositoryCompiler.RuleLine.parse(nameID, tokenizer));
+            Collections.sort(ruleLines, UNCACHED);
+        }
+
+        return rules;
+
+    }
+
+    @Benchmark
+    public Object sortAfterParsing() throws IOException {
+
+        Map<String, List<TimezoneRepositoryCompiler.RuleLine>> rules =
+            new HashMap<>();
+        SymbolTable symbols = new SymbolTable();
+        LineTokenizer tokenizer = new LineTokenizer(new StringReader(this.ruleLines));
+
+        while (tokenizer.next()) {
+            int nameID = tokenizer.getSymbol(1, symbols);
+            getRuleLines(rules, symbols.get(nameID)).add(
+                TimezoneRepositoryCompiler.RuleLine.parse(nameID, tokenizer));
+        }
+
+        for (List<TimezoneRepositoryCompiler.RuleLine> ruleLines : rules.values()) {
+            Collections.sort(ruleLines, TimezoneRepositoryCompiler.RC);
+        }
+
+        return rules;
+
+    }
+
+    // former evaluation per comparison via the calendar date of the pattern
+    private static long getPosixTime(TimezoneRepositoryCompiler.RuleLine line) {
+
+        DaylightSavingRule pattern = line.getPattern();
+        PlainTimestamp tsp = pattern.getDate(2000).at(pattern.getTimeOfDay());
+        return tsp.at(ZonalOffset.ofTotalSeconds(0)).getPosixTime();
+
+    }
+
+    private static List<TimezoneRepositoryCompiler.RuleLine> getRuleLines(
+        Map<String, List<TimezoneRepositoryCompiler.RuleLine>> rules,
+        String name
+    ) {
+
+        List<TimezoneRepositoryCompiler.RuleLine> ruleLines = rules.get(name);
+
+        if (ruleLines == null) {
+            ruleLines = new ArrayList<>();
+            rules.put(name, ruleLines);
+        }
+
+        return ruleLines;
+
+    }
+
+}
@@ -0,0 +1,99 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (ArchiveDecompressor.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+
+/**
+ * <p>Service provider interface for reading compressed tar archives of
+ * timezone data. </p>
+ *
+ * <p>Implementations are found via {@code java.util.ServiceLoader} and
+ * chosen by the file name extension of an archive. The compiler itself
+ * supports the extensions &quot;.tar.gz&quot; and &quot;.tar&quot;. A
+ * provider for the same extension takes precedence so a faster codec can
+ * replace the built-in one. Archive names may start with
+ * &quot;tzdata&quot; or &quot;tzdb-&quot; followed by the version. </p>
+ *
+ * @author  Meno Hochschild
+ * @since   3.1
+ */
+/*[deutsch]
+ * <p>Dienstschnittstelle zum Lesen komprimierter tar-Archive mit
+ * Zeitzonendaten. </p>
+ *
+ * <p>Implementierungen werden &uuml;ber {@code java.util.ServiceLoader}
+ * gefunden und anhand der Dateiendung eines Archivs ausgew&auml;hlt. Der
+ * Compiler selbst unterst&uuml;tzt die Endungen &quot;.tar.gz&quot; und
+ * &quot;.tar&quot;. Ein Anbieter f&uuml;r die gleiche Endung hat Vorrang,
+ * so da&szlig; ein schnelleres Verfahren das eingebaute ersetzen kann.
+ * Archivnamen d&uuml;rfen mit &quot;tzdata&quot; oder &quot;tzdb-&quot;
+ * gefolgt von der Version beginnen. </p>
+ *
+ * @author  Meno Hochschild
+ * @since   3.1
+ */
+public interface ArchiveDecompressor {
+
+    //~ Methoden ----------------------------------------------------------
+
+    /**
+     * <p>Yields the file name extension of supported archives including
+     * the tar part, for example &quot;.tar.xz&quot;. </p>
+     *
+     * @return  extension starting with a dot
+     */
+    /*[deutsch]
+     * <p>Liefert die Dateiendung unterst&uuml;tzter Archive einschlie&szlig;lich
+     * des tar-Teils, zum Beispiel &quot;.tar.xz&quot;. </p>
+     *
+     * @return  mit einem Punkt beginnende Endung
+     */
+    String getExtension();
+
+    /**
+     * <p>Wraps given compressed stream so that it yields the uncompressed
+     * tar data. </p>
+     *
+     * <p>Closing the result must close the given stream, too. </p>
+     *
+     * @param   compressed  raw content of archive file
+     * @return  stream of uncompressed tar data
+     * @throws  IOException if the stream cannot be decompressed
+     */
+    /*[deutsch]
+     * <p>Umh&uuml;llt den angegebenen komprimierten Datenstrom so, da&szlig;
+     * er die unkomprimierten tar-Daten liefert. </p>
+     *
+     * <p>Das Schlie&szlig;en des Ergebnisses mu&szlig; auch den angegebenen
+     * Datenstrom schlie&szlig;en. </p>
+     *
+     * @param   compressed  Rohinhalt der Archivdatei
+     * @return  Datenstrom der unkomprimierten tar-Daten
+     * @throws  IOException wenn der Datenstrom nicht dekomprimiert werden
+     *          kann
+     */
+    InputStream decompress(InputStream compressed) throws IOException;
+
+}
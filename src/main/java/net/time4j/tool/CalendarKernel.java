@@ -0,0 +1,190 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (CalendarKernel.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import net.time4j.base.GregorianMath;
+import net.time4j.base.MathUtils;
+
+import static net.time4j.tool.TimezoneRepositoryCompiler.RuleLine.FIXED_DAY;
+import static net.time4j.tool.TimezoneRepositoryCompiler.RuleLine.LAST_WEEKDAY;
+import static net.time4j.tool.TimezoneRepositoryCompiler.RuleLine.WEEKDAY_AFTER_DATE;
+import static net.time4j.tool.TimezoneRepositoryCompiler.RuleLine.WEEKDAY_BEFORE_DATE;
+
+
+/**
+ * <p>Rein arithmetische Kalenderrechnung des Compilers auf Basis von
+ * Epochentagen seit 1970-01-01 im gregorianischen Kalender. </p>
+ *
+ * <p>Alle Methoden arbeiten nur mit primitiven Werten und erzeugen keine
+ * Objekte, im Gegensatz zum Weg &uuml;ber {@code PlainDate},
+ * {@code DaylightSavingRule.getDate(int)} und {@code EpochDays}. Die
+ * Tagesmuster der Regelzeilen (fester Tag, &quot;lastSun&quot;,
+ * &quot;Sun&gt;=8&quot; und &quot;Fri&lt;=1&quot;) werden direkt
+ * aufgel&ouml;st. Ein Wochentagsmuster darf wie in {@code zic} in den
+ * Nachbarmonat reichen. </p>
+ *
+ * @author  Meno Hochschild
+ */
+final class CalendarKernel {
+
+    //~ Statische Felder/Initialisierungen --------------------------------
+
+    private static final int DAYS_PER_400_YEARS = 146097;
+    private static final int DAYS_0000_03_01_TO_1970_01_01 = 719468;
+
+    //~ Konstruktoren -----------------------------------------------------
+
+    private CalendarKernel() {
+        // no instantiation
+    }
+
+    //~ Methoden ----------------------------------------------------------
+
+    /**
+     * <p>Bestimmt den Epochentag eines Datums. </p>
+     *
+     * @param   year        gregorianisches Jahr
+     * @param   month       Monat (1-12)
+     * @param   dayOfMonth  Tag im Monat (darf &uuml;ber das Monatsende
+     *                      hinausgehen)
+     * @return  Tage seit 1970-01-01
+     */
+    static long toEpochDay(
+        int year,
+        int month,
+        int dayOfMonth
+    ) {
+
+        // years start in March so that the leap day comes last
+        long y = (long) year - ((month <= 2) ? 1 : 0);
+        long era = MathUtils.floorDivide(y, 400);
+        long yearOfEra = y - era * 400;
+        int shiftedMonth = ((month > 2) ? month - 3 : month + 9);
+        long dayOfYear = (153 * shiftedMonth + 2) / 5 + dayOfMonth - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_400_YEARS + dayOfEra - DAYS_0000_03_01_TO_1970_01_01;
+
+    }
+
+    /**
+     * <p>Bestimmt das gregorianische Jahr eines Epochentags. </p>
+     *
+     * @param   epochDay    Tage seit 1970-01-01
+     * @return  Jahr
+     */
+    static int getYear(long epochDay) {
+
+        long z = epochDay + DAYS_0000_03_01_TO_1970_01_01;
+        long era = MathUtils.floorDivide(z, DAYS_PER_400_YEARS);
+        long dayOfEra = z - era * DAYS_PER_400_YEARS;
+        long yearOfEra =
+            (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long shiftedMonth = (5 * dayOfYear + 2) / 153;
+        return (int) (yearOfEra + era * 400 + ((shiftedMonth >= 10) ? 1 : 0));
+
+    }
+
+    /**
+     * <p>Bestimmt den Wochentag eines Epochentags. </p>
+     *
+     * @param   epochDay    Tage seit 1970-01-01
+     * @return  Wochentag nach ISO-8601 (1 = Montag, 7 = Sonntag)
+     */
+    static int getDayOfWeek(long epochDay) {
+
+        return MathUtils.floorModulo(epochDay + 3, 7) + 1; // 1970-01-01 was a Thursday
+
+    }
+
+    /**
+     * <p>L&ouml;st ein Tagesmuster einer Regelzeile im angegebenen Jahr
+     * auf. </p>
+     *
+     * @param   year        gregorianisches Jahr
+     * @param   month       Monat (1-12)
+     * @param   dayKind     Art des Tagesmusters wie in {@code RuleLine}
+     * @param   dayOfMonth  Bezugstag im Monat (null f&uuml;r den letzten
+     *                      Wochentag)
+     * @param   dayOfWeek   Wochentag nach ISO-8601 (null f&uuml;r einen
+     *                      festen Tag)
+     * @return  Tage seit 1970-01-01
+     * @throws  IllegalArgumentException bei unbekannter Art des Musters
+     */
+    static long getEpochDay(
+        int year,
+        int month,
+        int dayKind,
+        int dayOfMonth,
+        int dayOfWeek
+    ) {
+
+        switch (dayKind) {
+            case FIXED_DAY:
+                return toEpochDay(year, month, dayOfMonth);
+            case LAST_WEEKDAY: {
+                long last = toEpochDay(year, month, GregorianMath.getLengthOfMonth(year, month));
+                int delta = getDayOfWeek(last) - dayOfWeek;
+                return last - ((delta < 0) ? delta + 7 : delta);
+            }
+            case WEEKDAY_AFTER_DATE: {
+                long ref = toEpochDay(year, month, dayOfMonth);
+                int delta = dayOfWeek - getDayOfWeek(ref);
+                return ref + ((delta < 0) ? delta + 7 : delta);
+            }
+            case WEEKDAY_BEFORE_DATE: {
+                long ref = toEpochDay(year, month, dayOfMonth);
+                int delta = getDayOfWeek(ref) - dayOfWeek;
+                return ref - ((delta < 0) ? delta + 7 : delta);
+            }
+            default:
+                throw new IllegalArgumentException(
+                    "Unknown day pattern: " + dayKind);
+        }
+
+    }
+
+    /**
+     * <p>Bestimmt die lokale Mitternacht des durch ein Tagesmuster
+     * gegebenen Tags in Sekunden seit 1970-01-01T00:00. </p>
+     *
+     * @param   year        gregorianisches Jahr
+     * @param   month       Monat (1-12)
+     * @param   dayKind     Art des Tagesmusters wie in {@code RuleLine}
+     * @param   dayOfMonth  Bezugstag im Monat
+     * @param   dayOfWeek   Wochentag nach ISO-8601
+     * @return  lokale Sekunden
+     * @see     #getEpochDay(int, int, int, int, int)
+     */
+    static long getLocalMidnight(
+        int year,
+        int month,
+        int dayKind,
+        int dayOfMonth,
+        int dayOfWeek
+    ) {
+
+        return getEpochDay(year, month, dayKind, dayOfMonth, dayOfWeek) * 86400L;
+
+    }
+
+}
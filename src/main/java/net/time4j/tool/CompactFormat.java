@@ -0,0 +1,285 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (CompactFormat.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import net.time4j.tz.TransitionHistory;
+import net.time4j.tz.ZonalOffset;
+import net.time4j.tz.ZonalTransition;
+import net.time4j.tz.model.DaylightSavingRule;
+import net.time4j.tz.model.TransitionModel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * <p>Kodiert die Daten einer Zone im kompakten Repository-Format. </p>
+ *
+ * <p>Alle ganzen Zahlen werden als vorzeichenlose Varints (7 Bits je Byte,
+ * niedrigwertige Gruppe zuerst) geschrieben, vorzeichenbehaftete Werte
+ * vorher im ZigZag-Verfahren abgebildet. Aufbau: </p>
+ *
+ * <pre>
+ *  initial-offset          zigzag
+ *  transition-count
+ *  {
+ *      posix-time          zigzag (Differenz zum vorherigen &Uuml;bergang)
+ *      previous-offset     zigzag (Differenz zum vorherigen Gesamtversatz)
+ *      total-offset        zigzag (Differenz zu previous-offset)
+ *      dst-offset          zigzag
+ *  }
+ *  rule-count
+ *  {
+ *      byte                month &lt;&lt; 4 | day-kind &lt;&lt; 2 | indicator
+ *      byte                day-of-week &lt;&lt; 5 | day-of-month
+ *      time-of-day         zigzag
+ *      savings             zigzag
+ *  }
+ * </pre>
+ *
+ * @author  Meno Hochschild
+ */
+final class CompactFormat {
+
+    //~ Instanzvariablen --------------------------------------------------
+
+    private final byte[] data;
+    private int pos;
+
+    //~ Konstruktoren -----------------------------------------------------
+
+    /**
+     * <p>Erzeugt einen Leser f&uuml;r kodierte Bytes ab Position null. </p>
+     *
+     * @param   data    kodierte Bytes
+     */
+    CompactFormat(byte[] data) {
+        super();
+
+        this.data = data;
+        this.pos = 0;
+
+    }
+
+    //~ Methoden ----------------------------------------------------------
+
+    /**
+     * <p>Kodiert die angegebene Zone. </p>
+     *
+     * @param   model   kompilierte Zonendaten
+     * @return  kodierte Bytes
+     */
+    static byte[] encode(TimezoneRepositoryCompiler.ZoneModel model) {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+        writeSigned(out, model.initialOffset);
+        writeUnsigned(out, model.transitions.size());
+
+        long time = 0;
+        int total = model.initialOffset;
+
+        for (ZonalTransition t : model.transitions) {
+            writeSigned(out, t.getPosixTime() - time);
+            writeSigned(out, t.getPreviousOffset() - total);
+            writeSigned(out, t.getTotalOffset() - t.getPreviousOffset());
+            writeSigned(out, t.getDaylightSavingOffset());
+            time = t.getPosixTime();
+            total = t.getTotalOffset();
+        }
+
+        writeUnsigned(out, model.rules.size());
+
+        for (TimezoneRepositoryCompiler.RuleLine rule : model.rules) {
+            out.write((rule.month << 4) | (rule.dayKind << 2) | rule.indicator);
+            out.write((rule.dayOfWeek << 5) | rule.dayOfMonth);
+            writeSigned(out, rule.timeOfDay); // negative AT-times are allowed
+            writeSigned(out, rule.savings);
+        }
+
+        return out.toByteArray();
+
+    }
+
+    /**
+     * <p>Dekodiert eine mit {@link #encode} geschriebene Zone. </p>
+     *
+     * @param   data    kodierte Bytes
+     * @return  Zeitzonenhistorie
+     * @throws  IOException wenn die Daten unvollst&auml;ndig oder
+     *          inkonsistent sind
+     */
+    static TransitionHistory decode(byte[] data) throws IOException {
+
+        try {
+            return new CompactFormat(data).readHistory();
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException ex) {
+            throw new IOException("Invalid compact zone data.", ex);
+        }
+
+    }
+
+    private TransitionHistory readHistory() {
+
+        int initialOffset = (int) this.readSigned();
+        int n = (int) this.readUnsigned();
+        List<ZonalTransition> transitions = new ArrayList<>(n);
+        long time = 0;
+        int total = initialOffset;
+
+        for (int i = 0; i < n; i++) {
+            time += this.readSigned();
+            int previous = total + (int) this.readSigned();
+            total = previous + (int) this.readSigned();
+            int dst = (int) this.readSigned();
+            transitions.add(new ZonalTransition(time, previous, total, dst));
+        }
+
+        List<DaylightSavingRule> rules = this.readRules();
+
+        if (this.pos != this.data.length) {
+            throw new IllegalArgumentException("Unexpected trailing bytes.");
+        }
+
+        return TransitionModel.of(
+            ZonalOffset.ofTotalSeconds(initialOffset),
+            transitions,
+            rules);
+
+    }
+
+    /**
+     * <p>Liest die Anzahl der Regeln und die Regeln selbst. </p>
+     *
+     * @return  neue Liste
+     */
+    List<DaylightSavingRule> readRules() {
+
+        int m = (int) this.readUnsigned();
+        List<DaylightSavingRule> rules = new ArrayList<>(m);
+
+        for (int i = 0; i < m; i++) {
+            int b1 = this.data[this.pos++] & 0xFF;
+            int b2 = this.data[this.pos++] & 0xFF;
+            int timeOfDay = (int) this.readSigned();
+            int savings = (int) this.readSigned();
+            rules.add(
+                TimezoneRepositoryCompiler.RuleLine.getPattern(
+                    b1 >> 4,
+                    (b1 >> 2) & 3,
+                    b2 & 31,
+                    b2 >> 5,
+                    timeOfDay,
+                    b1 & 3,
+                    savings));
+        }
+
+        return rules;
+
+    }
+
+    /**
+     * <p>Liefert die aktuelle Leseposition. </p>
+     *
+     * @return  Index des n&auml;chsten zu lesenden Bytes
+     */
+    int getPosition() {
+
+        return this.pos;
+
+    }
+
+    /**
+     * <p>Liest einen vorzeichenlosen Varint. </p>
+     *
+     * @return  long
+     * @throws  IllegalArgumentException wenn der Wert zu lang ist
+     */
+    long readUnsigned() {
+
+        long value = 0;
+        int shift = 0;
+
+        while (true) {
+            int b = this.data[this.pos++];
+            value |= ((long) (b & 0x7F)) << shift;
+            if (b >= 0) {
+                return value;
+            }
+            shift += 7;
+            if (shift > 63) {
+                throw new IllegalArgumentException("Varint too long.");
+            }
+        }
+
+    }
+
+    /**
+     * <p>Liest einen ZigZag-kodierten Varint. </p>
+     *
+     * @return  long
+     * @throws  IllegalArgumentException wenn der Wert zu lang ist
+     */
+    long readSigned() {
+
+        long value = this.readUnsigned();
+        return (value >>> 1) ^ -(value & 1);
+
+    }
+
+    /**
+     * <p>Schreibt einen vorzeichenlosen Varint. </p>
+     *
+     * @param   out     Ziel
+     * @param   value   nicht-negativer Wert
+     */
+    static void writeUnsigned(
+        ByteArrayOutputStream out,
+        long value
+    ) {
+
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        out.write((int) value);
+
+    }
+
+    /**
+     * <p>Schreibt einen ZigZag-kodierten Varint. </p>
+     *
+     * @param   out     Ziel
+     * @param   value   beliebiger Wert
+     */
+    static void writeSigned(
+        ByteArrayOutputStream out,
+        long value
+    ) {
+
+        writeUnsigned(out, (value << 1) ^ (value >> 63));
+
+    }
+
+}
@@ -0,0 +1,215 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (CompiledRepository.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import net.time4j.PlainDate;
+import net.time4j.tz.TransitionHistory;
+
+import java.util.Collections;
+import java.util.Map;
+
+
+/**
+ * <p>Represents the in-memory result of compiling timezone data without
+ * writing any repository file. </p>
+ *
+ * <p>The content corresponds to a repository file: the transition
+ * histories of all zones, the aliases defined by link lines and the leap
+ * seconds. Instances are immutable. </p>
+ *
+ * @author  Meno Hochschild
+ * @since   3.1
+ * @see     TimezoneRepositoryCompiler#compile(Map)
+ */
+/*[deutsch]
+ * <p>Repr&auml;sentiert das Ergebnis einer Kompilierung von
+ * Zeitzonendaten im Speicher, ohne da&szlig; eine Repository-Datei
+ * geschrieben wird. </p>
+ *
+ * <p>Der Inhalt entspricht dem einer Repository-Datei: die
+ * &Uuml;bergangshistorien aller Zeitzonen, die durch Link-Zeilen
+ * definierten Aliasnamen und die Schaltsekunden. Instanzen sind
+ * unver&auml;nderlich. </p>
+ *
+ * @author  Meno Hochschild
+ * @since   3.1
+ * @see     TimezoneRepositoryCompiler#compile(Map)
+ */
+public final class CompiledRepository {
+
+    //~ Instanzvariablen --------------------------------------------------
+
+    private final Map<String, TransitionHistory> histories;
+    private final Map<String, String> aliases;
+    private final Map<PlainDate, Integer> leapSeconds;
+    private final PlainDate expires;
+    private final CompilerMetrics metrics;
+
+    //~ Konstruktoren -----------------------------------------------------
+
+    CompiledRepository(
+        Map<String, TransitionHistory> histories,
+        Map<String, String> aliases,
+        Map<PlainDate, Integer> leapSeconds,
+        PlainDate expires,
+        CompilerMetrics metrics
+    ) {
+        super();
+
+        this.histories = Collections.unmodifiableMap(histories);
+        this.aliases = Collections.unmodifiableMap(aliases);
+        this.leapSeconds = Collections.unmodifiableMap(leapSeconds);
+        this.expires = expires;
+        this.metrics = metrics;
+
+    }
+
+    //~ Methoden ----------------------------------------------------------
+
+    /**
+     * <p>Yields the transition histories of all compiled zones. </p>
+     *
+     * @return  unmodifiable map of histories in ascending order of zone
+     *          identifiers
+     */
+    /*[deutsch]
+     * <p>Liefert die &Uuml;bergangshistorien aller kompilierten
+     * Zeitzonen. </p>
+     *
+     * @return  unver&auml;nderliche Zuordnung der Historien in aufsteigender
+     *          Reihenfolge der Zonenkennungen
+     */
+    public Map<String, TransitionHistory> getHistories() {
+
+        return this.histories;
+
+    }
+
+    /**
+     * <p>Yields the transition history of given zone. </p>
+     *
+     * <p>Aliases are resolved. </p>
+     *
+     * @param   zoneID      timezone identifier or alias
+     * @return  transition history or {@code null} if the zone is unknown
+     */
+    /*[deutsch]
+     * <p>Liefert die &Uuml;bergangshistorie der angegebenen Zeitzone. </p>
+     *
+     * <p>Aliasnamen werden aufgel&ouml;st. </p>
+     *
+     * @param   zoneID      Zeitzonenkennung oder Aliasname
+     * @return  &Uuml;bergangshistorie oder {@code null}, wenn die Zeitzone
+     *          unbekannt ist
+     */
+    public TransitionHistory getHistory(String zoneID) {
+
+        String target = this.aliases.get(zoneID);
+        return this.histories.get((target == null) ? zoneID : target);
+
+    }
+
+    /**
+     * <p>Yields all aliases defined by link lines. </p>
+     *
+     * <p>Chains of links are already resolved so every value is the
+     * identifier of a compiled zone. </p>
+     *
+     * @return  unmodifiable map from alias to zone identifier
+     */
+    /*[deutsch]
+     * <p>Liefert alle durch Link-Zeilen definierten Aliasnamen. </p>
+     *
+     * <p>Ketten von Links sind bereits aufgel&ouml;st, so da&szlig; jeder
+     * Wert die Kennung einer kompilierten Zeitzone ist. </p>
+     *
+     * @return  unver&auml;nderliche Zuordnung von Aliasnamen zu
+     *          Zonenkennungen
+     */
+    public Map<String, String> getAliases() {
+
+        return this.aliases;
+
+    }
+
+    /**
+     * <p>Yields the leap seconds in the order of the source file. </p>
+     *
+     * <p>The keys are the UTC dates at whose end the leap second happens,
+     * the values are the shifts {@code 1} for an inserted and {@code -1}
+     * for a removed leap second. </p>
+     *
+     * @return  unmodifiable map from date to shift
+     */
+    /*[deutsch]
+     * <p>Liefert die Schaltsekunden in der Reihenfolge der Quelldatei. </p>
+     *
+     * <p>Die Schl&uuml;ssel sind die UTC-Datumsangaben, an deren Ende die
+     * Schaltsekunde stattfindet, die Werte die Verschiebungen {@code 1}
+     * f&uuml;r eine eingef&uuml;gte und {@code -1} f&uuml;r eine entfernte
+     * Schaltsekunde. </p>
+     *
+     * @return  unver&auml;nderliche Zuordnung von Datum zu Verschiebung
+     */
+    public Map<PlainDate, Integer> getLeapSeconds() {
+
+        return this.leapSeconds;
+
+    }
+
+    /**
+     * <p>Yields the expiration date of the leap second table. </p>
+     *
+     * @return  expiration date or the minimum date if the file
+     *          &quot;leap-seconds.list&quot; was not available
+     */
+    /*[deutsch]
+     * <p>Liefert das Verfallsdatum der Schaltsekundentabelle. </p>
+     *
+     * @return  Verfallsdatum oder das minimale Datum, wenn die Datei
+     *          &quot;leap-seconds.list&quot; nicht vorhanden war
+     */
+    public PlainDate getLeapSecondExpiration() {
+
+        return this.expires;
+
+    }
+
+    /**
+     * <p>Yields the measured cost of the compilation. </p>
+     *
+     * @return  metrics or {@code null} if not enabled
+     * @see     TimezoneRepositoryCompiler#withMetrics(boolean)
+     */
+    /*[deutsch]
+     * <p>Liefert den gemessenen Aufwand der Kompilierung. </p>
+     *
+     * @return  Messwerte oder {@code null}, wenn nicht eingeschaltet
+     * @see     TimezoneRepositoryCompiler#withMetrics(boolean)
+     */
+    public CompilerMetrics getMetrics() {
+
+        return this.metrics;
+
+    }
+
+}
@@ -0,0 +1,411 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (CompilerMetrics.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * <p>Cost of one compiler run, measured per phase and per zone. </p>
+ *
+ * <p>The phases are named &quot;load&quot;, &quot;tokenize&quot;,
+ * &quot;parse&quot;, &quot;ruleSort&quot;, &quot;transitions&quot;,
+ * &quot;serialization&quot;, &quot;links&quot; and &quot;leaps&quot;. A phase
+ * only appears if it was executed. The tokenize phase is the wall time
+ * spent in reading and splitting the lines of streamed sources during the
+ * single parse pass, the parse phase gets the rest of that pass. CPU time
+ * and allocated bytes of the whole pass are assigned to the parse phase,
+ * so they are {@code -1} for the tokenize phase. Wall time, CPU time and allocated bytes are summed over
+ * all threads which worked on a phase, so with parallel compilation they
+ * express the cost and not the elapsed time. CPU time and allocated bytes
+ * are {@code -1} if the JVM cannot measure them. </p>
+ *
+ * <p>Zones which apply the same rule set with the same raw offset and
+ * year window share the evaluated rule events. The hits and misses of
+ * this cache are counted separately. </p>
+ *
+ * @author  Meno Hochschild
+ * @since   3.1
+ * @see     TimezoneRepositoryCompiler#withMetrics(boolean)
+ */
+/*[deutsch]
+ * <p>Aufwand eines Compiler-Laufs, gemessen je Phase und je Zeitzone. </p>
+ *
+ * <p>Die Phasen hei&szlig;en &quot;load&quot;, &quot;tokenize&quot;,
+ * &quot;parse&quot;, &quot;ruleSort&quot;, &quot;transitions&quot;,
+ * &quot;serialization&quot;, &quot;links&quot; und &quot;leaps&quot;. Eine
+ * Phase erscheint nur, wenn sie ausgef&uuml;hrt wurde. Die Phase tokenize
+ * ist die Echtzeit, die im einzigen Parse-Durchlauf f&uuml;r das Lesen und
+ * Zerlegen der Zeilen gestreamter Quellen anf&auml;llt, die Phase parse
+ * erh&auml;lt den Rest dieses Durchlaufs. CPU-Zeit und allokierte Bytes des
+ * ganzen Durchlaufs werden der Phase parse zugeordnet und sind daher
+ * f&uuml;r die Phase tokenize {@code -1}. Echtzeit, CPU-Zeit und allokierte Bytes werden
+ * &uuml;ber alle an einer Phase beteiligten Threads summiert und geben bei
+ * paralleler Kompilierung daher den Aufwand und nicht die verstrichene Zeit
+ * an. CPU-Zeit und allokierte Bytes sind {@code -1}, wenn die JVM sie nicht
+ * messen kann. </p>
+ *
+ * <p>Zeitzonen, die denselben Regelsatz mit gleichem Standardversatz und
+ * Jahresfenster anwenden, teilen sich die ausgewerteten Regelereignisse.
+ * Treffer und Fehlschl&auml;ge dieses Caches werden getrennt
+ * gez&auml;hlt. </p>
+ *
+ * @author  Meno Hochschild
+ * @since   3.1
+ * @see     TimezoneRepositoryCompiler#withMetrics(boolean)
+ */
+public final class CompilerMetrics {
+
+    //~ Instanzvariablen --------------------------------------------------
+
+    private final Map<String, Measurement> phases;
+    private final Map<String, Measurement> zones;
+    private final long ruleCacheHits;
+    private final long ruleCacheMisses;
+
+    //~ Konstruktoren -----------------------------------------------------
+
+    CompilerMetrics(
+        Map<String, Measurement> phases,
+        Map<String, Measurement> zones,
+        long ruleCacheHits,
+        long ruleCacheMisses
+    ) {
+        super();
+
+        this.phases = Collections.unmodifiableMap(phases);
+        this.zones = Collections.unmodifiableMap(zones);
+        this.ruleCacheHits = ruleCacheHits;
+        this.ruleCacheMisses = ruleCacheMisses;
+
+    }
+
+    //~ Methoden ----------------------------------------------------------
+
+    /**
+     * <p>Yields the measurements of all executed phases in the order of
+     * the compiler pipeline. </p>
+     *
+     * @return  unmodifiable map from phase name to measurement
+     */
+    /*[deutsch]
+     * <p>Liefert die Messungen aller ausgef&uuml;hrten Phasen in der
+     * Reihenfolge der Compiler-Pipeline. </p>
+     *
+     * @return  unver&auml;nderliche Zuordnung von Phasennamen zu Messungen
+     */
+    public Map<String, Measurement> getPhases() {
+
+        return this.phases;
+
+    }
+
+    /**
+     * <p>Yields the transition generation of every compiled zone. </p>
+     *
+     * <p>The zones are ordered by descending wall time so the slowest
+     * zones come first. Zones copied forward in incremental mode do not
+     * appear. </p>
+     *
+     * @return  unmodifiable map from zone identifier to measurement
+     */
+    /*[deutsch]
+     * <p>Liefert die Erzeugung der &Uuml;berg&auml;nge jeder kompilierten
+     * Zeitzone. </p>
+     *
+     * <p>Die Zeitzonen sind nach absteigender Echtzeit sortiert, so
+     * da&szlig; die langsamsten zuerst kommen. Im inkrementellen Modus
+     * &uuml;bernommene Zeitzonen erscheinen nicht. </p>
+     *
+     * @return  unver&auml;nderliche Zuordnung von Zonenkennungen zu Messungen
+     */
+    public Map<String, Measurement> getZones() {
+
+        return this.zones;
+
+    }
+
+    /**
+     * <p>Yields how often the evaluated rule events of a zone line were
+     * found in the cache of shared rule events. </p>
+     *
+     * @return  count of cache hits
+     */
+    /*[deutsch]
+     * <p>Liefert, wie oft die ausgewerteten Regelereignisse einer
+     * Zonenzeile im Cache gemeinsamer Regelereignisse gefunden wurden. </p>
+     *
+     * @return  Anzahl der Treffer
+     */
+    public long getRuleCacheHits() {
+
+        return this.ruleCacheHits;
+
+    }
+
+    /**
+     * <p>Yields how often the rule events of a zone line had to be
+     * evaluated because they were not yet cached. </p>
+     *
+     * @return  count of cache misses
+     */
+    /*[deutsch]
+     * <p>Liefert, wie oft die Regelereignisse einer Zonenzeile mangels
+     * Eintrag im Cache ausgewertet werden mu&szlig;ten. </p>
+     *
+     * @return  Anzahl der Fehlschl&auml;ge
+     */
+    public long getRuleCacheMisses() {
+
+        return this.ruleCacheMisses;
+
+    }
+
+    /**
+     * <p>Yields the share of cache hits among all lookups of shared rule
+     * events. </p>
+     *
+     * @return  hit rate between {@code 0.0} and {@code 1.0}, {@code 0.0}
+     *          if there was no lookup
+     */
+    /*[deutsch]
+     * <p>Liefert den Anteil der Treffer an allen Anfragen nach gemeinsamen
+     * Regelereignissen. </p>
+     *
+     * @return  Trefferquote zwischen {@code 0.0} und {@code 1.0}, {@code 0.0}
+     *          ohne jede Anfrage
+     */
+    public double getRuleCacheHitRate() {
+
+        long total = this.ruleCacheHits + this.ruleCacheMisses;
+        return ((total == 0) ? 0.0 : ((double) this.ruleCacheHits) / total);
+
+    }
+
+    /**
+     * <p>Renders these metrics as JSON object with the members
+     * &quot;phases&quot;, &quot;ruleCache&quot; and &quot;zones&quot;. </p>
+     *
+     * @return  JSON text
+     */
+    /*[deutsch]
+     * <p>Stellt diese Messwerte als JSON-Objekt mit den Eintr&auml;gen
+     * &quot;phases&quot;, &quot;ruleCache&quot; und &quot;zones&quot;
+     * dar. </p>
+     *
+     * @return  JSON-Text
+     */
+    public String toJson() {
+
+        StringBuilder sb = new StringBuilder(256 + this.zones.size() * 96);
+        sb.append("{\n  \"phases\": {");
+        appendAll(sb, this.phases);
+        sb.append("},\n  \"ruleCache\": {\"hits\": ").append(this.ruleCacheHits);
+        sb.append(", \"misses\": ").append(this.ruleCacheMisses);
+        sb.append(", \"hitRate\": ").append(String.format(Locale.ROOT, "%.4f", this.getRuleCacheHitRate()));
+        sb.append("},\n  \"zones\": {");
+        appendAll(sb, this.zones);
+        sb.append("}\n}\n");
+        return sb.toString();
+
+    }
+
+    @Override
+    public String toString() {
+
+        return this.toJson();
+
+    }
+
+    private static void appendAll(
+        StringBuilder sb,
+        Map<String, Measurement> map
+    ) {
+
+        boolean first = true;
+
+        for (Map.Entry<String, Measurement> e : map.entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            sb.append("\n    \"");
+            appendEscaped(sb, e.getKey());
+            sb.append("\": ");
+            e.getValue().appendJson(sb);
+            first = false;
+        }
+
+        if (!first) {
+            sb.append("\n  ");
+        }
+
+    }
+
+    private static void appendEscaped(
+        StringBuilder sb,
+        String text
+    ) {
+
+        for (int i = 0, n = text.length(); i < n; i++) {
+            char c = text.charAt(i);
+
+            if ((c == '"') || (c == '\\')) {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+
+    }
+
+    //~ Innere Klassen ----------------------------------------------------
+
+    /**
+     * <p>Summed cost of one phase or zone. </p>
+     *
+     * @since   3.1
+     */
+    /*[deutsch]
+     * <p>Summierter Aufwand einer Phase oder Zeitzone. </p>
+     *
+     * @since   3.1
+     */
+    public static final class Measurement {
+
+        //~ Instanzvariablen ----------------------------------------------
+
+        private final int count;
+        private final long wallTime;
+        private final long cpuTime;
+        private final long allocatedBytes;
+
+        //~ Konstruktoren -------------------------------------------------
+
+        Measurement(
+            int count,
+            long wallTime,
+            long cpuTime,
+            long allocatedBytes
+        ) {
+            super();
+
+            this.count = count;
+            this.wallTime = wallTime;
+            this.cpuTime = cpuTime;
+            this.allocatedBytes = allocatedBytes;
+
+        }
+
+        //~ Methoden ------------------------------------------------------
+
+        /**
+         * <p>Yields how often the phase was executed, for example once
+         * per source file or per zone. </p>
+         *
+         * @return  count of measured executions
+         */
+        /*[deutsch]
+         * <p>Liefert, wie oft die Phase ausgef&uuml;hrt wurde, zum Beispiel
+         * einmal je Quelldatei oder je Zeitzone. </p>
+         *
+         * @return  Anzahl der gemessenen Ausf&uuml;hrungen
+         */
+        public int getCount() {
+
+            return this.count;
+
+        }
+
+        /**
+         * <p>Yields the wall time in nanoseconds. </p>
+         *
+         * @return  long
+         */
+        /*[deutsch]
+         * <p>Liefert die Echtzeit in Nanosekunden. </p>
+         *
+         * @return  long
+         */
+        public long getWallTime() {
+
+            return this.wallTime;
+
+        }
+
+        /**
+         * <p>Yields the CPU time in nanoseconds. </p>
+         *
+         * @return  long ({@code -1} if not supported)
+         */
+        /*[deutsch]
+         * <p>Liefert die CPU-Zeit in Nanosekunden. </p>
+         *
+         * @return  long ({@code -1}, wenn nicht unterst&uuml;tzt)
+         */
+        public long getCpuTime() {
+
+            return this.cpuTime;
+
+        }
+
+        /**
+         * <p>Yields the count of bytes allocated on the heap. </p>
+         *
+         * @return  long ({@code -1} if not supported)
+         */
+        /*[deutsch]
+         * <p>Liefert die Anzahl der auf dem Heap allokierten Bytes. </p>
+         *
+         * @return  long ({@code -1}, wenn nicht unterst&uuml;tzt)
+         */
+        public long getAllocatedBytes() {
+
+            return this.allocatedBytes;
+
+        }
+
+        @Override
+        public String toString() {
+
+            StringBuilder sb = new StringBuilder(96);
+            this.appendJson(sb);
+            return sb.toString();
+
+        }
+
+        private void appendJson(StringBuilder sb) {
+
+            sb.append("{\"count\": ").append(this.count);
+            sb.append(", \"wallNanos\": ").append(this.wallTime);
+            sb.append(", \"cpuNanos\": ").append(this.cpuTime);
+            sb.append(", \"allocatedBytes\": ").append(this.allocatedBytes);
+            sb.append('}');
+
+        }
+
+    }
+
+}
@@ -0,0 +1,150 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (Decompressors.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.zip.GZIPInputStream;
+
+
+/**
+ * <p>Verwaltet die verf&uuml;gbaren {@link ArchiveDecompressor}-Instanzen,
+ * zuerst die per {@code ServiceLoader} gefundenen Anbieter, danach die
+ * eingebauten f&uuml;r gzip und unkomprimierte tar-Dateien. </p>
+ *
+ * @author  Meno Hochschild
+ */
+final class Decompressors {
+
+    //~ Statische Felder/Initialisierungen --------------------------------
+
+    private static final List<ArchiveDecompressor> INSTANCES;
+
+    static {
+        List<ArchiveDecompressor> list = new ArrayList<>();
+        ClassLoader loader = Decompressors.class.getClassLoader();
+
+        for (ArchiveDecompressor d : ServiceLoader.load(ArchiveDecompressor.class, loader)) {
+            list.add(d);
+        }
+
+        list.add(new Gzip());
+        list.add(new Plain());
+        INSTANCES = Collections.unmodifiableList(list);
+    }
+
+    //~ Konstruktoren -----------------------------------------------------
+
+    private Decompressors() {
+        // no instantiation
+    }
+
+    //~ Methoden ----------------------------------------------------------
+
+    /**
+     * <p>Liefert alle Dekomprimierer in der Reihenfolge ihres Vorrangs. </p>
+     *
+     * @return  unver&auml;nderliche Liste
+     */
+    static List<ArchiveDecompressor> getAll() {
+
+        return INSTANCES;
+
+    }
+
+    /**
+     * <p>Sucht den Dekomprimierer zum angegebenen Dateinamen. </p>
+     *
+     * <p>Bei mehreren passenden Endungen gewinnt die l&auml;ngste, bei
+     * gleicher Endung der erste Anbieter. </p>
+     *
+     * @param   fileName    Name der Archivdatei
+     * @return  Dekomprimierer oder {@code null}, wenn keiner pa&szlig;t
+     */
+    static ArchiveDecompressor find(String fileName) {
+
+        ArchiveDecompressor found = null;
+
+        for (ArchiveDecompressor d : INSTANCES) {
+            String ext = d.getExtension();
+
+            if (
+                fileName.endsWith(ext)
+                && ((found == null) || (ext.length() > found.getExtension().length()))
+            ) {
+                found = d;
+            }
+        }
+
+        return found;
+
+    }
+
+    //~ Innere Klassen ----------------------------------------------------
+
+    private static class Gzip
+        implements ArchiveDecompressor {
+
+        //~ Methoden ------------------------------------------------------
+
+        @Override
+        public String getExtension() {
+
+            return ".tar.gz";
+
+        }
+
+        @Override
+        public InputStream decompress(InputStream compressed) throws IOException {
+
+            return new GZIPInputStream(compressed, 8192);
+
+        }
+
+    }
+
+    private static class Plain
+        implements ArchiveDecompressor {
+
+        //~ Methoden ------------------------------------------------------
+
+        @Override
+        public String getExtension() {
+
+            return ".tar";
+
+        }
+
+        @Override
+        public InputStream decompress(InputStream compressed) {
+
+            return compressed;
+
+        }
+
+    }
+
+}
@@ -0,0 +1,362 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (IndexedFormat.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * <p>Schreibt und liest den Zonenteil eines indizierten Repositorys, in dem
+ * eine einzelne Zone ohne sequentielles Lesen gefunden werden kann. </p>
+ *
+ * <p>Nach der Anzahl der Zonen folgt eine nach Zonenkennungen sortierte
+ * Tabelle von Eintr&auml;gen fester L&auml;nge, danach der Namensbereich
+ * mit allen Kennungen im Format von {@code writeUTF()} und zuletzt die
+ * Zonendaten selbst in der Reihenfolge der Tabelle. Alle Positionen sind
+ * relativ zum Beginn der Tabelle: </p>
+ *
+ * <pre>
+ *  int     zone-count
+ *  {
+ *      int name-offset
+ *      int data-offset
+ *      int data-length
+ *  }
+ *  name-area
+ *  data-area
+ * </pre>
+ *
+ * <p>Zonenkennungen der tz-Datenbank bestehen nur aus ASCII-Zeichen, so
+ * da&szlig; der bin&auml;re Vergleich der Namen der Sortierung nach
+ * {@code String.compareTo()} entspricht. </p>
+ *
+ * @author  Meno Hochschild
+ */
+final class IndexedFormat {
+
+    //~ Statische Felder/Initialisierungen --------------------------------
+
+    private static final int RECORD_SIZE = 12;
+
+    //~ Konstruktoren -----------------------------------------------------
+
+    private IndexedFormat() {
+        // no instantiation
+    }
+
+    //~ Methoden ----------------------------------------------------------
+
+    /**
+     * <p>Schreibt Index, Namensbereich und Zonendaten. </p>
+     *
+     * @param   dos     Zielstrom
+     * @param   zones   Zonendaten aufsteigend sortiert nach Kennung
+     * @throws  IOException bei Schreibfehlern
+     */
+    static void writeZones(
+        DataOutputStream dos,
+        Map<String, byte[]> zones
+    ) throws IOException {
+
+        int n = zones.size();
+        int[] nameOffsets = new int[n];
+        ByteArrayOutputStream names = new ByteArrayOutputStream(n * 24);
+        DataOutputStream nameArea = new DataOutputStream(names);
+        int i = 0;
+
+        for (String zoneID : zones.keySet()) {
+            nameOffsets[i++] = n * RECORD_SIZE + nameArea.size();
+            nameArea.writeUTF(zoneID);
+        }
+
+        int dataOffset = n * RECORD_SIZE + nameArea.size();
+        i = 0;
+        dos.writeInt(n);
+
+        for (byte[] data : zones.values()) {
+            dos.writeInt(nameOffsets[i++]);
+            dos.writeInt(dataOffset);
+            dos.writeInt(data.length);
+            dataOffset += data.length;
+        }
+
+        names.writeTo(dos);
+
+        for (byte[] data : zones.values()) {
+            dos.write(data);
+        }
+
+    }
+
+    /**
+     * <p>Liest alle Zonendaten sequentiell ein. </p>
+     *
+     * @param   dis     Quellstrom, positioniert vor der Anzahl der Zonen
+     * @return  Zonendaten in der Reihenfolge der Tabelle
+     * @throws  IOException bei Lesefehlern
+     */
+    static Map<String, byte[]> readZones(DataInputStream dis)
+        throws IOException {
+
+        int n = dis.readInt();
+        int[] lengths = new int[n];
+
+        for (int i = 0; i < n; i++) {
+            dis.readInt(); // name offset
+            dis.readInt(); // data offset
+            lengths[i] = dis.readInt();
+        }
+
+        // names and data are stored in table order without gaps
+        String[] names = new String[n];
+
+        for (int i = 0; i < n; i++) {
+            names[i] = dis.readUTF();
+        }
+
+        Map<String, byte[]> zones = new LinkedHashMap<>();
+
+        for (int i = 0; i < n; i++) {
+            byte[] data = new byte[lengths[i]];
+            dis.readFully(data);
+            zones.put(names[i], data);
+        }
+
+        return zones;
+
+    }
+
+    /**
+     * <p>Bildet die angegebene Repository-Datei im Speicher ab. </p>
+     *
+     * @param   repository  Repository-Datei
+     * @return  nur lesbarer Puffer &uuml;ber die ganze Datei
+     * @throws  IOException bei Zugriffsfehlern
+     */
+    static ByteBuffer map(File repository) throws IOException {
+
+        RandomAccessFile raf = new RandomAccessFile(repository, "r");
+
+        try {
+            FileChannel channel = raf.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            try {
+                raf.close(); // mapping stays valid
+            } catch (IOException ex) {
+                // ignored
+            }
+        }
+
+    }
+
+    /**
+     * <p>Sucht die Daten einer Zone per bin&auml;rer Suche im Index, ohne
+     * andere Zonendaten zu lesen. </p>
+     *
+     * @param   repository  ganze Repository-Datei (zum Beispiel abgebildet
+     *                      mit {@link #map(File)})
+     * @param   zoneID      Zonenkennung
+     * @return  Ausschnitt mit den Zonendaten oder {@code null}, wenn die
+     *          Zone fehlt
+     * @throws  IOException wenn kein indiziertes Repository vorliegt
+     */
+    static ByteBuffer lookup(
+        ByteBuffer repository,
+        String zoneID
+    ) throws IOException {
+
+        return lookup(repository, getTablePosition(repository), zoneID);
+
+    }
+
+    /**
+     * <p>Sucht die Daten einer Zone per bin&auml;rer Suche in einem
+     * bereits gefundenen Index. </p>
+     *
+     * @param   repository  ganze Repository-Datei
+     * @param   table       absolute Position der Anzahl der Zonen
+     * @param   zoneID      Zonenkennung
+     * @return  Ausschnitt mit den Zonendaten oder {@code null}, wenn die
+     *          Zone fehlt
+     * @see     #getTablePosition(ByteBuffer)
+     */
+    static ByteBuffer lookup(
+        ByteBuffer repository,
+        int table,
+        String zoneID
+    ) {
+
+        ByteBuffer buffer = repository.duplicate();
+        int n = buffer.getInt(table);
+        int start = table + 4;
+        byte[] key = zoneID.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = n - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int record = start + middle * RECORD_SIZE;
+            int cmp = compare(buffer, start + buffer.getInt(record), key);
+
+            if (cmp < 0) {
+                low = middle + 1;
+            } else if (cmp > 0) {
+                high = middle - 1;
+            } else {
+                // Buffer methods link on Java 8 even if compiled with a newer JDK
+                ((Buffer) buffer).position(start + buffer.getInt(record + 4));
+                ((Buffer) buffer).limit(buffer.position() + buffer.getInt(record + 8));
+                return buffer.slice();
+            }
+        }
+
+        return null;
+
+    }
+
+    /**
+     * <p>Pr&uuml;ft den Kopf eines indizierten Repositorys und bestimmt die
+     * Position des Index. </p>
+     *
+     * @param   repository  ganze Repository-Datei
+     * @return  absolute Position der Anzahl der Zonen
+     * @throws  IOException wenn kein indiziertes Repository vorliegt
+     */
+    static int getTablePosition(ByteBuffer repository) throws IOException {
+
+        ByteBuffer buffer = repository.duplicate();
+        ((Buffer) buffer).position(0);
+        byte[] magic = new byte[6];
+        buffer.get(magic);
+
+        if (
+            !new String(magic, StandardCharsets.US_ASCII).equals("tzrepo")
+            || (buffer.get() != RepositoryFormat.INDEXED.getCode())
+        ) {
+            throw new IOException("Not an indexed repository.");
+        }
+
+        int versionLength = buffer.getShort() & 0xFFFF;
+        return buffer.position() + versionLength;
+
+    }
+
+    /**
+     * <p>Liest alle Zonenkennungen des Index. </p>
+     *
+     * @param   repository  ganze Repository-Datei
+     * @param   table       absolute Position der Anzahl der Zonen
+     * @return  Kennungen in der Reihenfolge der Tabelle
+     * @throws  IOException wenn ein Name ung&uuml;ltig ist
+     */
+    static String[] readNames(
+        ByteBuffer repository,
+        int table
+    ) throws IOException {
+
+        int start = table + 4;
+        String[] names = new String[repository.getInt(table)];
+
+        for (int i = 0; i < names.length; i++) {
+            int record = start + i * RECORD_SIZE;
+            names[i] = readName(repository, start + repository.getInt(record));
+        }
+
+        return names;
+
+    }
+
+    /**
+     * <p>Bestimmt das Ende des Zonenteils, an dem die Aliasnamen
+     * beginnen. </p>
+     *
+     * @param   repository  ganze Repository-Datei
+     * @param   table       absolute Position der Anzahl der Zonen
+     * @return  absolute Position nach den letzten Zonendaten
+     */
+    static int getEnd(
+        ByteBuffer repository,
+        int table
+    ) {
+
+        int n = repository.getInt(table);
+        int start = table + 4;
+
+        if (n == 0) {
+            return start;
+        }
+
+        // data are stored in table order without gaps
+        int record = start + (n - 1) * RECORD_SIZE;
+        return start + repository.getInt(record + 4) + repository.getInt(record + 8);
+
+    }
+
+    private static String readName(
+        ByteBuffer buffer,
+        int pos
+    ) throws IOException {
+
+        byte[] utf = new byte[2 + (buffer.getShort(pos) & 0xFFFF)];
+        ByteBuffer source = buffer.duplicate();
+        ((Buffer) source).position(pos);
+        source.get(utf);
+        return new DataInputStream(new ByteArrayInputStream(utf)).readUTF();
+
+    }
+
+    // compares the stored name at given absolute position with the key
+    private static int compare(
+        ByteBuffer buffer,
+        int pos,
+        byte[] key
+    ) {
+
+        int len = buffer.getShort(pos) & 0xFFFF;
+        int n = Math.min(len, key.length);
+
+        for (int i = 0; i < n; i++) {
+            int b1 = buffer.get(pos + 2 + i) & 0xFF;
+            int b2 = key[i] & 0xFF;
+            if (b1 != b2) {
+                return b1 - b2;
+            }
+        }
+
+        return len - key.length;
+
+    }
+
+}
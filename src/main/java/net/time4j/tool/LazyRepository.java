@@ -0,0 +1,548 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (LazyRepository.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import net.time4j.PlainDate;
+import net.time4j.tz.TransitionHistory;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * <p>Reference reader for repository files which decodes a zone only on
+ * first access. </p>
+ *
+ * <p>Opening a repository maps the file into memory and reads the header,
+ * the identifiers of all zones, the aliases and the leap seconds. The data
+ * of a zone are decoded when its history is requested for the first time.
+ * At most a configurable count of decoded histories is kept, the least
+ * recently used history is evicted first. So a long-running application
+ * which only needs some zones does not keep the histories of all zones in
+ * memory. All formats of {@link RepositoryFormat} are supported. The
+ * indexed format does not scan the zone data when opening but finds the
+ * data of a zone by binary search in its index, only the names of the
+ * index are read at once. Instances are thread-safe. </p>
+ *
+ * @author  Meno Hochschild
+ * @since   3.1
+ * @see     TimezoneRepositoryCompiler#withFormat(RepositoryFormat)
+ */
+/*[deutsch]
+ * <p>Referenz-Leser f&uuml;r Repository-Dateien, der eine Zeitzone erst
+ * beim ersten Zugriff dekodiert. </p>
+ *
+ * <p>Beim &Ouml;ffnen wird die Datei in den Speicher abgebildet, und der
+ * Kopf, die Kennungen aller Zeitzonen, die Aliasnamen und die
+ * Schaltsekunden werden gelesen. Die Daten einer Zeitzone werden
+ * dekodiert, wenn ihre Historie zum ersten Mal angefordert wird. Es wird
+ * h&ouml;chstens eine einstellbare Anzahl dekodierter Historien gehalten,
+ * wobei die am l&auml;ngsten nicht benutzte zuerst verdr&auml;ngt wird. So
+ * h&auml;lt eine lange laufende Anwendung, die nur einige Zeitzonen
+ * braucht, nicht die Historien aller Zeitzonen im Speicher. Alle Formate
+ * von {@link RepositoryFormat} werden unterst&uuml;tzt. Das indizierte
+ * Format durchl&auml;uft beim &Ouml;ffnen nicht die Zonendaten, sondern
+ * findet die Daten einer Zeitzone per bin&auml;rer Suche im Index, nur die
+ * Namen des Index werden auf einmal gelesen. Instanzen sind
+ * thread-sicher. </p>
+ *
+ * @author  Meno Hochschild
+ * @since   3.1
+ * @see     TimezoneRepositoryCompiler#withFormat(RepositoryFormat)
+ */
+public final class LazyRepository {
+
+    //~ Statische Felder/Initialisierungen --------------------------------
+
+    /**
+     * Default count of decoded histories kept in memory.
+     */
+    /*[deutsch]
+     * Standardanzahl der im Speicher gehaltenen dekodierten Historien.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 64;
+
+    //~ Instanzvariablen --------------------------------------------------
+
+    private final ByteBuffer buffer;
+    private final RepositoryFormat format;
+    private final String version;
+    private final String[] zoneIDs; // ascending
+    private final int table; // only in indexed format
+    private final int[] positions; // not in indexed format
+    private final int[] lengths; // not in indexed format
+    private final byte[][] blocks; // only in pooled format
+    private final AtomicReferenceArray<Object> decoded; // shared by all zones
+    private final Map<String, String> aliases;
+    private final Map<PlainDate, Integer> leapSeconds;
+    private final PlainDate expires;
+    private final Map<String, TransitionHistory> cache;
+
+    //~ Konstruktoren -----------------------------------------------------
+
+    private LazyRepository(
+        ByteBuffer buffer,
+        final int cacheSize
+    ) throws IOException {
+        super();
+
+        this.buffer = buffer;
+        BufferInput input = new BufferInput(buffer.duplicate());
+        DataInputStream dis = new DataInputStream(input); // without own buffer
+        this.format = RepositoryReader.readHeader(dis);
+        this.version = dis.readUTF();
+        this.blocks = (
+            (this.format == RepositoryFormat.POOLED)
+            ? PooledFormat.readBlocks(dis)
+            : null);
+        this.decoded = (
+            (this.blocks == null)
+            ? null
+            : PooledFormat.createCache(this.blocks));
+
+        if (this.format == RepositoryFormat.INDEXED) { // zone data found via index
+            this.table = input.getPosition();
+            this.zoneIDs = IndexedFormat.readNames(buffer, this.table);
+            this.positions = null;
+            this.lengths = null;
+            input.setPosition(IndexedFormat.getEnd(buffer, this.table));
+        } else {
+            int count = dis.readInt();
+            this.table = -1;
+            this.zoneIDs = new String[count];
+            this.positions = new int[count];
+            this.lengths = new int[count];
+            for (int i = 0; i < count; i++) {
+                this.zoneIDs[i] = dis.readUTF();
+                this.lengths[i] = dis.readInt();
+                this.positions[i] = input.getPosition();
+                if (dis.skipBytes(this.lengths[i]) != this.lengths[i]) {
+                    throw new IOException("Truncated zone data: " + this.zoneIDs[i]);
+                }
+            }
+        }
+
+        int n = this.zoneIDs.length;
+
+        for (int i = 1; i < n; i++) {
+            if (this.zoneIDs[i - 1].compareTo(this.zoneIDs[i]) >= 0) {
+                throw new IOException("Zones not in ascending order: " + this.zoneIDs[i]);
+            }
+        }
+
+        this.aliases = RepositoryReader.readAliases(dis, this.zoneIDs);
+        this.leapSeconds = RepositoryReader.readLeapSeconds(dis);
+        this.expires = RepositoryReader.readExpiration(dis);
+        this.cache =
+            new LinkedHashMap<String, TransitionHistory>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, TransitionHistory> eldest) {
+                    return (this.size() > cacheSize);
+                }
+            };
+
+    }
+
+    //~ Methoden ----------------------------------------------------------
+
+    /**
+     * <p>Opens given repository file with the default cache size. </p>
+     *
+     * @param   repository  repository file written by the compiler
+     * @return  new reader
+     * @throws  IOException if the file cannot be read or is not a valid
+     *          repository
+     * @see     #DEFAULT_CACHE_SIZE
+     */
+    /*[deutsch]
+     * <p>&Ouml;ffnet die angegebene Repository-Datei mit der
+     * Standardgr&ouml;&szlig;e des Caches. </p>
+     *
+     * @param   repository  vom Compiler geschriebene Repository-Datei
+     * @return  neuer Leser
+     * @throws  IOException wenn die Datei nicht lesbar oder kein
+     *          g&uuml;ltiges Repository ist
+     * @see     #DEFAULT_CACHE_SIZE
+     */
+    public static LazyRepository open(File repository) throws IOException {
+
+        return open(repository, DEFAULT_CACHE_SIZE);
+
+    }
+
+    /**
+     * <p>Opens given repository file. </p>
+     *
+     * @param   repository  repository file written by the compiler
+     * @param   cacheSize   maximum count of decoded histories kept in
+     *                      memory
+     * @return  new reader
+     * @throws  IllegalArgumentException if the cache size is not positive
+     * @throws  IOException if the file cannot be read or is not a valid
+     *          repository
+     */
+    /*[deutsch]
+     * <p>&Ouml;ffnet die angegebene Repository-Datei. </p>
+     *
+     * @param   repository  vom Compiler geschriebene Repository-Datei
+     * @param   cacheSize   maximale Anzahl der im Speicher gehaltenen
+     *                      dekodierten Historien
+     * @return  neuer Leser
+     * @throws  IllegalArgumentException wenn die Cache-Gr&ouml;&szlig;e nicht
+     *          positiv ist
+     * @throws  IOException wenn die Datei nicht lesbar oder kein
+     *          g&uuml;ltiges Repository ist
+     */
+    public static LazyRepository open(
+        File repository,
+        int cacheSize
+    ) throws IOException {
+
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException(
+                "Cache size must be positive: " + cacheSize);
+        }
+
+        ByteBuffer buffer = IndexedFormat.map(repository);
+
+        try {
+            return new LazyRepository(buffer, cacheSize);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException ex) {
+            throw new IOException("Truncated repository: " + repository, ex);
+        } catch (IllegalArgumentException iae) {
+            throw new IOException("Invalid repository: " + repository, iae);
+        }
+
+    }
+
+    /**
+     * <p>Yields the format of the repository file. </p>
+     *
+     * @return  RepositoryFormat
+     */
+    /*[deutsch]
+     * <p>Liefert das Format der Repository-Datei. </p>
+     *
+     * @return  RepositoryFormat
+     */
+    public RepositoryFormat getFormat() {
+
+        return this.format;
+
+    }
+
+    /**
+     * <p>Yields the tzdata version of the repository. </p>
+     *
+     * @return  version like &quot;2021a&quot;
+     */
+    /*[deutsch]
+     * <p>Liefert die tzdata-Version des Repositorys. </p>
+     *
+     * @return  Version wie &quot;2021a&quot;
+     */
+    public String getVersion() {
+
+        return this.version;
+
+    }
+
+    /**
+     * <p>Yields the identifiers of all zones stored in the repository. </p>
+     *
+     * @return  unmodifiable set in ascending order without aliases
+     */
+    /*[deutsch]
+     * <p>Liefert die Kennungen aller im Repository gespeicherten
+     * Zeitzonen. </p>
+     *
+     * @return  unver&auml;nderliche Menge in aufsteigender Reihenfolge ohne
+     *          Aliasnamen
+     */
+    public Set<String> getZoneIDs() {
+
+        return Collections.unmodifiableSet(new TreeSet<>(Arrays.asList(this.zoneIDs)));
+
+    }
+
+    /**
+     * <p>Yields the transition history of given zone and decodes it if it
+     * is not cached. </p>
+     *
+     * <p>Aliases are resolved. </p>
+     *
+     * @param   zoneID      timezone identifier or alias
+     * @return  transition history or {@code null} if the zone is unknown
+     * @throws  IOException if the data of the zone are invalid
+     */
+    /*[deutsch]
+     * <p>Liefert die &Uuml;bergangshistorie der angegebenen Zeitzone und
+     * dekodiert sie, wenn sie nicht im Cache ist. </p>
+     *
+     * <p>Aliasnamen werden aufgel&ouml;st. </p>
+     *
+     * @param   zoneID      Zeitzonenkennung oder Aliasname
+     * @return  &Uuml;bergangshistorie oder {@code null}, wenn die Zeitzone
+     *          unbekannt ist
+     * @throws  IOException wenn die Daten der Zeitzone ung&uuml;ltig sind
+     */
+    public TransitionHistory getHistory(String zoneID) throws IOException {
+
+        String target = this.aliases.get(zoneID);
+        String key = ((target == null) ? zoneID : target);
+
+        synchronized (this.cache) {
+            TransitionHistory history = this.cache.get(key);
+            if (history != null) {
+                return history;
+            }
+        }
+
+        byte[] data = this.getData(key); // outside of lock
+
+        if (data == null) {
+            return null;
+        }
+
+        TransitionHistory history =
+            RepositoryReader.decode(this.format, data, this.blocks, this.decoded, key);
+
+        synchronized (this.cache) {
+            TransitionHistory previous = this.cache.get(key);
+            if (previous != null) {
+                return previous;
+            }
+            this.cache.put(key, history);
+        }
+
+        return history;
+
+    }
+
+    /**
+     * <p>Yields the count of currently cached histories. </p>
+     *
+     * @return  int
+     */
+    /*[deutsch]
+     * <p>Liefert die Anzahl der aktuell gehaltenen Historien. </p>
+     *
+     * @return  int
+     */
+    public int getCachedZoneCount() {
+
+        synchronized (this.cache) {
+            return this.cache.size();
+        }
+
+    }
+
+    /**
+     * <p>Yields all aliases of the repository. </p>
+     *
+     * @return  unmodifiable map from alias to zone identifier
+     */
+    /*[deutsch]
+     * <p>Liefert alle Aliasnamen des Repositorys. </p>
+     *
+     * @return  unver&auml;nderliche Zuordnung von Aliasnamen zu
+     *          Zonenkennungen
+     */
+    public Map<String, String> getAliases() {
+
+        return this.aliases;
+
+    }
+
+    /**
+     * <p>Yields the leap seconds in the order of the repository. </p>
+     *
+     * @return  unmodifiable map from date to shift
+     * @see     CompiledRepository#getLeapSeconds()
+     */
+    /*[deutsch]
+     * <p>Liefert die Schaltsekunden in der Reihenfolge des
+     * Repositorys. </p>
+     *
+     * @return  unver&auml;nderliche Zuordnung von Datum zu Verschiebung
+     * @see     CompiledRepository#getLeapSeconds()
+     */
+    public Map<PlainDate, Integer> getLeapSeconds() {
+
+        return this.leapSeconds;
+
+    }
+
+    /**
+     * <p>Yields the expiration date of the leap second table. </p>
+     *
+     * @return  expiration date or the minimum date if unknown
+     */
+    /*[deutsch]
+     * <p>Liefert das Verfallsdatum der Schaltsekundentabelle. </p>
+     *
+     * @return  Verfallsdatum oder das minimale Datum, wenn unbekannt
+     */
+    public PlainDate getLeapSecondExpiration() {
+
+        return this.expires;
+
+    }
+
+    // null if the zone is unknown
+    private byte[] getData(String zoneID) throws IOException {
+
+        ByteBuffer source;
+
+        try {
+            if (this.format == RepositoryFormat.INDEXED) {
+                source = IndexedFormat.lookup(this.buffer, this.table, zoneID);
+                if (source == null) {
+                    return null;
+                }
+            } else {
+                int index = Arrays.binarySearch(this.zoneIDs, zoneID);
+                if (index < 0) {
+                    return null;
+                }
+                source = this.buffer.duplicate();
+                ((Buffer) source).position(this.positions[index]);
+                ((Buffer) source).limit(this.positions[index] + this.lengths[index]);
+            }
+
+            byte[] data = new byte[source.remaining()];
+            source.get(data);
+            return data;
+        } catch (IndexOutOfBoundsException | IllegalArgumentException ex) {
+            throw new IOException("Invalid zone data: " + zoneID, ex);
+        }
+
+    }
+
+    //~ Innere Klassen ----------------------------------------------------
+
+    /**
+     * <p>Liest sequentiell aus einem Puffer und kennt seine Position. </p>
+     */
+    private static final class BufferInput
+        extends InputStream {
+
+        //~ Instanzvariablen ----------------------------------------------
+
+        private final ByteBuffer buffer;
+        private int mark = 0;
+
+        //~ Konstruktoren -------------------------------------------------
+
+        BufferInput(ByteBuffer buffer) {
+            super();
+
+            this.buffer = buffer;
+
+        }
+
+        //~ Methoden ------------------------------------------------------
+
+        @Override
+        public int read() {
+
+            return (this.buffer.hasRemaining() ? (this.buffer.get() & 0xFF) : -1);
+
+        }
+
+        @Override
+        public int read(
+            byte[] b,
+            int off,
+            int len
+        ) {
+
+            if (len == 0) {
+                return 0;
+            } else if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+
+            int n = Math.min(len, this.buffer.remaining());
+            this.buffer.get(b, off, n);
+            return n;
+
+        }
+
+        @Override
+        public long skip(long n) {
+
+            int k = (int) Math.max(0, Math.min(n, this.buffer.remaining()));
+            this.setPosition(this.buffer.position() + k);
+            return k;
+
+        }
+
+        @Override
+        public boolean markSupported() {
+
+            return true;
+
+        }
+
+        @Override
+        public void mark(int readlimit) {
+
+            this.mark = this.buffer.position();
+
+        }
+
+        @Override
+        public void reset() {
+
+            this.setPosition(this.mark);
+
+        }
+
+        int getPosition() {
+
+            return this.buffer.position();
+
+        }
+
+        void setPosition(int position) {
+
+            ((Buffer) this.buffer).position(position); // no covariant JDK-9-method
+
+        }
+
+    }
+
+}
@@ -0,0 +1,580 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (LineTokenizer.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+
+/**
+ * <p>Zerlegt die Zeilen einer Quelldatei der tz-Datenbank in ihre durch
+ * Leerraum getrennten Felder. </p>
+ *
+ * <p>Kommentare ab &quot;#&quot; werden entfernt, ebenso
+ * Anf&uuml;hrungszeichen samt ihrem Inhalt. Die Zeichen der aktuellen Zeile
+ * und ihrer Felder werden in wiederverwendbaren Puffern gehalten und nur
+ * auf Anforderung als {@code String} erzeugt, so da&szlig; Kommentar- und
+ * Leerzeilen keinen Speicher anfordern. Zahlen und Namensanf&auml;nge
+ * werden direkt in den Feldern gelesen. </p>
+ *
+ * @author  Meno Hochschild
+ */
+final class LineTokenizer {
+
+    //~ Statische Felder/Initialisierungen --------------------------------
+
+    private static final int INITIAL_CAPACITY = 8192;
+    private static final int INITIAL_FIELDS = 16;
+
+    //~ Instanzvariablen --------------------------------------------------
+
+    private final Reader reader;
+
+    private char[] buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+    private boolean skipLF;
+
+    private int lineStart;
+    private int lineEnd;
+
+    private char[] chars;
+    private int[] starts;
+    private int[] ends;
+    private int count;
+
+    //~ Konstruktoren -----------------------------------------------------
+
+    /**
+     * <p>Erzeugt einen neuen Zerleger f&uuml;r die angegebene Quelle. </p>
+     *
+     * @param   reader      Zeichenquelle (wird nicht geschlossen)
+     */
+    LineTokenizer(Reader reader) {
+        super();
+
+        this.reader = reader;
+        this.buffer = new char[INITIAL_CAPACITY];
+        this.chars = new char[INITIAL_CAPACITY];
+        this.starts = new int[INITIAL_FIELDS];
+        this.ends = new int[INITIAL_FIELDS];
+
+    }
+
+    //~ Methoden ----------------------------------------------------------
+
+    /**
+     * <p>Geht zur n&auml;chsten Zeile &uuml;ber und zerlegt sie. </p>
+     *
+     * <p>Wie bei {@code BufferedReader.readLine()} werden LF, CR und CRLF
+     * als Zeilenende erkannt. </p>
+     *
+     * @return  {@code false} am Ende der Quelle, sonst {@code true}
+     * @throws  IOException bei Lesefehlern
+     */
+    boolean next() throws IOException {
+
+        if (!this.readLine()) {
+            this.count = 0;
+            return false;
+        }
+
+        this.split();
+        return true;
+
+    }
+
+    /**
+     * <p>Liefert die Anzahl der Felder der aktuellen Zeile. </p>
+     *
+     * @return  int ({@code 0} bei Kommentar- oder Leerzeilen)
+     */
+    int getFieldCount() {
+
+        return this.count;
+
+    }
+
+    /**
+     * <p>Vergleicht das angegebene Feld mit einem Text, ohne das Feld als
+     * {@code String} zu erzeugen. </p>
+     *
+     * @param   index   Feldindex
+     * @param   value   Vergleichstext
+     * @return  {@code true} wenn das Feld existiert und gleich ist
+     */
+    boolean isField(
+        int index,
+        String value
+    ) {
+
+        if (index >= this.count) {
+            return false;
+        }
+
+        int start = this.starts[index];
+        int len = this.ends[index] - start;
+
+        if (len != value.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < len; i++) {
+            if (this.chars[start + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+
+    }
+
+    /**
+     * <p>Liefert das angegebene Feld. </p>
+     *
+     * @param   index   Feldindex
+     * @return  Feldinhalt
+     * @throws  IndexOutOfBoundsException wenn das Feld nicht existiert
+     */
+    String getField(int index) {
+
+        this.checkField(index);
+        int start = this.starts[index];
+        return new String(this.chars, start, this.ends[index] - start);
+
+    }
+
+    /**
+     * <p>Liefert die Nummer des angegebenen Feldes in der Symboltabelle.
+     * Ein {@code String} wird nur f&uuml;r neue Namen erzeugt. </p>
+     *
+     * @param   index   Feldindex
+     * @param   symbols Symboltabelle
+     * @return  Nummer des Feldinhalts
+     * @throws  IndexOutOfBoundsException wenn das Feld nicht existiert
+     */
+    int getSymbol(
+        int index,
+        SymbolTable symbols
+    ) {
+
+        this.checkField(index);
+        return symbols.intern(this.chars, this.starts[index], this.ends[index]);
+
+    }
+
+    /**
+     * <p>Liefert die L&auml;nge des angegebenen Feldes. </p>
+     *
+     * @param   index   Feldindex
+     * @return  Anzahl der Zeichen
+     * @throws  IndexOutOfBoundsException wenn das Feld nicht existiert
+     */
+    int getFieldLength(int index) {
+
+        this.checkField(index);
+        return this.ends[index] - this.starts[index];
+
+    }
+
+    /**
+     * <p>Liefert ein Zeichen des angegebenen Feldes. </p>
+     *
+     * @param   index   Feldindex
+     * @param   offset  Position innerhalb des Feldes
+     * @return  char
+     * @throws  IndexOutOfBoundsException wenn das Feld oder die Position
+     *          nicht existiert
+     */
+    char getChar(
+        int index,
+        int offset
+    ) {
+
+        if (
+            (offset < 0)
+            || (offset >= this.getFieldLength(index))
+        ) {
+            throw new IndexOutOfBoundsException(
+                "Offset " + offset + " not found in field " + index + " of: " + this);
+        }
+
+        return this.chars[this.starts[index] + offset];
+
+    }
+
+    /**
+     * <p>Sucht ein Zeichen im angegebenen Feld. </p>
+     *
+     * @param   index   Feldindex
+     * @param   c       gesuchtes Zeichen
+     * @param   from    Startposition innerhalb des Feldes
+     * @return  Position innerhalb des Feldes oder {@code -1}
+     * @throws  IndexOutOfBoundsException wenn das Feld nicht existiert
+     */
+    int indexOf(
+        int index,
+        char c,
+        int from
+    ) {
+
+        int len = this.getFieldLength(index);
+        int start = this.starts[index];
+
+        for (int i = Math.max(from, 0); i < len; i++) {
+            if (this.chars[start + i] == c) {
+                return i;
+            }
+        }
+
+        return -1;
+
+    }
+
+    /**
+     * <p>Interpretiert das angegebene Feld wie {@code Integer.parseInt()}
+     * als Dezimalzahl, ohne einen {@code String} zu erzeugen. </p>
+     *
+     * @param   index   Feldindex
+     * @return  int
+     * @throws  IndexOutOfBoundsException wenn das Feld nicht existiert
+     * @throws  NumberFormatException wenn keine Zahl vorliegt
+     */
+    int getInt(int index) {
+
+        return this.getInt(index, 0, this.getFieldLength(index));
+
+    }
+
+    /**
+     * <p>Interpretiert einen Abschnitt des angegebenen Feldes wie
+     * {@code Integer.parseInt()} als Dezimalzahl, ohne einen
+     * {@code String} zu erzeugen. </p>
+     *
+     * @param   index   Feldindex
+     * @param   from    Startposition innerhalb des Feldes (inklusive)
+     * @param   to      Endposition innerhalb des Feldes (exklusive)
+     * @return  int
+     * @throws  IndexOutOfBoundsException wenn das Feld nicht existiert
+     * @throws  NumberFormatException wenn keine Zahl vorliegt
+     */
+    int getInt(
+        int index,
+        int from,
+        int to
+    ) {
+
+        int len = this.getFieldLength(index);
+
+        if (
+            (from < 0)
+            || (to > len)
+            || (from > to)
+        ) {
+            throw new IndexOutOfBoundsException(
+                "Range " + from + "-" + to + " not found in field " + index + " of: " + this);
+        }
+
+        int start = this.starts[index];
+        int pos = start + from;
+        int end = start + to;
+        boolean negative = false;
+
+        if (pos < end) {
+            char c = this.chars[pos];
+            if ((c == '-') || (c == '+')) {
+                negative = (c == '-');
+                pos++;
+            }
+        }
+
+        if (pos == end) {
+            throw new NumberFormatException(
+                "Missing digits in field " + index + " of: " + this);
+        }
+
+        long value = 0;
+
+        for (int i = pos; i < end; i++) {
+            char c = this.chars[i];
+            if ((c < '0') || (c > '9')) {
+                throw new NumberFormatException(
+                    "Not a number in field " + index + " of: " + this);
+            }
+            value = value * 10 + (c - '0');
+            if (value > Integer.MAX_VALUE + 1L) {
+                throw new NumberFormatException(
+                    "Number out of range in field " + index + " of: " + this);
+            }
+        }
+
+        if (negative) {
+            value = -value;
+        } else if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException(
+                "Number out of range in field " + index + " of: " + this);
+        }
+
+        return (int) value;
+
+    }
+
+    /**
+     * <p>Ermittelt, ob das angegebene Feld ein Anfang des angegebenen
+     * Wortes ist, zum Beispiel &quot;max&quot; f&uuml;r
+     * &quot;maximum&quot;. </p>
+     *
+     * @param   index       Feldindex
+     * @param   word        vollst&auml;ndiges Wort
+     * @param   ignoreCase  Gro&szlig;- und Kleinschreibung ignorieren?
+     * @return  {@code true} wenn das Feld mit dem Wortanfang
+     *          &uuml;bereinstimmt
+     * @throws  IndexOutOfBoundsException wenn das Feld nicht existiert
+     */
+    boolean isPrefixOf(
+        int index,
+        String word,
+        boolean ignoreCase
+    ) {
+
+        return this.isPrefixOf(index, 0, this.getFieldLength(index), word, ignoreCase);
+
+    }
+
+    /**
+     * <p>Ermittelt, ob ein Abschnitt des angegebenen Feldes ein Anfang
+     * des angegebenen Wortes ist. </p>
+     *
+     * @param   index       Feldindex
+     * @param   from        Startposition innerhalb des Feldes (inklusive)
+     * @param   to          Endposition innerhalb des Feldes (exklusive)
+     * @param   word        vollst&auml;ndiges Wort
+     * @param   ignoreCase  Gro&szlig;- und Kleinschreibung ignorieren?
+     * @return  {@code true} wenn der Abschnitt mit dem Wortanfang
+     *          &uuml;bereinstimmt
+     * @throws  IndexOutOfBoundsException wenn das Feld nicht existiert
+     */
+    boolean isPrefixOf(
+        int index,
+        int from,
+        int to,
+        String word,
+        boolean ignoreCase
+    ) {
+
+        int len = this.getFieldLength(index);
+
+        if (
+            (from < 0)
+            || (to > len)
+            || (to - from > word.length())
+        ) {
+            return false;
+        }
+
+        int start = this.starts[index] + from;
+
+        for (int i = 0, n = to - from; i < n; i++) {
+            char c1 = this.chars[start + i];
+            char c2 = word.charAt(i);
+            if (
+                (c1 != c2)
+                && (!ignoreCase || (Character.toUpperCase(c1) != Character.toUpperCase(c2)))
+            ) {
+                return false;
+            }
+        }
+
+        return true;
+
+    }
+
+    /**
+     * <p>Liefert die aktuelle Zeile im Rohformat einschlie&szlig;lich
+     * aller Kommentare. </p>
+     *
+     * @return  Zeile ohne Zeilenende
+     */
+    String getLine() {
+
+        return new String(this.buffer, this.lineStart, this.lineEnd - this.lineStart);
+
+    }
+
+    /**
+     * <p>Liefert die Felder der aktuellen Zeile durch Tabulatoren
+     * getrennt. </p>
+     *
+     * @return  String
+     */
+    @Override
+    public String toString() {
+
+        StringBuilder sb = new StringBuilder();
+
+        for (int i = 0; i < this.count; i++) {
+            if (i > 0) {
+                sb.append('\t');
+            }
+            sb.append(this.chars, this.starts[i], this.ends[i] - this.starts[i]);
+        }
+
+        return sb.toString();
+
+    }
+
+    private void checkField(int index) {
+
+        if (
+            (index < 0)
+            || (index >= this.count)
+        ) {
+            throw new IndexOutOfBoundsException(
+                "Field " + index + " not found in: " + this);
+        }
+
+    }
+
+    private boolean readLine() throws IOException {
+
+        int scan = this.position;
+
+        while (true) {
+            for (int i = scan; i < this.limit; i++) {
+                char c = this.buffer[i];
+
+                if (this.skipLF && (i == this.position)) {
+                    this.skipLF = false;
+                    if (c == '\n') {
+                        this.position++;
+                        continue;
+                    }
+                }
+
+                if ((c == '\n') || (c == '\r')) {
+                    this.lineStart = this.position;
+                    this.lineEnd = i;
+                    this.position = i + 1;
+                    this.skipLF = (c == '\r');
+                    return true;
+                }
+            }
+
+            if (this.eof) {
+                if (this.position < this.limit) { // last line without LF
+                    this.lineStart = this.position;
+                    this.lineEnd = this.limit;
+                    this.position = this.limit;
+                    return true;
+                }
+                return false;
+            }
+
+            scan = this.fill();
+        }
+
+    }
+
+    // returns the position where scanning has to be continued
+    private int fill() throws IOException {
+
+        int remaining = this.limit - this.position;
+
+        if (this.position > 0) {
+            System.arraycopy(this.buffer, this.position, this.buffer, 0, remaining);
+        } else if (remaining == this.buffer.length) { // very long line
+            this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+        }
+
+        this.position = 0;
+        this.limit = remaining;
+        int n = this.reader.read(this.buffer, remaining, this.buffer.length - remaining);
+
+        if (n == -1) {
+            this.eof = true;
+        } else {
+            this.limit += n;
+        }
+
+        return remaining;
+
+    }
+
+    private void split() {
+
+        int start = this.lineStart;
+        int end = this.lineEnd;
+
+        // analogous to String.trim()
+        while ((start < end) && (this.buffer[start] <= ' ')) {
+            start++;
+        }
+        while ((end > start) && (this.buffer[end - 1] <= ' ')) {
+            end--;
+        }
+
+        if (this.chars.length < end - start) {
+            this.chars = new char[this.buffer.length];
+        }
+
+        boolean quotation = false;
+        boolean inField = false;
+        int n = 0;
+        this.count = 0;
+
+        // Kommentare ausschneiden
+        for (int i = start; i < end; i++) {
+            char c = this.buffer[i];
+
+            if (c == '\"') {
+                quotation = !quotation;
+            } else if (quotation) {
+                // ignore char
+            } else if (c == '#') {
+                break;
+            } else if (Character.isWhitespace(c)) {
+                if (inField) {
+                    this.ends[this.count++] = n;
+                    inField = false;
+                }
+            } else {
+                if (!inField) {
+                    if (this.count == this.starts.length) {
+                        this.starts = Arrays.copyOf(this.starts, this.count * 2);
+                        this.ends = Arrays.copyOf(this.ends, this.count * 2);
+                    }
+                    this.starts[this.count] = n;
+                    inField = true;
+                }
+                this.chars[n++] = c;
+            }
+        }
+
+        if (inField) {
+            this.ends[this.count++] = n;
+        }
+
+    }
+
+}
@@ -0,0 +1,336 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (MetricsRecorder.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * <p>Sammelt Echtzeit, CPU-Zeit und allokierte Bytes des aktuellen Threads
+ * f&uuml;r die Phasen eines Compiler-Laufs. </p>
+ *
+ * <p>Eine Messung beginnt mit {@link #start()} und endet mit
+ * {@link #stop(String, long[])} im selben Thread. Die abgeschaltete Instanz
+ * {@link #DISABLED} liefert keine Messpunkte und ignoriert sie daher. </p>
+ *
+ * @author  Meno Hochschild
+ */
+final class MetricsRecorder {
+
+    //~ Statische Felder/Initialisierungen --------------------------------
+
+    static final String LOAD = "load";
+    static final String TOKENIZE = "tokenize";
+    static final String PARSE = "parse";
+    static final String RULE_SORT = "ruleSort";
+    static final String TRANSITIONS = "transitions";
+    static final String SERIALIZATION = "serialization";
+    static final String LINKS = "links";
+    static final String LEAPS = "leaps";
+
+    private static final String[] PHASES =
+        {LOAD, TOKENIZE, PARSE, RULE_SORT, TRANSITIONS, SERIALIZATION, LINKS, LEAPS};
+
+    static final MetricsRecorder DISABLED = new MetricsRecorder(false);
+
+    //~ Instanzvariablen --------------------------------------------------
+
+    private final boolean enabled;
+    private final ThreadMXBean threadBean;
+    private final com.sun.management.ThreadMXBean allocationBean;
+    private final Map<String, long[]> phases = new HashMap<>(); // count, wall, cpu, bytes
+    private final Map<String, long[]> zones = new HashMap<>();
+    private final LongAdder ruleRunHits = new LongAdder();
+    private final LongAdder ruleRunMisses = new LongAdder();
+
+    //~ Konstruktoren -----------------------------------------------------
+
+    MetricsRecorder() {
+        this(true);
+
+    }
+
+    private MetricsRecorder(boolean enabled) {
+        super();
+
+        this.enabled = enabled;
+
+        if (enabled) {
+            ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            ThreadMXBean cpuBean = null;
+            com.sun.management.ThreadMXBean allocBean = null;
+
+            try {
+                if (bean.isCurrentThreadCpuTimeSupported()) {
+                    bean.setThreadCpuTimeEnabled(true);
+                    cpuBean = bean;
+                }
+                if (bean instanceof com.sun.management.ThreadMXBean) {
+                    com.sun.management.ThreadMXBean sunBean =
+                        (com.sun.management.ThreadMXBean) bean;
+                    if (sunBean.isThreadAllocatedMemorySupported()) {
+                        sunBean.setThreadAllocatedMemoryEnabled(true);
+                        allocBean = sunBean;
+                    }
+                }
+            } catch (UnsupportedOperationException | SecurityException ex) {
+                // measure as much as possible
+            }
+
+            this.threadBean = cpuBean;
+            this.allocationBean = allocBean;
+        } else {
+            this.threadBean = null;
+            this.allocationBean = null;
+        }
+
+    }
+
+    //~ Methoden ----------------------------------------------------------
+
+    /**
+     * <p>Ist diese Instanz aktiv? </p>
+     *
+     * @return  boolean
+     */
+    boolean isEnabled() {
+
+        return this.enabled;
+
+    }
+
+    /**
+     * <p>Beginnt eine Messung im aktuellen Thread. </p>
+     *
+     * @return  Messpunkt oder {@code null}, wenn abgeschaltet
+     */
+    long[] start() {
+
+        if (!this.enabled) {
+            return null;
+        }
+
+        return new long[] {System.nanoTime(), this.getCpuTime(), this.getAllocatedBytes()};
+
+    }
+
+    /**
+     * <p>Beendet eine Messung und addiert sie zur angegebenen Phase. </p>
+     *
+     * @param   phase   Name der Phase
+     * @param   probe   Messpunkt von {@link #start()}
+     */
+    void stop(
+        String phase,
+        long[] probe
+    ) {
+
+        if (probe != null) {
+            long[] delta = this.delta(probe);
+
+            synchronized (this) {
+                add(this.phases, phase, delta);
+            }
+        }
+
+    }
+
+    /**
+     * <p>Beendet eine Messung, von deren Echtzeit ein innerhalb
+     * gemessener Anteil einer eigenen Phase zugeordnet wird. </p>
+     *
+     * <p>Der Anteil wird nur als Echtzeit erfasst, CPU-Zeit und allokierte
+     * Bytes bleiben vollst&auml;ndig bei der &auml;u&szlig;eren Phase. </p>
+     *
+     * @param   phase       Name der &auml;u&szlig;eren Phase
+     * @param   probe       Messpunkt von {@link #start()}
+     * @param   part        Name der Phase des Anteils
+     * @param   partTime    Echtzeit des Anteils in Nanosekunden
+     */
+    void stop(
+        String phase,
+        long[] probe,
+        String part,
+        long partTime
+    ) {
+
+        if (probe != null) {
+            long[] delta = this.delta(probe);
+            delta[1] = Math.max(delta[1] - partTime, 0);
+
+            synchronized (this) {
+                add(this.phases, phase, delta);
+                add(this.phases, part, new long[] {1, partTime, -1, -1});
+            }
+        }
+
+    }
+
+    /**
+     * <p>Beendet die Messung der &Uuml;bergangserzeugung einer Zone und
+     * addiert sie zur Zone und zur Phase {@link #TRANSITIONS}. </p>
+     *
+     * @param   zoneID  Zonenkennung
+     * @param   probe   Messpunkt von {@link #start()}
+     */
+    void stopZone(
+        String zoneID,
+        long[] probe
+    ) {
+
+        if (probe != null) {
+            long[] delta = this.delta(probe);
+
+            synchronized (this) {
+                add(this.phases, TRANSITIONS, delta);
+                add(this.zones, zoneID, delta);
+            }
+        }
+
+    }
+
+    /**
+     * <p>Z&auml;hlt eine Anfrage an den Cache der Regelereignisse. </p>
+     *
+     * @param   hit     wurde die Folge im Cache gefunden?
+     */
+    void countRuleRun(boolean hit) {
+
+        if (this.enabled) {
+            if (hit) {
+                this.ruleRunHits.increment();
+            } else {
+                this.ruleRunMisses.increment();
+            }
+        }
+
+    }
+
+    /**
+     * <p>Erzeugt eine Momentaufnahme aller bisherigen Messungen. </p>
+     *
+     * @return  CompilerMetrics
+     */
+    synchronized CompilerMetrics getMetrics() {
+
+        Map<String, CompilerMetrics.Measurement> phaseMap = new LinkedHashMap<>();
+
+        for (String phase : PHASES) {
+            long[] values = this.phases.get(phase);
+            if (values != null) {
+                phaseMap.put(phase, toMeasurement(values));
+            }
+        }
+
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(this.zones.entrySet());
+
+        Collections.sort(
+            entries,
+            new Comparator<Map.Entry<String, long[]>>() {
+                @Override
+                public int compare(
+                    Map.Entry<String, long[]> o1,
+                    Map.Entry<String, long[]> o2
+                ) {
+                    int cmp = Long.compare(o2.getValue()[1], o1.getValue()[1]);
+                    return ((cmp == 0) ? o1.getKey().compareTo(o2.getKey()) : cmp);
+                }
+            }
+        );
+
+        Map<String, CompilerMetrics.Measurement> zoneMap = new LinkedHashMap<>();
+
+        for (Map.Entry<String, long[]> e : entries) {
+            zoneMap.put(e.getKey(), toMeasurement(e.getValue()));
+        }
+
+        return new CompilerMetrics(
+            phaseMap,
+            zoneMap,
+            this.ruleRunHits.sum(),
+            this.ruleRunMisses.sum());
+
+    }
+
+    private long getCpuTime() {
+
+        return ((this.threadBean == null) ? -1 : this.threadBean.getCurrentThreadCpuTime());
+
+    }
+
+    private long getAllocatedBytes() {
+
+        return (
+            (this.allocationBean == null)
+            ? -1
+            : this.allocationBean.getThreadAllocatedBytes(Thread.currentThread().getId()));
+
+    }
+
+    private long[] delta(long[] probe) {
+
+        long cpu = this.getCpuTime();
+        long bytes = this.getAllocatedBytes();
+
+        return new long[] {
+            1,
+            System.nanoTime() - probe[0],
+            ((cpu < 0) || (probe[1] < 0)) ? -1 : cpu - probe[1],
+            ((bytes < 0) || (probe[2] < 0)) ? -1 : bytes - probe[2]
+        };
+
+    }
+
+    private static void add(
+        Map<String, long[]> map,
+        String key,
+        long[] delta
+    ) {
+
+        long[] values = map.get(key);
+
+        if (values == null) {
+            map.put(key, delta.clone());
+        } else {
+            for (int i = 0; i < 4; i++) {
+                values[i] = (((values[i] < 0) || (delta[i] < 0)) ? -1 : values[i] + delta[i]);
+            }
+        }
+
+    }
+
+    private static CompilerMetrics.Measurement toMeasurement(long[] values) {
+
+        return new CompilerMetrics.Measurement((int) values[0], values[1], values[2], values[3]);
+
+    }
+
+}
@@ -0,0 +1,727 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (PooledFormat.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import net.time4j.tz.TransitionHistory;
+import net.time4j.tz.ZonalOffset;
+import net.time4j.tz.ZonalTransition;
+import net.time4j.tz.model.DaylightSavingRule;
+import net.time4j.tz.model.TransitionModel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * <p>Schreibt und liest den Zonenteil eines Repositorys, in dem gleiche
+ * Regellisten und gleiche Endfolgen von &Uuml;berg&auml;ngen nur einmal in
+ * einem gemeinsamen Vorrat von Bl&ouml;cken stehen. </p>
+ *
+ * <p>Ausgangspunkt sind die Zonendaten im {@link CompactFormat}. Jede Zone
+ * beh&auml;lt nur die &Uuml;berg&auml;nge, die sie mit keiner anderen Zone
+ * am Ende gemeinsam hat, und verweist f&uuml;r den Rest auf eine Kette von
+ * &Uuml;bergangsbl&ouml;cken. Die Ketten entsprechen einem Suffixbaum
+ * &uuml;ber alle Zonen, so da&szlig; auch unterschiedlich lange gemeinsame
+ * Endfolgen ihre Bl&ouml;cke teilen. Regellisten werden &uuml;ber ihren
+ * Inhalt zusammengefa&szlig;t. Ein Leser kann jeden Block einmal
+ * dekodieren und das Ergebnis f&uuml;r alle Zonen verwenden. Aufbau mit
+ * Varints wie im kompakten Format: </p>
+ *
+ * <pre>
+ *  int     block-count
+ *  {
+ *      int block-length
+ *      block
+ *  }
+ *  int     zone-count
+ *  {
+ *      UTF zone-id
+ *      int data-length
+ *      initial-offset          zigzag
+ *      transition-count        nur die eigenen &Uuml;berg&auml;nge
+ *      {
+ *          ...                 wie im kompakten Format
+ *      }
+ *      transition-block        Index plus eins, null ohne gemeinsame Endfolge
+ *      rule-block              Index
+ *  }
+ * </pre>
+ *
+ * <p>Ein &Uuml;bergangsblock beginnt mit der Anzahl seiner
+ * &Uuml;berg&auml;nge, die wie im kompakten Format relativ zu einem
+ * gedachten Vorg&auml;nger zur Zeit null mit dem Versatz null kodiert sind,
+ * und endet mit dem Index plus eins des n&auml;chsten Blocks der Kette
+ * (null am Ende). Ein Regelblock entspricht genau dem Regelteil des
+ * kompakten Formats. </p>
+ *
+ * @author  Meno Hochschild
+ */
+final class PooledFormat {
+
+    //~ Konstruktoren -----------------------------------------------------
+
+    private PooledFormat() {
+        // no instantiation
+    }
+
+    //~ Methoden ----------------------------------------------------------
+
+    /**
+     * <p>Bildet den Vorrat gemeinsamer Bl&ouml;cke und schreibt ihn samt
+     * aller Zonen. </p>
+     *
+     * @param   dos     Zielstrom
+     * @param   zones   Zonendaten im kompakten Format aufsteigend sortiert
+     *                  nach Kennung
+     * @throws  IOException bei Schreibfehlern oder ung&uuml;ltigen
+     *          Zonendaten
+     */
+    static void writeZones(
+        DataOutputStream dos,
+        Map<String, byte[]> zones
+    ) throws IOException {
+
+        Map<String, Zone> parsed = new LinkedHashMap<>();
+        Map<Node, Node> nodes = new HashMap<>();
+
+        for (Map.Entry<String, byte[]> e : zones.entrySet()) {
+            Zone zone = Zone.parse(e.getValue());
+            parsed.put(e.getKey(), zone);
+            Node node = null;
+
+            // the same suffix always yields the same node
+            for (int i = zone.size - 1; i >= 0; i--) {
+                Node candidate = new Node(node, zone, i);
+                Node existing = nodes.get(candidate);
+                if (existing == null) {
+                    nodes.put(candidate, candidate);
+                    existing = candidate;
+                }
+                existing.count++;
+                node = existing;
+            }
+        }
+
+        // blocks in order of first use
+        List<Object> blocks = new ArrayList<>();
+        Map<ByteBuffer, Integer> ruleBlocks = new HashMap<>();
+        Map<String, byte[]> zoneData = new LinkedHashMap<>();
+        Map<Node, Integer> transitionBlocks = new HashMap<>();
+        Map<String, Node> suffixes = new HashMap<>();
+
+        for (Map.Entry<String, Zone> e : parsed.entrySet()) {
+            Node suffix = getSharedSuffix(nodes, e.getValue());
+            if (suffix != null) {
+                suffix.referenced = true;
+                suffixes.put(e.getKey(), suffix);
+            }
+        }
+
+        for (Map.Entry<String, Zone> e : parsed.entrySet()) {
+            Zone zone = e.getValue();
+            Node suffix = suffixes.get(e.getKey());
+            int shared = 0;
+            int transitionRef = 0;
+
+            if (suffix != null) {
+                shared = suffix.depth;
+                transitionRef = addTransitionBlocks(suffix, blocks, transitionBlocks) + 1;
+            }
+
+            ByteBuffer rules = ByteBuffer.wrap(zone.rules);
+            Integer ruleRef = ruleBlocks.get(rules);
+
+            if (ruleRef == null) {
+                ruleRef = Integer.valueOf(blocks.size());
+                ruleBlocks.put(rules, ruleRef);
+                blocks.add(zone.rules);
+            }
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+            CompactFormat.writeSigned(out, zone.initialOffset);
+            CompactFormat.writeUnsigned(out, zone.size - shared);
+            zone.writeTransitions(out, 0, zone.size - shared, 0, zone.initialOffset);
+            CompactFormat.writeUnsigned(out, transitionRef);
+            CompactFormat.writeUnsigned(out, ruleRef.intValue());
+            zoneData.put(e.getKey(), out.toByteArray());
+        }
+
+        dos.writeInt(blocks.size());
+
+        for (Object block : blocks) {
+            byte[] data = (
+                (block instanceof Node)
+                ? encodeBlock((Node) block, transitionBlocks)
+                : (byte[]) block);
+            dos.writeInt(data.length);
+            dos.write(data);
+        }
+
+        dos.writeInt(zoneData.size());
+
+        for (Map.Entry<String, byte[]> e : zoneData.entrySet()) {
+            dos.writeUTF(e.getKey());
+            dos.writeInt(e.getValue().length);
+            dos.write(e.getValue());
+        }
+
+    }
+
+    /**
+     * <p>Liest alle Zonen und setzt sie wieder zu Zonendaten im kompakten
+     * Format zusammen. </p>
+     *
+     * @param   dis     Quellstrom, positioniert vor der Anzahl der
+     *                  Bl&ouml;cke
+     * @return  Zonendaten im kompakten Format in der Reihenfolge der Datei
+     * @throws  IOException bei Lesefehlern oder inkonsistenten Daten
+     */
+    static Map<String, byte[]> readZones(DataInputStream dis)
+        throws IOException {
+
+        byte[][] blocks = readBlocks(dis);
+        int n = dis.readInt();
+        Map<String, byte[]> zones = new LinkedHashMap<>();
+
+        try {
+            for (int i = 0; i < n; i++) {
+                String zoneID = dis.readUTF();
+                byte[] data = new byte[dis.readInt()];
+                dis.readFully(data);
+
+                CompactFormat in = new CompactFormat(data);
+                Zone zone = new Zone((int) in.readSigned());
+                zone.readTransitions(in, (int) in.readUnsigned(), 0, zone.initialOffset);
+                int transitionRef = (int) in.readUnsigned();
+                int ruleRef = (int) in.readUnsigned();
+                checkEnd(in, data);
+                int hops = 0;
+
+                while (transitionRef > 0) {
+                    byte[] block = blocks[transitionRef - 1];
+                    CompactFormat bin = new CompactFormat(block);
+                    zone.readTransitions(bin, (int) bin.readUnsigned(), 0, 0);
+                    transitionRef = (int) bin.readUnsigned();
+                    checkEnd(bin, block);
+                    if (++hops > blocks.length) {
+                        throw new IllegalArgumentException("Cyclic block chain.");
+                    }
+                }
+
+                ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+                CompactFormat.writeSigned(out, zone.initialOffset);
+                CompactFormat.writeUnsigned(out, zone.size);
+                zone.writeTransitions(out, 0, zone.size, 0, zone.initialOffset);
+                out.write(blocks[ruleRef]);
+                zones.put(zoneID, out.toByteArray());
+            }
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException ex) {
+            throw new IOException("Invalid pooled zone data.", ex);
+        }
+
+        return zones;
+
+    }
+
+    /**
+     * <p>Liest alle Zonen als Zeitzonenhistorien ein, wobei jeder Block nur
+     * einmal dekodiert wird. </p>
+     *
+     * <p>Zonen mit gleicher Endfolge teilen sich die Objekte vom Typ
+     * {@code ZonalTransition} dieser Endfolge, Zonen mit gleichem Regelblock
+     * die Objekte vom Typ {@code DaylightSavingRule}. </p>
+     *
+     * @param   dis     Quellstrom, positioniert vor der Anzahl der
+     *                  Bl&ouml;cke
+     * @return  Zeitzonenhistorien in der Reihenfolge der Datei
+     * @throws  IOException bei Lesefehlern oder inkonsistenten Daten
+     */
+    static Map<String, TransitionHistory> readHistories(DataInputStream dis)
+        throws IOException {
+
+        byte[][] blocks = readBlocks(dis);
+        AtomicReferenceArray<Object> decoded = createCache(blocks);
+        int n = dis.readInt();
+        Map<String, TransitionHistory> histories = new LinkedHashMap<>();
+
+        for (int i = 0; i < n; i++) {
+            String zoneID = dis.readUTF();
+            byte[] data = new byte[dis.readInt()];
+            dis.readFully(data);
+            histories.put(zoneID, decode(blocks, data, decoded));
+        }
+
+        return histories;
+
+    }
+
+    /**
+     * <p>Dekodiert die Daten einer einzelnen Zone. </p>
+     *
+     * @param   blocks      alle Bl&ouml;cke des Vorrats
+     * @param   data        Zonendaten
+     * @param   decoded     bereits dekodierte Bl&ouml;cke mit gleichem Index
+     *                      wie {@code blocks}, wird erg&auml;nzt und darf
+     *                      von mehreren Threads gleichzeitig benutzt werden
+     * @return  Zeitzonenhistorie
+     * @throws  IOException wenn die Daten inkonsistent sind
+     * @see     #createCache(byte[][])
+     */
+    static TransitionHistory decode(
+        byte[][] blocks,
+        byte[] data,
+        AtomicReferenceArray<Object> decoded
+    ) throws IOException {
+
+        try {
+            CompactFormat in = new CompactFormat(data);
+            int initialOffset = (int) in.readSigned();
+            Zone head = new Zone(initialOffset);
+            head.readTransitions(in, (int) in.readUnsigned(), 0, initialOffset);
+            int transitionRef = (int) in.readUnsigned();
+            int ruleRef = (int) in.readUnsigned();
+            checkEnd(in, data);
+
+            List<ZonalTransition> transitions = head.toList();
+            int hops = 0;
+
+            while (transitionRef > 0) {
+                int index = transitionRef - 1;
+                Object block = decoded.get(index);
+                if (block == null) {
+                    block = publish(decoded, index, Segment.decode(blocks[index]));
+                }
+                Segment segment = (Segment) block;
+                transitions.addAll(segment.transitions);
+                transitionRef = segment.next;
+                if (++hops > blocks.length) {
+                    throw new IllegalArgumentException("Cyclic block chain.");
+                }
+            }
+
+            Object rules = decoded.get(ruleRef);
+
+            if (rules == null) {
+                CompactFormat rin = new CompactFormat(blocks[ruleRef]);
+                List<DaylightSavingRule> list = rin.readRules();
+                checkEnd(rin, blocks[ruleRef]);
+                rules = publish(decoded, ruleRef, Collections.unmodifiableList(list));
+            }
+
+            return TransitionModel.of(
+                ZonalOffset.ofTotalSeconds(initialOffset),
+                transitions,
+                castRules(rules));
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException | ClassCastException ex) {
+            throw new IOException("Invalid pooled zone data.", ex);
+        }
+
+    }
+
+    /**
+     * <p>Erzeugt einen leeren Speicher f&uuml;r dekodierte Bl&ouml;cke, den
+     * sich alle Zonen eines Vorrats teilen. </p>
+     *
+     * @param   blocks      alle Bl&ouml;cke des Vorrats
+     * @return  Speicher mit gleichen Indizes wie {@code blocks}
+     */
+    static AtomicReferenceArray<Object> createCache(byte[][] blocks) {
+
+        return new AtomicReferenceArray<>(blocks.length);
+
+    }
+
+    /**
+     * <p>Liest den Vorrat aller Bl&ouml;cke ohne sie zu dekodieren. </p>
+     *
+     * @param   dis     Quellstrom, positioniert vor der Anzahl der
+     *                  Bl&ouml;cke
+     * @return  Bl&ouml;cke in der Reihenfolge ihrer Indizes
+     * @throws  IOException bei Lesefehlern
+     */
+    static byte[][] readBlocks(DataInputStream dis) throws IOException {
+
+        byte[][] blocks = new byte[dis.readInt()][];
+
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = new byte[dis.readInt()];
+            dis.readFully(blocks[i]);
+        }
+
+        return blocks;
+
+    }
+
+    // the first decoded instance wins so that all zones share it
+    private static Object publish(
+        AtomicReferenceArray<Object> decoded,
+        int index,
+        Object block
+    ) {
+
+        if (decoded.compareAndSet(index, null, block)) {
+            return block;
+        }
+
+        return decoded.get(index);
+
+    }
+
+    private static void checkEnd(
+        CompactFormat in,
+        byte[] data
+    ) {
+
+        if (in.getPosition() != data.length) {
+            throw new IllegalArgumentException("Unexpected trailing bytes.");
+        }
+
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<DaylightSavingRule> castRules(Object block) {
+
+        return (List<DaylightSavingRule>) block;
+
+    }
+
+    // longest suffix of given zone which at least one other zone has, too
+    private static Node getSharedSuffix(
+        Map<Node, Node> nodes,
+        Zone zone
+    ) {
+
+        Node node = null;
+
+        for (int i = zone.size - 1; i >= 0; i--) {
+            Node child = nodes.get(new Node(node, zone, i));
+            if (child.count < 2) {
+                break;
+            }
+            node = child;
+        }
+
+        return node;
+
+    }
+
+    // registers the chain starting at given node and yields the index of its first block
+    private static int addTransitionBlocks(
+        Node start,
+        List<Object> blocks,
+        Map<Node, Integer> transitionBlocks
+    ) {
+
+        Integer index = transitionBlocks.get(start);
+
+        if (index == null) {
+            index = Integer.valueOf(blocks.size());
+            transitionBlocks.put(start, index);
+            blocks.add(start);
+            Node end = getBlockEnd(start);
+            if (end != null) {
+                addTransitionBlocks(end, blocks, transitionBlocks);
+            }
+        }
+
+        return index.intValue();
+
+    }
+
+    // first node after given start where another block begins, null at the end
+    private static Node getBlockEnd(Node start) {
+
+        Node node = start.parent;
+
+        while ((node != null) && !node.referenced) {
+            node = node.parent;
+        }
+
+        return node;
+
+    }
+
+    private static byte[] encodeBlock(
+        Node start,
+        Map<Node, Integer> transitionBlocks
+    ) {
+
+        Node end = getBlockEnd(start);
+        Zone segment = new Zone(0);
+
+        for (Node node = start; node != end; node = node.parent) {
+            segment.add(node.posixTime, node.previousOffset, node.totalOffset, node.dstOffset);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(segment.size * 8 + 8);
+        CompactFormat.writeUnsigned(out, segment.size);
+        segment.writeTransitions(out, 0, segment.size, 0, 0);
+        CompactFormat.writeUnsigned(
+            out,
+            (end == null) ? 0 : transitionBlocks.get(end).intValue() + 1);
+        return out.toByteArray();
+
+    }
+
+    //~ Innere Klassen ----------------------------------------------------
+
+    /**
+     * <p>Zerlegte Zonendaten mit den &Uuml;berg&auml;ngen in parallelen
+     * Feldern und dem unver&auml;nderten Regelteil. </p>
+     */
+    private static final class Zone {
+
+        //~ Instanzvariablen ----------------------------------------------
+
+        private final int initialOffset;
+        private long[] posixTimes = new long[16];
+        private int[] previousOffsets = new int[16];
+        private int[] totalOffsets = new int[16];
+        private int[] dstOffsets = new int[16];
+        private int size = 0;
+        private byte[] rules;
+
+        //~ Konstruktoren -------------------------------------------------
+
+        Zone(int initialOffset) {
+            super();
+
+            this.initialOffset = initialOffset;
+
+        }
+
+        //~ Methoden ------------------------------------------------------
+
+        static Zone parse(byte[] data) throws IOException {
+
+            try {
+                CompactFormat in = new CompactFormat(data);
+                Zone zone = new Zone((int) in.readSigned());
+                zone.readTransitions(in, (int) in.readUnsigned(), 0, zone.initialOffset);
+                zone.rules = Arrays.copyOfRange(data, in.getPosition(), data.length);
+                return zone;
+            } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException ex) {
+                throw new IOException("Invalid compact zone data.", ex);
+            }
+
+        }
+
+        void add(
+            long posixTime,
+            int previousOffset,
+            int totalOffset,
+            int dstOffset
+        ) {
+
+            if (this.size == this.posixTimes.length) {
+                int capacity = this.size * 2;
+                this.posixTimes = Arrays.copyOf(this.posixTimes, capacity);
+                this.previousOffsets = Arrays.copyOf(this.previousOffsets, capacity);
+                this.totalOffsets = Arrays.copyOf(this.totalOffsets, capacity);
+                this.dstOffsets = Arrays.copyOf(this.dstOffsets, capacity);
+            }
+
+            this.posixTimes[this.size] = posixTime;
+            this.previousOffsets[this.size] = previousOffset;
+            this.totalOffsets[this.size] = totalOffset;
+            this.dstOffsets[this.size] = dstOffset;
+            this.size++;
+
+        }
+
+        // same delta encoding as in CompactFormat, starting with given predecessor
+        void readTransitions(
+            CompactFormat in,
+            int count,
+            long time,
+            int total
+        ) {
+
+            for (int i = 0; i < count; i++) {
+                time += in.readSigned();
+                int previous = total + (int) in.readSigned();
+                total = previous + (int) in.readSigned();
+                this.add(time, previous, total, (int) in.readSigned());
+            }
+
+        }
+
+        void writeTransitions(
+            ByteArrayOutputStream out,
+            int from,
+            int to,
+            long time,
+            int total
+        ) {
+
+            for (int i = from; i < to; i++) {
+                CompactFormat.writeSigned(out, this.posixTimes[i] - time);
+                CompactFormat.writeSigned(out, this.previousOffsets[i] - total);
+                CompactFormat.writeSigned(out, this.totalOffsets[i] - this.previousOffsets[i]);
+                CompactFormat.writeSigned(out, this.dstOffsets[i]);
+                time = this.posixTimes[i];
+                total = this.totalOffsets[i];
+            }
+
+        }
+
+        List<ZonalTransition> toList() {
+
+            List<ZonalTransition> list = new ArrayList<>(this.size);
+
+            for (int i = 0; i < this.size; i++) {
+                list.add(
+                    new ZonalTransition(
+                        this.posixTimes[i],
+                        this.previousOffsets[i],
+                        this.totalOffsets[i],
+                        this.dstOffsets[i]));
+            }
+
+            return list;
+
+        }
+
+    }
+
+    /**
+     * <p>Dekodierter &Uuml;bergangsblock samt Verweis auf den n&auml;chsten
+     * Block der Kette. </p>
+     */
+    private static final class Segment {
+
+        //~ Instanzvariablen ----------------------------------------------
+
+        private final List<ZonalTransition> transitions;
+        private final int next; // index plus one, zero at the end
+
+        //~ Konstruktoren -------------------------------------------------
+
+        private Segment(
+            List<ZonalTransition> transitions,
+            int next
+        ) {
+            super();
+
+            this.transitions = transitions;
+            this.next = next;
+
+        }
+
+        //~ Methoden ------------------------------------------------------
+
+        static Segment decode(byte[] block) {
+
+            CompactFormat in = new CompactFormat(block);
+            Zone zone = new Zone(0);
+            zone.readTransitions(in, (int) in.readUnsigned(), 0, 0);
+            int next = (int) in.readUnsigned();
+            checkEnd(in, block);
+            return new Segment(Collections.unmodifiableList(zone.toList()), next);
+
+        }
+
+    }
+
+    /**
+     * <p>Knoten im Suffixbaum aller &Uuml;bergangsfolgen. Der Elternknoten
+     * ist der zeitlich n&auml;chste &Uuml;bergang, so da&szlig; gleiche
+     * Endfolgen auf denselben Knoten f&uuml;hren. </p>
+     */
+    private static final class Node {
+
+        //~ Instanzvariablen ----------------------------------------------
+
+        private final Node parent;
+        private final int depth;
+        private final long posixTime;
+        private final int previousOffset;
+        private final int totalOffset;
+        private final int dstOffset;
+        private int count = 0; // zones passing this node
+        private boolean referenced = false; // start of a block
+
+        //~ Konstruktoren -------------------------------------------------
+
+        Node(
+            Node parent,
+            Zone zone,
+            int index
+        ) {
+            super();
+
+            this.parent = parent;
+            this.depth = ((parent == null) ? 1 : parent.depth + 1);
+            this.posixTime = zone.posixTimes[index];
+            this.previousOffset = zone.previousOffsets[index];
+            this.totalOffset = zone.totalOffsets[index];
+            this.dstOffset = zone.dstOffsets[index];
+
+        }
+
+        //~ Methoden ------------------------------------------------------
+
+        @Override
+        public boolean equals(Object obj) {
+
+            if (this == obj) {
+                return true;
+            } else if (obj instanceof Node) {
+                Node that = (Node) obj;
+                return (
+                    (this.parent == that.parent) // nodes are unique
+                    && (this.posixTime == that.posixTime)
+                    && (this.previousOffset == that.previousOffset)
+                    && (this.totalOffset == that.totalOffset)
+                    && (this.dstOffset == that.dstOffset)
+                );
+            } else {
+                return false;
+            }
+
+        }
+
+        @Override
+        public int hashCode() {
+
+            int h = System.identityHashCode(this.parent);
+            h = 31 * h + Long.hashCode(this.posixTime);
+            h = 31 * h + this.previousOffset;
+            h = 31 * h + this.totalOffset;
+            return 31 * h + this.dstOffset;
+
+        }
+
+    }
+
+}
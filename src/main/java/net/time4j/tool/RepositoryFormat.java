@@ -0,0 +1,161 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (RepositoryFormat.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+
+/**
+ * <p>Defines the binary layout of a compiled timezone repository. </p>
+ *
+ * <p>Every repository starts with the magic bytes &quot;tzrepo&quot;.
+ * All formats except the standard format continue with a byte for the
+ * format code. The standard format has no such byte but starts with the
+ * length of the version string whose first byte is always zero. </p>
+ *
+ * @author  Meno Hochschild
+ * @since   3.1
+ */
+/*[deutsch]
+ * <p>Definiert das bin&auml;re Layout eines kompilierten
+ * Zeitzonen-Repositorys. </p>
+ *
+ * <p>Jedes Repository beginnt mit den Bytes &quot;tzrepo&quot;. Alle
+ * Formate au&szlig;er dem Standardformat folgen mit einem Byte f&uuml;r den
+ * Formatcode. Das Standardformat hat kein solches Byte, sondern beginnt mit
+ * der L&auml;nge des Versionstexts, deren erstes Byte immer null ist. </p>
+ *
+ * @author  Meno Hochschild
+ * @since   3.1
+ */
+public enum RepositoryFormat {
+
+    //~ Statische Felder/Initialisierungen --------------------------------
+
+    /**
+     * Every zone is stored as serialized Java object (default).
+     */
+    /*[deutsch]
+     * Jede Zone wird als serialisiertes Java-Objekt gespeichert (Standard).
+     */
+    STANDARD(0),
+
+    /**
+     * Every zone is stored in a compact binary encoding which needs neither
+     * class descriptors nor reflection for loading.
+     *
+     * <p>Transitions are stored as variable-length deltas and rules as
+     * packed bytes. </p>
+     */
+    /*[deutsch]
+     * Jede Zone wird in einer kompakten bin&auml;ren Kodierung gespeichert,
+     * die zum Laden weder Klassenbeschreibungen noch Reflexion braucht.
+     *
+     * <p>&Uuml;berg&auml;nge werden als Differenzen variabler L&auml;nge und
+     * Regeln als gepackte Bytes gespeichert. </p>
+     */
+    COMPACT(1),
+
+    /**
+     * Like the compact format but with a sorted index of all zone
+     * identifiers in front of the zone data.
+     *
+     * <p>The index consists of fixed-size entries so that a memory-mapped
+     * repository allows to find a single zone by binary search without
+     * reading any other zone. </p>
+     */
+    /*[deutsch]
+     * Wie das kompakte Format, aber mit einem sortierten Index aller
+     * Zonenkennungen vor den Zonendaten.
+     *
+     * <p>Der Index besteht aus Eintr&auml;gen fester L&auml;nge, so
+     * da&szlig; in einem in den Speicher abgebildeten Repository eine
+     * einzelne Zone per bin&auml;rer Suche gefunden werden kann, ohne andere
+     * Zonen zu lesen. </p>
+     */
+    INDEXED(2),
+
+    /**
+     * Like the compact format but identical rule lists and identical
+     * trailing runs of transitions are stored only once in a shared pool
+     * of blocks which the zones refer to by index.
+     *
+     * <p>Zones on the same rules like most European zones share most of
+     * their data so the repository becomes smaller, and a reader can
+     * decode every block once for all zones using it. </p>
+     */
+    /*[deutsch]
+     * Wie das kompakte Format, aber gleiche Regellisten und gleiche
+     * Endfolgen von &Uuml;berg&auml;ngen werden nur einmal in einem
+     * gemeinsamen Vorrat von Bl&ouml;cken gespeichert, auf die die Zonen per
+     * Index verweisen.
+     *
+     * <p>Zonen mit gleichen Regeln wie die meisten europ&auml;ischen Zonen
+     * teilen sich den Gro&szlig;teil ihrer Daten, so da&szlig; das
+     * Repository kleiner wird und ein Leser jeden Block nur einmal f&uuml;r
+     * alle ihn nutzenden Zonen dekodieren mu&szlig;. </p>
+     */
+    POOLED(3);
+
+    //~ Instanzvariablen --------------------------------------------------
+
+    private final int code;
+
+    //~ Konstruktoren -----------------------------------------------------
+
+    private RepositoryFormat(int code) {
+        this.code = code;
+    }
+
+    //~ Methoden ----------------------------------------------------------
+
+    /**
+     * <p>Liefert den Formatcode, der nach den Bytes &quot;tzrepo&quot;
+     * geschrieben wird. </p>
+     *
+     * @return  int (im Standardformat {@code 0} ohne Formatbyte)
+     */
+    int getCode() {
+
+        return this.code;
+
+    }
+
+    /**
+     * <p>Ermittelt das Format zum angegebenen Code. </p>
+     *
+     * @param   code    Formatcode
+     * @return  RepositoryFormat
+     * @throws  IllegalArgumentException wenn der Code unbekannt ist
+     */
+    static RepositoryFormat valueOf(int code) {
+
+        for (RepositoryFormat format : values()) {
+            if (format.code == code) {
+                return format;
+            }
+        }
+
+        throw new IllegalArgumentException(
+            "Unknown repository format: " + code);
+
+    }
+
+}
@@ -0,0 +1,523 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (RepositoryReader.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import net.time4j.PlainDate;
+import net.time4j.tz.TransitionHistory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * <p>Reads a complete repository file as written by the compiler. </p>
+ *
+ * <p>The reader understands every {@link RepositoryFormat}: the header
+ * with version, the zone data, the aliases and the leap seconds. The raw
+ * data of all zones are read at once while a zone is only decoded when
+ * its history is requested, so decoding can be distributed among several
+ * threads. Instances are immutable and thread-safe. </p>
+ *
+ * @author  Meno Hochschild
+ * @since   3.1
+ * @see     LazyRepository
+ * @see     TimezoneRepositoryCompiler#verify(String)
+ */
+/*[deutsch]
+ * <p>Liest eine vom Compiler geschriebene Repository-Datei
+ * vollst&auml;ndig ein. </p>
+ *
+ * <p>Der Leser versteht jedes {@link RepositoryFormat}: den Kopf mit der
+ * Version, die Zonendaten, die Aliasnamen und die Schaltsekunden. Die
+ * Rohdaten aller Zeitzonen werden auf einmal gelesen, w&auml;hrend eine
+ * Zeitzone erst dekodiert wird, wenn ihre Historie angefordert wird, so
+ * da&szlig; das Dekodieren auf mehrere Threads verteilt werden kann.
+ * Instanzen sind unver&auml;nderlich und thread-sicher. </p>
+ *
+ * @author  Meno Hochschild
+ * @since   3.1
+ * @see     LazyRepository
+ * @see     TimezoneRepositoryCompiler#verify(String)
+ */
+public final class RepositoryReader {
+
+    //~ Statische Felder/Initialisierungen --------------------------------
+
+    // the minimum date does not fit into the short written for the year
+    private static final int UNKNOWN_EXPIRATION_YEAR =
+        (short) PlainDate.axis().getMinimum().getYear();
+
+    //~ Instanzvariablen --------------------------------------------------
+
+    private final RepositoryFormat format;
+    private final String version;
+    private final Map<String, byte[]> zones;
+    private final byte[][] blocks; // only in pooled format
+    private final AtomicReferenceArray<Object> decoded; // shared by all zones
+    private final Map<String, String> aliases;
+    private final Map<PlainDate, Integer> leapSeconds;
+    private final PlainDate expires;
+
+    //~ Konstruktoren -----------------------------------------------------
+
+    private RepositoryReader(DataInputStream dis) throws IOException {
+        super();
+
+        this.format = readHeader(dis);
+        this.version = dis.readUTF();
+        byte[][] pool = null;
+        Map<String, byte[]> map;
+
+        if (this.format == RepositoryFormat.INDEXED) {
+            map = IndexedFormat.readZones(dis);
+        } else {
+            map = new LinkedHashMap<>();
+
+            if (this.format == RepositoryFormat.POOLED) {
+                pool = PooledFormat.readBlocks(dis);
+            }
+
+            for (int i = dis.readInt(); i > 0; i--) {
+                String zoneID = dis.readUTF();
+                byte[] data = new byte[dis.readInt()];
+                dis.readFully(data);
+                map.put(zoneID, data);
+            }
+        }
+
+        String[] zoneIDs = map.keySet().toArray(new String[map.size()]);
+
+        for (int i = 1; i < zoneIDs.length; i++) {
+            if (zoneIDs[i - 1].compareTo(zoneIDs[i]) >= 0) {
+                throw new IOException("Zones not in ascending order: " + zoneIDs[i]);
+            }
+        }
+
+        this.zones = Collections.unmodifiableMap(map);
+        this.blocks = pool;
+        this.decoded = ((pool == null) ? null : PooledFormat.createCache(pool));
+        this.aliases = readAliases(dis, zoneIDs);
+        this.leapSeconds = readLeapSeconds(dis);
+        this.expires = readExpiration(dis);
+
+    }
+
+    //~ Methoden ----------------------------------------------------------
+
+    /**
+     * <p>Reads given repository file. </p>
+     *
+     * @param   repository  repository file written by the compiler
+     * @return  new reader
+     * @throws  IOException if the file cannot be read or is not a valid
+     *          repository
+     */
+    /*[deutsch]
+     * <p>Liest die angegebene Repository-Datei. </p>
+     *
+     * @param   repository  vom Compiler geschriebene Repository-Datei
+     * @return  neuer Leser
+     * @throws  IOException wenn die Datei nicht lesbar oder kein
+     *          g&uuml;ltiges Repository ist
+     */
+    public static RepositoryReader read(File repository) throws IOException {
+
+        InputStream in = new FileInputStream(repository);
+
+        try {
+            return read(in);
+        } finally {
+            try {
+                in.close();
+            } catch (IOException ex) {
+                // ignored
+            }
+        }
+
+    }
+
+    /**
+     * <p>Reads a repository from given stream. </p>
+     *
+     * @param   in      stream positioned at the start of a repository
+     *                  (will not be closed)
+     * @return  new reader
+     * @throws  IOException if the stream cannot be read or does not
+     *          contain a valid repository
+     */
+    /*[deutsch]
+     * <p>Liest ein Repository aus dem angegebenen Strom. </p>
+     *
+     * @param   in      Strom, positioniert am Anfang eines Repositorys
+     *                  (wird nicht geschlossen)
+     * @return  neuer Leser
+     * @throws  IOException wenn der Strom nicht lesbar ist oder kein
+     *          g&uuml;ltiges Repository enth&auml;lt
+     */
+    public static RepositoryReader read(InputStream in) throws IOException {
+
+        try {
+            return new RepositoryReader(new DataInputStream(new BufferedInputStream(in)));
+        } catch (IllegalArgumentException iae) {
+            throw new IOException("Invalid repository.", iae);
+        }
+
+    }
+
+    /**
+     * <p>Yields the format of the repository. </p>
+     *
+     * @return  RepositoryFormat
+     */
+    /*[deutsch]
+     * <p>Liefert das Format des Repositorys. </p>
+     *
+     * @return  RepositoryFormat
+     */
+    public RepositoryFormat getFormat() {
+
+        return this.format;
+
+    }
+
+    /**
+     * <p>Yields the tzdata version of the repository. </p>
+     *
+     * @return  version like &quot;2021a&quot;
+     */
+    /*[deutsch]
+     * <p>Liefert die tzdata-Version des Repositorys. </p>
+     *
+     * @return  Version wie &quot;2021a&quot;
+     */
+    public String getVersion() {
+
+        return this.version;
+
+    }
+
+    /**
+     * <p>Yields the identifiers of all zones stored in the repository. </p>
+     *
+     * @return  unmodifiable set in ascending order without aliases
+     */
+    /*[deutsch]
+     * <p>Liefert die Kennungen aller im Repository gespeicherten
+     * Zeitzonen. </p>
+     *
+     * @return  unver&auml;nderliche Menge in aufsteigender Reihenfolge ohne
+     *          Aliasnamen
+     */
+    public Set<String> getZoneIDs() {
+
+        return this.zones.keySet();
+
+    }
+
+    /**
+     * <p>Decodes the transition history of given zone. </p>
+     *
+     * <p>Aliases are resolved. Every call decodes the zone again. </p>
+     *
+     * @param   zoneID      timezone identifier or alias
+     * @return  transition history or {@code null} if the zone is unknown
+     * @throws  IOException if the data of the zone are invalid
+     */
+    /*[deutsch]
+     * <p>Dekodiert die &Uuml;bergangshistorie der angegebenen
+     * Zeitzone. </p>
+     *
+     * <p>Aliasnamen werden aufgel&ouml;st. Jeder Aufruf dekodiert die
+     * Zeitzone erneut. </p>
+     *
+     * @param   zoneID      Zeitzonenkennung oder Aliasname
+     * @return  &Uuml;bergangshistorie oder {@code null}, wenn die Zeitzone
+     *          unbekannt ist
+     * @throws  IOException wenn die Daten der Zeitzone ung&uuml;ltig sind
+     */
+    public TransitionHistory getHistory(String zoneID) throws IOException {
+
+        String target = this.aliases.get(zoneID);
+        String key = ((target == null) ? zoneID : target);
+        byte[] data = this.zones.get(key);
+
+        if (data == null) {
+            return null;
+        }
+
+        return decode(this.format, data, this.blocks, this.decoded, key);
+
+    }
+
+    /**
+     * <p>Yields all aliases of the repository. </p>
+     *
+     * @return  unmodifiable map from alias to zone identifier in ascending
+     *          order of aliases
+     */
+    /*[deutsch]
+     * <p>Liefert alle Aliasnamen des Repositorys. </p>
+     *
+     * @return  unver&auml;nderliche Zuordnung von Aliasnamen zu
+     *          Zonenkennungen in aufsteigender Reihenfolge der Aliasnamen
+     */
+    public Map<String, String> getAliases() {
+
+        return this.aliases;
+
+    }
+
+    /**
+     * <p>Yields the leap seconds in the order of the repository. </p>
+     *
+     * @return  unmodifiable map from date to shift
+     * @see     CompiledRepository#getLeapSeconds()
+     */
+    /*[deutsch]
+     * <p>Liefert die Schaltsekunden in der Reihenfolge des
+     * Repositorys. </p>
+     *
+     * @return  unver&auml;nderliche Zuordnung von Datum zu Verschiebung
+     * @see     CompiledRepository#getLeapSeconds()
+     */
+    public Map<PlainDate, Integer> getLeapSeconds() {
+
+        return this.leapSeconds;
+
+    }
+
+    /**
+     * <p>Yields the expiration date of the leap second table. </p>
+     *
+     * @return  expiration date or the minimum date if unknown
+     */
+    /*[deutsch]
+     * <p>Liefert das Verfallsdatum der Schaltsekundentabelle. </p>
+     *
+     * @return  Verfallsdatum oder das minimale Datum, wenn unbekannt
+     */
+    public PlainDate getLeapSecondExpiration() {
+
+        return this.expires;
+
+    }
+
+    /**
+     * <p>Decodes all zones and yields the same content as an in-memory
+     * compilation. </p>
+     *
+     * @return  repository without metrics
+     * @throws  IOException if the data of any zone are invalid
+     * @see     TimezoneRepositoryCompiler#compile(java.util.Map)
+     */
+    /*[deutsch]
+     * <p>Dekodiert alle Zeitzonen und liefert denselben Inhalt wie eine
+     * Kompilierung im Speicher. </p>
+     *
+     * @return  Repository ohne Messwerte
+     * @throws  IOException wenn die Daten einer Zeitzone ung&uuml;ltig sind
+     * @see     TimezoneRepositoryCompiler#compile(java.util.Map)
+     */
+    public CompiledRepository toCompiledRepository() throws IOException {
+
+        Map<String, TransitionHistory> histories = new TreeMap<>();
+
+        for (String zoneID : this.zones.keySet()) {
+            histories.put(zoneID, this.getHistory(zoneID));
+        }
+
+        return new CompiledRepository(
+            histories,
+            this.aliases,
+            this.leapSeconds,
+            this.expires,
+            null);
+
+    }
+
+    /**
+     * <p>Liest die Bytes &quot;tzrepo&quot; und den Formatcode. </p>
+     *
+     * @param   dis     Quellstrom am Anfang des Repositorys, mu&szlig;
+     *                  {@code mark()} unterst&uuml;tzen
+     * @return  Format, danach steht der Strom vor der Version
+     * @throws  IOException wenn kein Repository vorliegt
+     */
+    static RepositoryFormat readHeader(DataInputStream dis) throws IOException {
+
+        byte[] magic = new byte[6];
+        dis.readFully(magic);
+
+        if (!new String(magic, "US-ASCII").equals("tzrepo")) {
+            throw new IOException("Not a repository.");
+        }
+
+        dis.mark(1);
+        int code = dis.readByte();
+
+        if (code == 0) { // standard format without format code
+            dis.reset();
+        }
+
+        return RepositoryFormat.valueOf(code);
+
+    }
+
+    /**
+     * <p>Liest die von {@code compileLinks()} geschriebenen
+     * Aliasnamen. </p>
+     *
+     * @param   dis     Quellstrom, positioniert vor der Anzahl
+     * @param   zoneIDs alle Zonenkennungen in aufsteigender Reihenfolge
+     * @return  unver&auml;nderliche sortierte Zuordnung von Aliasnamen zu
+     *          Zonenkennungen
+     * @throws  IOException bei Lesefehlern oder ung&uuml;ltigen Verweisen
+     */
+    static Map<String, String> readAliases(
+        DataInputStream dis,
+        String[] zoneIDs
+    ) throws IOException {
+
+        Map<String, String> map = new TreeMap<>();
+
+        for (int i = dis.readShort(); i > 0; i--) {
+            String alias = dis.readUTF();
+            int index = dis.readShort();
+            if ((index < 0) || (index >= zoneIDs.length)) {
+                throw new IOException("Invalid link target of: " + alias);
+            }
+            map.put(alias, zoneIDs[index]);
+        }
+
+        return Collections.unmodifiableMap(map);
+
+    }
+
+    /**
+     * <p>Liest die von {@code compileLeapSeconds()} geschriebenen
+     * Schaltsekunden ohne das Verfallsdatum. </p>
+     *
+     * @param   dis     Quellstrom, positioniert vor der Anzahl
+     * @return  unver&auml;nderliche Zuordnung von Datum zu Verschiebung
+     * @throws  IOException bei Lesefehlern
+     */
+    static Map<PlainDate, Integer> readLeapSeconds(DataInputStream dis)
+        throws IOException {
+
+        Map<PlainDate, Integer> map = new LinkedHashMap<>();
+
+        for (int i = dis.readShort(); i > 0; i--) {
+            int year = dis.readShort();
+            int month = dis.readByte();
+            int day = dis.readByte();
+            map.put(PlainDate.of(year, month, day), Integer.valueOf(dis.readByte()));
+        }
+
+        return Collections.unmodifiableMap(map);
+
+    }
+
+    /**
+     * <p>Liest das Verfallsdatum der Schaltsekunden. </p>
+     *
+     * @param   dis     Quellstrom, positioniert nach den Schaltsekunden
+     * @return  Verfallsdatum oder das minimale Datum, wenn unbekannt
+     * @throws  IOException bei Lesefehlern
+     */
+    static PlainDate readExpiration(DataInputStream dis) throws IOException {
+
+        int year = dis.readShort();
+        int month = dis.readByte();
+        int day = dis.readByte();
+
+        if (
+            (year == UNKNOWN_EXPIRATION_YEAR)
+            && (month == 1)
+            && (day == 1)
+        ) {
+            return PlainDate.axis().getMinimum();
+        }
+
+        return PlainDate.of(year, month, day);
+
+    }
+
+    /**
+     * <p>Dekodiert die Daten einer Zeitzone im angegebenen Format. </p>
+     *
+     * @param   format  Format des Repositorys
+     * @param   data    Zonendaten
+     * @param   blocks  Vorrat gemeinsamer Bl&ouml;cke (nur im Format
+     *                  {@link RepositoryFormat#POOLED})
+     * @param   decoded gemeinsam genutzte dekodierte Bl&ouml;cke (nur im
+     *                  Format {@link RepositoryFormat#POOLED})
+     * @param   zoneID  Zonenkennung f&uuml;r Fehlermeldungen
+     * @return  Zeitzonenhistorie
+     * @throws  IOException wenn die Daten ung&uuml;ltig sind
+     */
+    static TransitionHistory decode(
+        RepositoryFormat format,
+        byte[] data,
+        byte[][] blocks,
+        AtomicReferenceArray<Object> decoded,
+        String zoneID
+    ) throws IOException {
+
+        switch (format) {
+            case COMPACT:
+            case INDEXED:
+                return CompactFormat.decode(data);
+            case POOLED:
+                return PooledFormat.decode(blocks, data, decoded);
+            default:
+                break;
+        }
+
+        ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data));
+
+        try {
+            return (TransitionHistory) ois.readObject();
+        } catch (ClassNotFoundException | ClassCastException ex) {
+            throw new IOException("Invalid zone data: " + zoneID, ex);
+        } finally {
+            try {
+                ois.close();
+            } catch (IOException ex) {
+                // ignored
+            }
+        }
+
+    }
+
+}
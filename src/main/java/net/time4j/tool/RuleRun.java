@@ -0,0 +1,228 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (RuleRun.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import java.util.Arrays;
+
+
+/**
+ * <p>Ungeschnittene Folge der Regelereignisse eines Regelsatzes f&uuml;r
+ * einen Standardversatz, ein Jahresfenster und einen anf&auml;nglichen
+ * DST-Anteil. </p>
+ *
+ * <p>Jedes Ereignis enth&auml;lt Jahr, Regelzeile, Zeitpunkt und den
+ * DST-Anteil davor unter der Annahme, da&szlig; alle vorherigen Ereignisse
+ * gegriffen haben. Zeitzonen mit gleichem Schl&uuml;ssel teilen sich eine
+ * Instanz und schneiden sie nur noch auf ihren eigenen G&uuml;ltigkeitsbereich
+ * zu. Weicht der DST-Anteil beim Zuschneiden von der Annahme ab, mu&szlig;
+ * der Zeitpunkt neu berechnet werden. Instanzen sind nach ihrer Erzeugung
+ * unver&auml;nderlich. </p>
+ *
+ * @author  Meno Hochschild
+ */
+final class RuleRun {
+
+    //~ Instanzvariablen --------------------------------------------------
+
+    private int[] years;
+    private TimezoneRepositoryCompiler.RuleLine[] lines;
+    private long[] posixTimes;
+    private int[] previousSavings;
+    private int size = 0;
+
+    //~ Konstruktoren -----------------------------------------------------
+
+    /**
+     * <p>Erzeugt eine leere Folge. </p>
+     *
+     * @param   capacity    erwartete Anzahl der Ereignisse
+     */
+    RuleRun(int capacity) {
+        super();
+
+        int n = Math.max(capacity, 1);
+        this.years = new int[n];
+        this.lines = new TimezoneRepositoryCompiler.RuleLine[n];
+        this.posixTimes = new long[n];
+        this.previousSavings = new int[n];
+
+    }
+
+    //~ Methoden ----------------------------------------------------------
+
+    /**
+     * <p>H&auml;ngt ein Ereignis an (nur w&auml;hrend der Erzeugung). </p>
+     *
+     * @param   year            Jahr des Ereignisses
+     * @param   line            ausl&ouml;sende Regelzeile
+     * @param   posixTime       Zeitpunkt in Sekunden seit 1970
+     * @param   previousSaving  angenommener DST-Anteil vor dem Ereignis
+     */
+    void add(
+        int year,
+        TimezoneRepositoryCompiler.RuleLine line,
+        long posixTime,
+        int previousSaving
+    ) {
+
+        if (this.size == this.years.length) {
+            int capacity = this.size * 2;
+            this.years = Arrays.copyOf(this.years, capacity);
+            this.lines = Arrays.copyOf(this.lines, capacity);
+            this.posixTimes = Arrays.copyOf(this.posixTimes, capacity);
+            this.previousSavings = Arrays.copyOf(this.previousSavings, capacity);
+        }
+
+        this.years[this.size] = year;
+        this.lines[this.size] = line;
+        this.posixTimes[this.size] = posixTime;
+        this.previousSavings[this.size] = previousSaving;
+        this.size++;
+
+    }
+
+    /**
+     * <p>Liefert die Anzahl der Ereignisse. </p>
+     *
+     * @return  int
+     */
+    int size() {
+
+        return this.size;
+
+    }
+
+    /**
+     * <p>Liefert das Jahr eines Ereignisses. </p>
+     *
+     * @param   index   Position des Ereignisses
+     * @return  Jahr
+     */
+    int getYear(int index) {
+
+        return this.years[index];
+
+    }
+
+    /**
+     * <p>Liefert die Regelzeile eines Ereignisses. </p>
+     *
+     * @param   index   Position des Ereignisses
+     * @return  RuleLine
+     */
+    TimezoneRepositoryCompiler.RuleLine getLine(int index) {
+
+        return this.lines[index];
+
+    }
+
+    /**
+     * <p>Liefert den Zeitpunkt eines Ereignisses, der nur bei dem
+     * angenommenen vorherigen DST-Anteil gilt. </p>
+     *
+     * @param   index   Position des Ereignisses
+     * @return  Sekunden seit 1970
+     * @see     #getPreviousSaving(int)
+     */
+    long getPosixTime(int index) {
+
+        return this.posixTimes[index];
+
+    }
+
+    /**
+     * <p>Liefert den angenommenen DST-Anteil vor einem Ereignis. </p>
+     *
+     * @param   index   Position des Ereignisses
+     * @return  DST-Anteil in Sekunden
+     */
+    int getPreviousSaving(int index) {
+
+        return this.previousSavings[index];
+
+    }
+
+    //~ Innere Klassen ----------------------------------------------------
+
+    /**
+     * <p>Schl&uuml;ssel einer Folge innerhalb eines Regelsatzes. </p>
+     */
+    static final class Key {
+
+        //~ Instanzvariablen ----------------------------------------------
+
+        private final int rawOffset;
+        private final int startYear;
+        private final int endYear;
+        private final int initialSaving;
+
+        //~ Konstruktoren -------------------------------------------------
+
+        Key(
+            int rawOffset,
+            int startYear,
+            int endYear,
+            int initialSaving
+        ) {
+            super();
+
+            this.rawOffset = rawOffset;
+            this.startYear = startYear;
+            this.endYear = endYear;
+            this.initialSaving = initialSaving;
+
+        }
+
+        //~ Methoden ------------------------------------------------------
+
+        @Override
+        public boolean equals(Object obj) {
+
+            if (this == obj) {
+                return true;
+            } else if (obj instanceof Key) {
+                Key that = (Key) obj;
+                return (
+                    (this.rawOffset == that.rawOffset)
+                    && (this.startYear == that.startYear)
+                    && (this.endYear == that.endYear)
+                    && (this.initialSaving == that.initialSaving)
+                );
+            } else {
+                return false;
+            }
+
+        }
+
+        @Override
+        public int hashCode() {
+
+            int h = this.rawOffset;
+            h = 31 * h + this.startYear;
+            h = 31 * h + this.endYear;
+            return 31 * h + this.initialSaving;
+
+        }
+
+    }
+
+}
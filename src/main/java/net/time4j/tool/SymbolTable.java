@@ -0,0 +1,227 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (SymbolTable.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import java.util.Arrays;
+
+
+/**
+ * <p>Ordnet jedem verschiedenen Namen aus den Quelldateien, etwa Regelnamen,
+ * Zonenkennungen oder Formaten von Abk&uuml;rzungen, eine fortlaufende
+ * Nummer ab null zu. </p>
+ *
+ * <p>Die geparsten Zeilen speichern nur diese Nummern, so da&szlig; jeder
+ * Name genau einmal im Speicher liegt. Namen k&ouml;nnen direkt aus dem
+ * Zeichenpuffer des {@link LineTokenizer} gesucht werden, ohne f&uuml;r
+ * bekannte Namen einen {@code String} zu erzeugen. Die Nummern h&auml;ngen
+ * von der Reihenfolge des Parsens ab und d&uuml;rfen daher nie in ein
+ * Ergebnis geschrieben werden. Alle Methoden sind thread-sicher. </p>
+ *
+ * @author  Meno Hochschild
+ */
+final class SymbolTable {
+
+    //~ Statische Felder/Initialisierungen --------------------------------
+
+    /**
+     * Nummer f&uuml;r einen fehlenden Namen.
+     */
+    static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 512; // power of two
+
+    //~ Instanzvariablen --------------------------------------------------
+
+    private String[] names = new String[INITIAL_CAPACITY / 2];
+    private int[] slots = new int[INITIAL_CAPACITY]; // number plus one, zero if empty
+    private int size = 0;
+
+    //~ Methoden ----------------------------------------------------------
+
+    /**
+     * <p>Liefert die Nummer des angegebenen Namens und vergibt beim ersten
+     * Auftreten eine neue. </p>
+     *
+     * @param   name    Name aus einer Quelldatei
+     * @return  nicht-negative Nummer
+     */
+    synchronized int intern(String name) {
+
+        int mask = this.slots.length - 1;
+
+        for (int i = spread(name.hashCode()) & mask; ; i = (i + 1) & mask) {
+            int slot = this.slots[i];
+
+            if (slot == 0) {
+                return this.add(name, i);
+            } else if (this.names[slot - 1].equals(name)) {
+                return slot - 1;
+            }
+        }
+
+    }
+
+    /**
+     * <p>Liefert die Nummer des Namens im angegebenen Zeichenbereich und
+     * vergibt beim ersten Auftreten eine neue. </p>
+     *
+     * @param   chars   Zeichenpuffer
+     * @param   start   Anfang des Namens (inklusive)
+     * @param   end     Ende des Namens (exklusive)
+     * @return  nicht-negative Nummer
+     */
+    synchronized int intern(
+        char[] chars,
+        int start,
+        int end
+    ) {
+
+        int len = end - start;
+        int h = 0;
+
+        for (int i = start; i < end; i++) {
+            h = 31 * h + chars[i]; // same as String.hashCode()
+        }
+
+        int mask = this.slots.length - 1;
+
+        for (int i = spread(h) & mask; ; i = (i + 1) & mask) {
+            int slot = this.slots[i];
+
+            if (slot == 0) {
+                return this.add(new String(chars, start, len), i);
+            }
+
+            String candidate = this.names[slot - 1];
+
+            if (candidate.length() == len) {
+                int j = 0;
+                while ((j < len) && (candidate.charAt(j) == chars[start + j])) {
+                    j++;
+                }
+                if (j == len) {
+                    return slot - 1;
+                }
+            }
+        }
+
+    }
+
+    /**
+     * <p>Sucht die Nummer des angegebenen Namens, ohne eine neue zu
+     * vergeben. </p>
+     *
+     * @param   name    gesuchter Name
+     * @return  Nummer oder {@link #NONE}, wenn unbekannt
+     */
+    synchronized int find(String name) {
+
+        int mask = this.slots.length - 1;
+
+        for (int i = spread(name.hashCode()) & mask; ; i = (i + 1) & mask) {
+            int slot = this.slots[i];
+
+            if (slot == 0) {
+                return NONE;
+            } else if (this.names[slot - 1].equals(name)) {
+                return slot - 1;
+            }
+        }
+
+    }
+
+    /**
+     * <p>Liefert den Namen zur angegebenen Nummer. </p>
+     *
+     * @param   id      mit {@link #intern(String)} vergebene Nummer
+     * @return  Name
+     * @throws  IndexOutOfBoundsException wenn die Nummer unbekannt ist
+     */
+    synchronized String get(int id) {
+
+        if ((id < 0) || (id >= this.size)) {
+            throw new IndexOutOfBoundsException("Unknown symbol: " + id);
+        }
+
+        return this.names[id];
+
+    }
+
+    /**
+     * <p>Liefert die Anzahl der vergebenen Nummern. </p>
+     *
+     * @return  int
+     */
+    synchronized int size() {
+
+        return this.size;
+
+    }
+
+    private int add(
+        String name,
+        int index
+    ) {
+
+        int id = this.size;
+
+        if (id == this.names.length) {
+            this.names = Arrays.copyOf(this.names, id * 2);
+        }
+
+        this.names[id] = name;
+        this.slots[index] = id + 1;
+        this.size++;
+
+        if (this.size * 2 > this.slots.length) {
+            this.rehash();
+        }
+
+        return id;
+
+    }
+
+    // keeps the load factor at most one half
+    private void rehash() {
+
+        int[] table = new int[this.slots.length * 2];
+        int mask = table.length - 1;
+
+        for (int id = 0; id < this.size; id++) {
+            int i = spread(this.names[id].hashCode()) & mask;
+            while (table[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            table[i] = id + 1;
+        }
+
+        this.slots = table;
+
+    }
+
+    private static int spread(int h) {
+
+        return h ^ (h >>> 16);
+
+    }
+
+}
@@ -0,0 +1,290 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (TarIndex.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+
+/**
+ * <p>Verzeichnis der Eintr&auml;ge einer unkomprimierten TAR-Datei mit
+ * Name, Position und Gr&ouml;&szlig;e der Daten. </p>
+ *
+ * <p>Das Verzeichnis wird beim ersten Zugriff durch Lesen nur der
+ * Kopfbl&ouml;cke ermittelt und in einer Begleitdatei mit der Endung
+ * &quot;.index&quot; gespeichert. Sp&auml;tere Zugriffe lesen nur noch die
+ * Begleitdatei, solange L&auml;nge und &Auml;nderungszeit der TAR-Datei
+ * gleich geblieben sind, und bilden die ben&ouml;tigten Eintr&auml;ge
+ * direkt in den Speicher ab. </p>
+ *
+ * @author  Meno Hochschild
+ */
+final class TarIndex {
+
+    //~ Statische Felder/Initialisierungen --------------------------------
+
+    private static final String SUFFIX = ".index";
+    private static final String MAGIC = "tzidx-1";
+    private static final int BLOCK_SIZE = 512;
+
+    //~ Instanzvariablen --------------------------------------------------
+
+    private final File tar;
+    private final Map<String, long[]> entries; // name => {offset, size}
+
+    //~ Konstruktoren -----------------------------------------------------
+
+    private TarIndex(
+        File tar,
+        Map<String, long[]> entries
+    ) {
+        super();
+
+        this.tar = tar;
+        this.entries = entries;
+
+    }
+
+    //~ Methoden ----------------------------------------------------------
+
+    /**
+     * <p>Liefert das Verzeichnis der angegebenen TAR-Datei. </p>
+     *
+     * <p>Eine g&uuml;ltige Begleitdatei wird gelesen, sonst werden die
+     * Kopfbl&ouml;cke gelesen und die Begleitdatei neu geschrieben. Kann
+     * sie nicht geschrieben werden, wird das Verzeichnis trotzdem
+     * geliefert. </p>
+     *
+     * @param   tar     unkomprimierte TAR-Datei
+     * @return  Verzeichnis der normalen Dateien
+     * @throws  IOException bei Lesefehlern
+     */
+    static TarIndex of(File tar) throws IOException {
+
+        File sidecar = new File(tar.getPath() + SUFFIX);
+        Map<String, long[]> entries = null;
+
+        if (sidecar.isFile()) {
+            entries = readSidecar(sidecar, tar);
+        }
+
+        if (entries == null) {
+            entries = scan(tar);
+            try {
+                writeSidecar(sidecar, tar, entries);
+            } catch (IOException ioe) {
+                sidecar.delete(); // maybe read-only directory, index stays usable
+            }
+        }
+
+        return new TarIndex(tar, entries);
+
+    }
+
+    /**
+     * <p>Liefert die Namen aller normalen Dateien in Archivreihenfolge. </p>
+     *
+     * @return  unver&auml;nderliche Menge von Eintragsnamen
+     */
+    Set<String> getNames() {
+
+        return Collections.unmodifiableSet(this.entries.keySet());
+
+    }
+
+    /**
+     * <p>Bildet die Daten des angegebenen Eintrags in den Speicher ab. </p>
+     *
+     * @param   name    Eintragsname
+     * @return  nur lesbarer Puffer
+     * @throws  IOException wenn der Eintrag fehlt oder nicht gelesen
+     *          werden kann
+     */
+    ByteBuffer map(String name) throws IOException {
+
+        long[] entry = this.entries.get(name);
+
+        if (entry == null) {
+            throw new IOException("Tar entry not found: " + name);
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(this.tar, "r");
+
+        try {
+            return raf.getChannel().map(
+                FileChannel.MapMode.READ_ONLY,
+                entry[0],
+                entry[1]);
+        } finally {
+            try {
+                raf.close(); // mapping stays valid
+            } catch (IOException ex) {
+                // ignored
+            }
+        }
+
+    }
+
+    private static Map<String, long[]> scan(File tar) throws IOException {
+
+        Map<String, long[]> entries = new LinkedHashMap<>();
+        byte[] header = new byte[BLOCK_SIZE];
+        RandomAccessFile raf = new RandomAccessFile(tar, "r");
+
+        try {
+            long length = raf.length();
+            long pos = 0;
+
+            while (pos + BLOCK_SIZE <= length) {
+                raf.seek(pos);
+                raf.readFully(header);
+
+                if (isEmpty(header)) {
+                    break; // end-of-archive marker
+                }
+
+                TarEntry entry = new TarEntry(header);
+                long size = entry.getSize();
+                pos += BLOCK_SIZE;
+
+                if (pos + size > length) {
+                    throw new EOFException("Truncated tar entry: " + entry.getName());
+                } else if (entry.isNormalFile()) {
+                    entries.put(entry.getName(), new long[] {pos, size});
+                }
+
+                pos += ((size + BLOCK_SIZE - 1) / BLOCK_SIZE) * BLOCK_SIZE;
+            }
+        } finally {
+            try {
+                raf.close();
+            } catch (IOException ex) {
+                // ignored
+            }
+        }
+
+        return entries;
+
+    }
+
+    private static boolean isEmpty(byte[] header) {
+
+        for (byte b : header) {
+            if (b != 0) {
+                return false;
+            }
+        }
+
+        return true;
+
+    }
+
+    // null if the sidecar does not belong to the current state of the tar file
+    private static Map<String, long[]> readSidecar(
+        File sidecar,
+        File tar
+    ) throws IOException {
+
+        DataInputStream dis =
+            new DataInputStream(
+                new BufferedInputStream(
+                    new FileInputStream(sidecar)));
+
+        try {
+            if (
+                !dis.readUTF().equals(MAGIC)
+                || (dis.readLong() != tar.length())
+                || (dis.readLong() != tar.lastModified())
+            ) {
+                return null;
+            }
+
+            int count = dis.readInt();
+            Map<String, long[]> entries = new LinkedHashMap<>();
+
+            for (int i = 0; i < count; i++) {
+                String name = dis.readUTF();
+                long offset = dis.readLong();
+                long size = dis.readLong();
+                entries.put(name, new long[] {offset, size});
+            }
+
+            return entries;
+        } catch (EOFException eof) {
+            return null; // incomplete sidecar
+        } finally {
+            try {
+                dis.close();
+            } catch (IOException ex) {
+                // ignored
+            }
+        }
+
+    }
+
+    private static void writeSidecar(
+        File sidecar,
+        File tar,
+        Map<String, long[]> entries
+    ) throws IOException {
+
+        DataOutputStream dos =
+            new DataOutputStream(
+                new BufferedOutputStream(
+                    new FileOutputStream(sidecar)));
+
+        try {
+            dos.writeUTF(MAGIC);
+            dos.writeLong(tar.length());
+            dos.writeLong(tar.lastModified());
+            dos.writeInt(entries.size());
+
+            for (Map.Entry<String, long[]> e : entries.entrySet()) {
+                dos.writeUTF(e.getKey());
+                dos.writeLong(e.getValue()[0]);
+                dos.writeLong(e.getValue()[1]);
+            }
+        } finally {
+            try {
+                dos.close();
+            } catch (IOException ex) {
+                // ignored
+            }
+        }
+
+    }
+
+}
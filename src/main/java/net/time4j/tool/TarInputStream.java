@@ -21,14 +21,23 @@
 
 package net.time4j.tool;
 
+import java.io.EOFException;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
 
 
 /**
  * <p>Spezieller Eingabestrom zum Einlesen von TAR-Dateien. </p>
  *
+ * <p>Gelesen wird immer nur innerhalb des aktuellen Eintrags. Kopfdaten,
+ * &uuml;bersprungene Bytes und Massenkopien verwenden einen einzigen
+ * wiederverwendbaren Puffer, w&auml;hrend gew&ouml;hnliche Leseaufrufe
+ * direkt in das Zielfeld lesen. </p>
+ *
  * @author  Meno Hochschild
  */
 class TarInputStream
@@ -36,23 +45,25 @@ class TarInputStream
 
     //~ Statische Felder/Initialisierungen --------------------------------
 
-    private static final int DATA_BLOCK = 512;
-    private static final int HEADER_BLOCK = 512;
+    private static final int BLOCK_SIZE = 512;
+    private static final int BUFFER_SIZE = BLOCK_SIZE * 16;
 
     //~ Instanzvariablen --------------------------------------------------
 
+    private final byte[] buffer;
     private TarEntry currentEntry;
-    private long currentFileSize;
-    private long bytesRead;
+    private long remaining; // unread data of current entry
+    private int padding; // bytes after current entry up to block boundary
 
     //~ Konstruktoren -----------------------------------------------------
 
     public TarInputStream(InputStream in) {
         super(in);
 
+        this.buffer = new byte[BUFFER_SIZE];
         this.currentEntry = null;
-        this.currentFileSize = 0;
-        this.bytesRead = 0;
+        this.remaining = 0;
+        this.padding = 0;
 
     }
 
@@ -80,105 +91,173 @@ class TarInputStream
     @Override
     public int read() throws IOException {
 
-        byte[] buf = new byte[1];
-        int res = this.read(buf, 0, 1);
-
-        if (res != -1) {
-            return buf[0];
-        }
-
-        return -1;
+        int res = this.read(this.buffer, 0, 1);
+        return ((res == -1) ? -1 : (this.buffer[0] & 0xFF));
 
     }
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
 
-        if (this.currentEntry != null) {
-            long diff = this.currentEntry.getSize() - this.currentFileSize;
+        if (this.remaining == 0) {
+            return -1;
+        } else if (len == 0) {
+            return 0;
+        } else if (len > this.remaining) {
+            len = (int) this.remaining;
+        }
 
-            if (diff == 0) {
-                return -1;
-            } else if (len > diff) {
-                len = (int) diff;
-            }
+        int br = this.in.read(b, off, len);
+
+        if (br == -1) {
+            throw new EOFException(
+                "Unexpected end of tar entry: " + this.currentEntry.getName());
         }
 
-        int br = super.read(b, off, len);
+        this.remaining -= br;
+        return br;
+
+    }
 
-        if (br != -1) {
-            if (this.currentEntry != null) {
-                this.currentFileSize += br;
+    /**
+     * <p>Liest Daten des aktuellen Eintrags in den angegebenen Puffer. </p>
+     *
+     * @param   dst     Zielpuffer, auch direkt angelegt
+     * @return  Anzahl der gelesenen Bytes oder {@code -1} am Ende des
+     *          Eintrags
+     * @throws  IOException bei Lesefehlern
+     */
+    int read(ByteBuffer dst) throws IOException {
+
+        int len = dst.remaining();
+        int br;
+
+        if (dst.hasArray()) {
+            br = this.read(dst.array(), dst.arrayOffset() + dst.position(), len);
+            if (br > 0) {
+                ((Buffer) dst).position(dst.position() + br); // Java 8 signature
+            }
+        } else {
+            br = this.read(this.buffer, 0, Math.min(len, BUFFER_SIZE));
+            if (br > 0) {
+                dst.put(this.buffer, 0, br);
             }
-            this.bytesRead += br;
         }
 
         return br;
 
     }
 
-    TarEntry getNextEntry() throws IOException {
+    /**
+     * <p>Kopiert den Rest des aktuellen Eintrags in den angegebenen
+     * Ausgabestrom. </p>
+     *
+     * <p>Ab Java 9 &uuml;berschreibt diese Methode die gleichnamige Methode
+     * von {@code InputStream}. </p>
+     *
+     * @param   out     Zielstrom (wird nicht geschlossen)
+     * @return  Anzahl der kopierten Bytes
+     * @throws  IOException bei Lese- oder Schreibfehlern
+     */
+    public long transferTo(OutputStream out) throws IOException {
+
+        long count = 0;
+        int br;
+
+        while ((br = this.read(this.buffer, 0, BUFFER_SIZE)) != -1) {
+            out.write(this.buffer, 0, br);
+            count += br;
+        }
 
-        this.closeCurrentEntry();
+        return count;
 
-        byte[] header = new byte[HEADER_BLOCK];
-        byte[] temp = new byte[HEADER_BLOCK];
-        int tr = 0;
+    }
 
-        while (tr < HEADER_BLOCK) {
-            int res = this.read(temp, 0, HEADER_BLOCK - tr);
-            System.arraycopy(temp, 0, header, tr, res);
-            tr += res;
+    @Override
+    public long skip(long n) throws IOException {
+
+        long todo = Math.min(n, this.remaining);
+
+        if (todo <= 0) {
+            return 0;
         }
 
-        boolean eof = true;
+        this.discard(todo);
+        this.remaining -= todo;
+        return todo;
 
-        for (byte b : header) {
-            if (b != 0) {
-                eof = false;
-                break;
-            }
+    }
+
+    @Override
+    public int available() throws IOException {
+
+        return (int) Math.min(this.in.available(), this.remaining);
+
+    }
+
+    TarEntry getNextEntry() throws IOException {
+
+        this.closeCurrentEntry();
+
+        if (!this.readBlock()) {
+            return null; // no end-of-archive marker
         }
 
-        if (!eof) {
-            this.currentEntry = new TarEntry(header);
+        for (int i = 0; i < BLOCK_SIZE; i++) {
+            if (this.buffer[i] != 0) {
+                TarEntry entry = new TarEntry(this.buffer);
+                long size = entry.getSize();
+                this.currentEntry = entry;
+                this.remaining = size;
+                this.padding = (int) ((BLOCK_SIZE - (size % BLOCK_SIZE)) % BLOCK_SIZE);
+                return entry;
+            }
         }
 
-        return this.currentEntry;
+        return null; // end-of-archive marker
 
     }
 
     private void closeCurrentEntry() throws IOException {
 
         if (this.currentEntry != null) {
-            long diff = this.currentEntry.getSize() - this.currentFileSize;
+            this.discard(this.remaining + this.padding);
+            this.currentEntry = null;
+            this.remaining = 0;
+            this.padding = 0;
+        }
 
-            if (diff > 0) {
-                long bs = 0;
-                while (bs < diff) {
-                    long res = this.skip(diff - bs);
-                    bs += res;
-                }
-                this.bytesRead += diff;
-            }
+    }
 
-            this.currentEntry = null;
-            this.currentFileSize = 0;
-
-            // bis zum Ende eines Datenblocks Bytes überspringen
-            if (this.bytesRead > 0) {
-                int extra = (int) (this.bytesRead % DATA_BLOCK);
-
-                if (extra > 0) {
-                    long bs = 0;
-                    while (bs < DATA_BLOCK - extra) {
-                        long res = this.skip(DATA_BLOCK - extra - bs);
-                        bs += res;
-                    }
-                    this.bytesRead += (DATA_BLOCK - extra);
+    // reads a header block into the start of the buffer
+    private boolean readBlock() throws IOException {
+
+        int tr = 0;
+
+        while (tr < BLOCK_SIZE) {
+            int res = this.in.read(this.buffer, tr, BLOCK_SIZE - tr);
+            if (res == -1) {
+                if (tr == 0) {
+                    return false;
                 }
+                throw new EOFException("Truncated tar header.");
             }
+            tr += res;
+        }
+
+        return true;
+
+    }
+
+    // reads and drops bytes because skip() of compressed streams reads anyway
+    private void discard(long n) throws IOException {
 
+        while (n > 0) {
+            int res = this.in.read(this.buffer, 0, (int) Math.min(n, BUFFER_SIZE));
+            if (res == -1) {
+                throw new EOFException("Unexpected end of tar archive.");
+            }
+            n -= res;
         }
 
     }
@@ -26,9 +26,7 @@ import net.time4j.Month;
 import net.time4j.PlainDate;
 import net.time4j.PlainTimestamp;
 import net.time4j.Weekday;
-import net.time4j.base.GregorianMath;
 import net.time4j.base.MathUtils;
-import net.time4j.engine.EpochDays;
 import net.time4j.tz.TransitionHistory;
 import net.time4j.tz.ZonalOffset;
 import net.time4j.tz.ZonalTransition;
@@ -38,35 +36,58 @@ import net.time4j.tz.model.OffsetIndicator;
 import net.time4j.tz.model.TransitionModel;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedReader;
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.CharArrayReader;
+import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
 import java.io.ObjectOutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.io.StringReader;
 import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
-import java.util.StringTokenizer;
 import java.util.TreeMap;
-import java.util.zip.GZIPInputStream;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 
 /**
@@ -77,7 +98,9 @@ import java.util.zip.GZIPInputStream;
  * organization <a href="http://www.iana.org/time-zones">IANA</a>. File
  * archives have the name &quot;tzdata&lt;version&gt;.tar.gz&quot;, where
  * the version is composed of a 4-digit year and a small letter a-z. Example:
- * &quot;tzdata2011n.tar.gz&quot;. </p>
+ * &quot;tzdata2011n.tar.gz&quot;. Complete bundles named
+ * &quot;tzdb-&lt;version&gt;&quot; are accepted, too, and other compression
+ * formats than gzip can be plugged in via {@link ArchiveDecompressor}. </p>
  *
  * <p>The existence of an editable directory with the name &quot;tzrepo&quot;
  * in the classpath is provided if not specified otherwise. This directory
@@ -99,7 +122,10 @@ import java.util.zip.GZIPInputStream;
  * <a href="http://www.iana.org/time-zones">IANA</a> verwaltet. Dateiarchive
  * haben den Namen &quot;tzdata&lt;version&gt;.tar.gz&quot;, wobei die Version
  * aus einer 4-stelligen Jahreszahl und einem Buchstaben a-z zusammengesetzt
- * ist. Beispiel: &quot;tzdata2011n.tar.gz&quot;. </p>
+ * ist. Beispiel: &quot;tzdata2011n.tar.gz&quot;. Vollst&auml;ndige Pakete
+ * namens &quot;tzdb-&lt;version&gt;&quot; werden auch akzeptiert, und andere
+ * Kompressionsformate als gzip k&ouml;nnen &uuml;ber
+ * {@link ArchiveDecompressor} eingebunden werden. </p>
  *
  * <p>Vorausgesetzt wird die Existenz eines editierbaren Verzeichnisses mit
  * dem Namen &quot;tzrepo&quot; im Klassenpfad wenn nicht explizit angegeben.
@@ -122,6 +148,12 @@ public class TimezoneRepositoryCompiler {
     private static final String WORK_DIRECTORY_NAME = "tzrepo";
     private static final String TZDATA = "tzdata";
     private static final String TAR_GZ_EXTENSION = ".tar.gz";
+    private static final String[] ARCHIVE_PREFIXES = {TZDATA, "tzdb-"};
+    private static final String TAR_EXTENSION = ".tar";
+    private static final String TAR_CACHE_DIRECTORY = "tarcache";
+    private static final String SOURCE_EXTENSION = ".source";
+    private static final String MODEL_CACHE_DIRECTORY = "modelcache";
+    private static final String MODEL_EXTENSION = ".model";
     private static final String LF = System.getProperty("line.separator");
 
     private static final String[] LONG_MONTHS =
@@ -154,13 +186,26 @@ public class TimezoneRepositoryCompiler {
         FILES_ACCEPTED_BY_COMPILER = Collections.unmodifiableList(tmp2);
     }
 
-    private static final Comparator<RuleLine> RC = new RuleComparator();
+    static final Comparator<RuleLine> RC = new RuleComparator();
+
+    // to be changed whenever the compiled zone data change for same input
+    private static final String DIGEST_SALT = "tzrepo-zone-2";
+    private static final String REPOSITORY_FILE = TZDATA + ".repository";
+    private static final String CHECKSUM_FILE = TZDATA + ".checksums";
+    private static final String METRICS_FILE = TZDATA + ".metrics.json";
 
     //~ Instanzvariablen --------------------------------------------------
 
     private final File workdir;
     private final boolean verbose;
     private final boolean lmt;
+    private final int parallelism;
+    private final boolean incremental;
+    private final RepositoryFormat format;
+    private final boolean tarCache;
+    private final boolean modelCache;
+    private final boolean metrics;
+    private final MetricsRecorder recorder; // only enabled during one run
 
     //~ Konstruktoren -----------------------------------------------------
 
@@ -185,6 +230,13 @@ public class TimezoneRepositoryCompiler {
             this.workdir = getDefaultWorkDirectory();
             this.verbose = false;
             this.lmt = false;
+            this.parallelism = 1;
+            this.incremental = false;
+            this.format = RepositoryFormat.STANDARD;
+            this.tarCache = false;
+            this.modelCache = false;
+            this.metrics = false;
+            this.recorder = MetricsRecorder.DISABLED;
         } catch (IOException ioe) {
             throw new IllegalStateException(ioe);
         }
@@ -225,20 +277,44 @@ public class TimezoneRepositoryCompiler {
         File workdir,
         boolean lmt
     ) {
-        this(workdir, false, lmt);
+        this(
+            workdir,
+            false,
+            lmt,
+            1,
+            false,
+            RepositoryFormat.STANDARD,
+            false,
+            false,
+            false,
+            MetricsRecorder.DISABLED);
 
     }
 
     private TimezoneRepositoryCompiler(
         File workdir,
         boolean verbose,
-        boolean lmt
+        boolean lmt,
+        int parallelism,
+        boolean incremental,
+        RepositoryFormat format,
+        boolean tarCache,
+        boolean modelCache,
+        boolean metrics,
+        MetricsRecorder recorder
     ) {
         super();
 
         this.workdir = workdir;
         this.verbose = verbose;
         this.lmt = lmt;
+        this.parallelism = parallelism;
+        this.incremental = incremental;
+        this.format = format;
+        this.tarCache = tarCache;
+        this.modelCache = modelCache;
+        this.metrics = metrics;
+        this.recorder = recorder;
 
         if (
             (workdir == null)
@@ -249,6 +325,11 @@ public class TimezoneRepositoryCompiler {
         } else if (!workdir.isDirectory()) {
             throw new IllegalArgumentException(
                 "Directory required: " + workdir);
+        } else if (parallelism < 1) {
+            throw new IllegalArgumentException(
+                "Parallelism must be positive: " + parallelism);
+        } else if (format == null) {
+            throw new NullPointerException("Missing repository format.");
         }
 
     }
@@ -273,15 +354,47 @@ public class TimezoneRepositoryCompiler {
      *  <dd>Unpack timezone archive to subdirectory</dd>
      *  <dt>-compile</dt>
      *  <dd>Compile timezone data (archives or subdirectories)</dd>
+     *  <dt>-verify</dt>
+     *  <dd>Read the compiled repository again and compare it with the
+     *  timezone data, zone by zone with -threads threads (the option -lmt
+     *  must be the same as during compilation)</dd>
      *  <dt>-version</dt>
      *  <dd>Use only given timezone version instead of newest available version
      *  (example: -version 2011n)</dd>
      *  <dt>-lmt</dt>
      *  <dd>Include LMT zone entries during compilation</dd>
+     *  <dt>-threads</dt>
+     *  <dd>Compile the zones in parallel using given count of threads
+     *  (example: -threads 8)</dd>
+     *  <dt>-incremental</dt>
+     *  <dd>Only recompile zones whose source lines have changed since the
+     *  last compilation</dd>
+     *  <dt>-format</dt>
+     *  <dd>Write the repository in given format, either &quot;standard&quot;,
+     *  &quot;compact&quot;, &quot;indexed&quot; or &quot;pooled&quot;
+     *  (example: -format compact)</dd>
+     *  <dt>-tarcache</dt>
+     *  <dd>Decompress archives only once into an indexed tar file in the
+     *  subdirectory &quot;tarcache&quot; and read the entries from there</dd>
+     *  <dt>-modelcache</dt>
+     *  <dd>Store the parsed tables of every archive in the subdirectory
+     *  &quot;modelcache&quot; and reuse them as long as the archive content
+     *  is unchanged</dd>
+     *  <dt>-metrics</dt>
+     *  <dd>Measure wall time, CPU time and allocated bytes per phase and zone
+     *  and write them in given format next to the repository, currently only
+     *  &quot;json&quot; (example: -metrics json)</dd>
+     *  <dt>-versions</dt>
+     *  <dd>Use all available timezone versions in given inclusive range,
+     *  compiled in one run with -threads versions at the same time
+     *  (example: -versions 2020a..2024b)</dd>
+     *  <dt>-all</dt>
+     *  <dd>Use all available timezone versions, compiled in one run with
+     *  -threads versions at the same time</dd>
      * </dl>
      *
      * @param   args    command line parameters
-     * @throws  IllegalArgumentException if the working directory is wrong
+     * @throws  IllegalArgumentException if the working directory or an option value is wrong
      * @throws  IOException in case of any I/O-failure
 	 */
 	/*[deutsch]
@@ -303,15 +416,47 @@ public class TimezoneRepositoryCompiler {
      *  <dd>Unpack timezone archive to subdirectory</dd>
      *  <dt>-compile</dt>
      *  <dd>Compile timezone data (archives or subdirectories)</dd>
+     *  <dt>-verify</dt>
+     *  <dd>Read the compiled repository again and compare it with the
+     *  timezone data, zone by zone with -threads threads (the option -lmt
+     *  must be the same as during compilation)</dd>
      *  <dt>-version</dt>
      *  <dd>Use only given timezone version instead of newest available version
      *  (example: -version 2011n)</dd>
      *  <dt>-lmt</dt>
      *  <dd>Include LMT zone entries during compilation</dd>
+     *  <dt>-threads</dt>
+     *  <dd>Compile the zones in parallel using given count of threads
+     *  (example: -threads 8)</dd>
+     *  <dt>-incremental</dt>
+     *  <dd>Only recompile zones whose source lines have changed since the
+     *  last compilation</dd>
+     *  <dt>-format</dt>
+     *  <dd>Write the repository in given format, either &quot;standard&quot;,
+     *  &quot;compact&quot;, &quot;indexed&quot; or &quot;pooled&quot;
+     *  (example: -format compact)</dd>
+     *  <dt>-tarcache</dt>
+     *  <dd>Decompress archives only once into an indexed tar file in the
+     *  subdirectory &quot;tarcache&quot; and read the entries from there</dd>
+     *  <dt>-modelcache</dt>
+     *  <dd>Store the parsed tables of every archive in the subdirectory
+     *  &quot;modelcache&quot; and reuse them as long as the archive content
+     *  is unchanged</dd>
+     *  <dt>-metrics</dt>
+     *  <dd>Measure wall time, CPU time and allocated bytes per phase and zone
+     *  and write them in given format next to the repository, currently only
+     *  &quot;json&quot; (example: -metrics json)</dd>
+     *  <dt>-versions</dt>
+     *  <dd>Use all available timezone versions in given inclusive range,
+     *  compiled in one run with -threads versions at the same time
+     *  (example: -versions 2020a..2024b)</dd>
+     *  <dt>-all</dt>
+     *  <dd>Use all available timezone versions, compiled in one run with
+     *  -threads versions at the same time</dd>
      * </dl>
      *
      * @param   args    Kommandozeilenparameter
-     * @throws  IllegalArgumentException bei falschem Arbeitsverzeichnis
+     * @throws  IllegalArgumentException bei falschem Arbeitsverzeichnis oder Optionswert
      * @throws  IOException bei Zugriffsfehlern
 	 */
 	public static void main(String[] args) throws IOException {
@@ -330,7 +475,16 @@ public class TimezoneRepositoryCompiler {
         boolean helpMode = false;
         boolean unpackMode = false;
         boolean compileMode = false;
+        boolean verifyMode = false;
         boolean lmt = false;
+        String threads = null;
+        boolean incremental = false;
+        String formatName = null;
+        boolean tarCache = false;
+        boolean modelCache = false;
+        boolean metrics = false;
+        String range = null;
+        boolean allVersions = false;
 
         for (int i = 0; i < args.length; i++) {
             String arg = args[i];
@@ -343,10 +497,26 @@ public class TimezoneRepositoryCompiler {
                 unpackMode = true;
             } else if (arg.equals("-compile")) {
                 compileMode = true;
+            } else if (arg.equals("-verify")) {
+                verifyMode = true;
             } else if (arg.equals("-verbose")) {
                 verbose = true;
             } else if (arg.equals("-lmt")) {
                 lmt = true;
+            } else if (arg.equals("-incremental")) {
+                incremental = true;
+            } else if (arg.equals("-tarcache")) {
+                tarCache = true;
+            } else if (arg.equals("-modelcache")) {
+                modelCache = true;
+            } else if (arg.equals("-all")) {
+                allVersions = true;
+            } else if (
+                arg.equals("-versions")
+                && (range == null)
+                && (++i < args.length)
+            ) {
+                range = args[i];
             } else if (
                 arg.equals("-version")
                 && (version == null)
@@ -359,6 +529,27 @@ public class TimezoneRepositoryCompiler {
                 && (++i < args.length)
             ) {
                 workdir = new File(args[i]);
+            } else if (
+                arg.equals("-threads")
+                && (threads == null)
+                && (++i < args.length)
+            ) {
+                threads = args[i];
+            } else if (
+                arg.equals("-format")
+                && (formatName == null)
+                && (++i < args.length)
+            ) {
+                formatName = args[i];
+            } else if (
+                arg.equals("-metrics")
+                && (++i < args.length)
+            ) {
+                if (!args[i].equals("json")) {
+                    throw new IllegalArgumentException(
+                        "Unsupported metrics format: " + args[i]);
+                }
+                metrics = true;
             } else {
                 System.out.println("Unrecognized option: " + arg);
             }
@@ -374,10 +565,40 @@ public class TimezoneRepositoryCompiler {
         }
 
         TimezoneRepositoryCompiler tc =
-            new TimezoneRepositoryCompiler(workdir, verbose, lmt);
+            new TimezoneRepositoryCompiler(
+                workdir,
+                verbose,
+                lmt,
+                ((threads == null) ? 1 : getParallelism(threads)),
+                incremental,
+                ((formatName == null) ? RepositoryFormat.STANDARD : getFormat(formatName)),
+                tarCache,
+                modelCache,
+                metrics,
+                MetricsRecorder.DISABLED);
+
+        List<String> batch = null;
+
+        if (allVersions) {
+            batch = tc.getAvailableVersions();
+        } else if (range != null) {
+            batch = selectVersions(tc.getAvailableVersions(), range);
+        }
+
+        if (
+            (batch != null)
+            && batch.isEmpty()
+        ) {
+            throw new FileNotFoundException(
+                "No timezone data found in: " + workdir);
+        }
 
         if (unpackMode) {
-            if (version == null) {
+            if (batch != null) {
+                for (String v : batch) {
+                    tc.unpack(v);
+                }
+            } else if (version == null) {
                 tc.unpack();
             } else {
                 tc.unpack(version);
@@ -385,13 +606,27 @@ public class TimezoneRepositoryCompiler {
         }
 
         if (compileMode) {
-            if (version == null) {
+            if (batch != null) {
+                tc.compileAll(batch);
+            } else if (version == null) {
                 tc.compile();
             } else {
                 tc.compile(version);
             }
         }
 
+        if (verifyMode) {
+            if (batch != null) {
+                for (String v : batch) {
+                    tc.verify(v);
+                }
+            } else if (version == null) {
+                tc.verify();
+            } else {
+                tc.verify(version);
+            }
+        }
+
 	}
 
     /**
@@ -411,38 +646,305 @@ public class TimezoneRepositoryCompiler {
     }
 
     /**
-     * <p>Unpacks a tar-gz-archive of the newest version into a subdirectory
+     * <p>Yields a copy of this compiler which calculates the transition
+     * histories of different zones in parallel. </p>
+     *
+     * <p>The zones are still written in the order of their identifiers
+     * so the compiled repository does not depend on the parallelism.
+     * Default is {@code 1} which means sequential compilation. </p>
+     *
+     * @param   parallelism     count of threads used for compiling zones
+     * @return  changed copy of this compiler
+     * @throws  IllegalArgumentException if the parallelism is not positive
+     * @since   3.1
+     */
+    /*[deutsch]
+     * <p>Liefert eine Kopie dieses Compilers, die die &Uuml;bergangshistorien
+     * verschiedener Zeitzonen parallel berechnet. </p>
+     *
+     * <p>Die Zeitzonen werden weiterhin in der Reihenfolge ihrer Kennungen
+     * geschrieben, so da&szlig; das kompilierte Ergebnis nicht von der
+     * Parallelit&auml;t abh&auml;ngt. Standard ist {@code 1}, also eine
+     * sequentielle Kompilierung. </p>
+     *
+     * @param   parallelism     Anzahl der Threads zum Kompilieren von Zeitzonen
+     * @return  ge&auml;nderte Kopie dieses Compilers
+     * @throws  IllegalArgumentException wenn die Parallelit&auml;t nicht
+     *          positiv ist
+     * @since   3.1
+     */
+    public TimezoneRepositoryCompiler withParallelism(int parallelism) {
+
+        return new TimezoneRepositoryCompiler(
+            this.workdir,
+            this.verbose,
+            this.lmt,
+            parallelism,
+            this.incremental,
+            this.format,
+            this.tarCache,
+            this.modelCache,
+            this.metrics,
+            MetricsRecorder.DISABLED);
+
+    }
+
+    /**
+     * <p>Yields a copy of this compiler which only recompiles zones whose
+     * source lines have changed since the last compilation. </p>
+     *
+     * <p>A checksum file stored next to the repository records a hash of
+     * every zone, covering its zone lines and all referenced rule lines.
+     * If the repository of the same version or else of the newest older
+     * version has such a checksum file then the serialized data of all
+     * unchanged zones will be copied forward instead of being compiled
+     * again. </p>
+     *
+     * @param   incremental     shall unchanged zones be copied forward?
+     * @return  changed copy of this compiler
+     * @since   3.1
+     */
+    /*[deutsch]
+     * <p>Liefert eine Kopie dieses Compilers, die nur die Zeitzonen neu
+     * kompiliert, deren Quellzeilen sich seit der letzten Kompilierung
+     * ge&auml;ndert haben. </p>
+     *
+     * <p>Eine neben dem Repositorium gespeicherte Pr&uuml;fsummendatei
+     * enth&auml;lt einen Hash-Wert f&uuml;r jede Zeitzone, der ihre
+     * Zonenzeilen und alle referenzierten Regelzeilen umfa&szlig;t. Hat das
+     * Repositorium der gleichen Version oder sonst der neuesten &auml;lteren
+     * Version eine solche Pr&uuml;fsummendatei, werden die serialisierten
+     * Daten aller unver&auml;nderten Zeitzonen einfach &uuml;bernommen,
+     * statt sie erneut zu kompilieren. </p>
+     *
+     * @param   incremental     sollen unver&auml;nderte Zeitzonen
+     *                          &uuml;bernommen werden?
+     * @return  ge&auml;nderte Kopie dieses Compilers
+     * @since   3.1
+     */
+    public TimezoneRepositoryCompiler withIncrementalMode(boolean incremental) {
+
+        return new TimezoneRepositoryCompiler(
+            this.workdir,
+            this.verbose,
+            this.lmt,
+            this.parallelism,
+            incremental,
+            this.format,
+            this.tarCache,
+            this.modelCache,
+            this.metrics,
+            MetricsRecorder.DISABLED);
+
+    }
+
+    /**
+     * <p>Yields a copy of this compiler which writes the repository in
+     * given format. </p>
+     *
+     * <p>Default is {@link RepositoryFormat#STANDARD}. Other formats can
+     * only be read by a loader which knows their format code. </p>
+     *
+     * @param   format      binary layout of the repository
+     * @return  changed copy of this compiler
+     * @since   3.1
+     */
+    /*[deutsch]
+     * <p>Liefert eine Kopie dieses Compilers, die das Repositorium im
+     * angegebenen Format schreibt. </p>
+     *
+     * <p>Standard ist {@link RepositoryFormat#STANDARD}. Andere Formate
+     * k&ouml;nnen nur von einem Ladeprogramm gelesen werden, das ihren
+     * Formatcode kennt. </p>
+     *
+     * @param   format      bin&auml;res Layout des Repositoriums
+     * @return  ge&auml;nderte Kopie dieses Compilers
+     * @since   3.1
+     */
+    public TimezoneRepositoryCompiler withFormat(RepositoryFormat format) {
+
+        return new TimezoneRepositoryCompiler(
+            this.workdir,
+            this.verbose,
+            this.lmt,
+            this.parallelism,
+            this.incremental,
+            format,
+            this.tarCache,
+            this.modelCache,
+            this.metrics,
+            MetricsRecorder.DISABLED);
+
+    }
+
+    /**
+     * <p>Yields a copy of this compiler which decompresses archives only
+     * once into a cache. </p>
+     *
+     * <p>The decompressed tar file is stored in the subdirectory
+     * &quot;tarcache&quot; of the working directory together with an index
+     * of the names, positions and sizes of its entries. Later compilations
+     * of the same archive skip decompression and map only the needed
+     * entries into memory. The cache is renewed if length or modification
+     * time of the archive have changed. Plain tar files are always read this way. </p>
+     *
+     * @param   tarCache    shall archives be decompressed into a cache?
+     * @return  changed copy of this compiler
+     * @since   3.1
+     */
+    /*[deutsch]
+     * <p>Liefert eine Kopie dieses Compilers, die komprimierte Archive nur
+     * einmal in einen Zwischenspeicher entpackt. </p>
+     *
+     * <p>Die entpackte tar-Datei wird im Unterverzeichnis
+     * &quot;tarcache&quot; des Arbeitsverzeichnisses zusammen mit einem
+     * Verzeichnis der Namen, Positionen und Gr&ouml;&szlig;en ihrer
+     * Eintr&auml;ge gespeichert. Bei sp&auml;teren Kompilierungen desselben
+     * Archivs entf&auml;llt das Dekomprimieren, und nur die ben&ouml;tigten
+     * Eintr&auml;ge werden in den Speicher abgebildet. Haben sich L&auml;nge
+     * oder &Auml;nderungszeit des Archivs ge&auml;ndert, wird der
+     * Zwischenspeicher erneuert. Unkomprimierte tar-Dateien werden immer so
+     * gelesen. </p>
+     *
+     * @param   tarCache    sollen Archive entpackt zwischengespeichert werden?
+     * @return  ge&auml;nderte Kopie dieses Compilers
+     * @since   3.1
+     */
+    public TimezoneRepositoryCompiler withTarCache(boolean tarCache) {
+
+        return new TimezoneRepositoryCompiler(
+            this.workdir,
+            this.verbose,
+            this.lmt,
+            this.parallelism,
+            this.incremental,
+            this.format,
+            tarCache,
+            this.modelCache,
+            this.metrics,
+            MetricsRecorder.DISABLED);
+
+    }
+
+    /**
+     * <p>Yields a copy of this compiler which stores the parsed tables of
+     * every archive in a cache. </p>
+     *
+     * <p>The cache resides in the subdirectory &quot;modelcache&quot; of
+     * the working directory and is keyed by the SHA-256 hash of the archive
+     * bytes. A later compilation of an archive with the same content reads
+     * the zones, rules, links and leap seconds from a compact binary file
+     * instead of decompressing and parsing the source files. Directories
+     * with source files are not cached. </p>
+     *
+     * @param   modelCache  shall parsed archives be cached?
+     * @return  changed copy of this compiler
+     * @since   3.1
+     */
+    /*[deutsch]
+     * <p>Liefert eine Kopie dieses Compilers, die die geparsten Tabellen
+     * jedes Archivs zwischenspeichert. </p>
+     *
+     * <p>Der Zwischenspeicher liegt im Unterverzeichnis
+     * &quot;modelcache&quot; des Arbeitsverzeichnisses und wird &uuml;ber
+     * den SHA-256-Hash der Archivbytes adressiert. Eine sp&auml;tere
+     * Kompilierung eines Archivs mit gleichem Inhalt liest Zeitzonen,
+     * Regeln, Verweise und Schaltsekunden aus einer kompakten
+     * Bin&auml;rdatei, statt die Quelldateien zu entpacken und zu parsen.
+     * Verzeichnisse mit Quelldateien werden nicht zwischengespeichert. </p>
+     *
+     * @param   modelCache  sollen geparste Archive zwischengespeichert werden?
+     * @return  ge&auml;nderte Kopie dieses Compilers
+     * @since   3.1
+     */
+    public TimezoneRepositoryCompiler withModelCache(boolean modelCache) {
+
+        return new TimezoneRepositoryCompiler(
+            this.workdir,
+            this.verbose,
+            this.lmt,
+            this.parallelism,
+            this.incremental,
+            this.format,
+            this.tarCache,
+            modelCache,
+            this.metrics,
+            MetricsRecorder.DISABLED);
+
+    }
+
+    /**
+     * <p>Yields a copy of this compiler which measures the cost of every
+     * compilation. </p>
+     *
+     * <p>Wall time, CPU time and allocated bytes are recorded per phase
+     * and per zone. Compiling into the working directory writes them as
+     * JSON file &quot;tzdata.metrics.json&quot; next to the repository,
+     * in-memory compilation offers them via
+     * {@link CompiledRepository#getMetrics()}. </p>
+     *
+     * @param   metrics     shall the compiler cost be measured?
+     * @return  changed copy of this compiler
+     * @since   3.1
+     * @see     CompilerMetrics
+     */
+    /*[deutsch]
+     * <p>Liefert eine Kopie dieses Compilers, die den Aufwand jeder
+     * Kompilierung mi&szlig;t. </p>
+     *
+     * <p>Echtzeit, CPU-Zeit und allokierte Bytes werden je Phase und je
+     * Zeitzone erfa&szlig;t. Beim Kompilieren in das Arbeitsverzeichnis
+     * werden sie als JSON-Datei &quot;tzdata.metrics.json&quot; neben das
+     * Repositorium geschrieben, beim Kompilieren im Speicher &uuml;ber
+     * {@link CompiledRepository#getMetrics()} angeboten. </p>
+     *
+     * @param   metrics     soll der Aufwand des Compilers gemessen werden?
+     * @return  ge&auml;nderte Kopie dieses Compilers
+     * @since   3.1
+     * @see     CompilerMetrics
+     */
+    public TimezoneRepositoryCompiler withMetrics(boolean metrics) {
+
+        return new TimezoneRepositoryCompiler(
+            this.workdir,
+            this.verbose,
+            this.lmt,
+            this.parallelism,
+            this.incremental,
+            this.format,
+            this.tarCache,
+            this.modelCache,
+            metrics,
+            MetricsRecorder.DISABLED);
+
+    }
+
+    /**
+     * <p>Unpacks an archive of the newest version into a subdirectory
      * (floating-mode). </p>
      *
      * @throws  IOException in case of I/O-errors
      */
     /*[deutsch]
-     * <p>Packt ein tar-gz-Archiv der neuesten Version als Unterverzeichnis
+     * <p>Packt ein Archiv der neuesten Version als Unterverzeichnis
      * aus (floating-mode). </p>
      *
      * @throws  IOException bei Zugriffsfehlern
      */
     public void unpack() throws IOException {
 
-        String version = this.getNewestArchiveVersion(new VersionComparator());
-
-        if (version == null) {
-            throw new FileNotFoundException(
-                "Archive not found in: " + this.workdir);
-        } else {
-            this.unpack(version);
-        }
+        this.unpack(this.getNewestVersion(false));
 
     }
 
     /**
-     * <p>Unpacks a tar-gz-archive of given version into a subdirectory. </p>
+     * <p>Unpacks an archive of given version into a subdirectory. </p>
      *
      * @param   version     timezone version (for example &quot;2015a&quot;)
      * @throws  IOException in case of I/O-errors
      */
     /*[deutsch]
-     * <p>Packt ein tar-gz-Archiv der angegebenen Version als Unterverzeichnis
+     * <p>Packt ein Archiv der angegebenen Version als Unterverzeichnis
      * aus. </p>
      *
      * @param   version     TZ-Version (zum Beispiel &quot;2015a&quot;)
@@ -450,11 +952,11 @@ public class TimezoneRepositoryCompiler {
      */
     public void unpack(String version) throws IOException {
 
-        File archiveFile =
-            new File(this.workdir, TZDATA + version + TAR_GZ_EXTENSION);
+        File archiveFile = this.findArchive(version);
 
-        if (!archiveFile.exists()) {
-            throw new FileNotFoundException(archiveFile.toString());
+        if (archiveFile == null) {
+            throw new FileNotFoundException(
+                "Archive of version " + version + " not found in: " + this.workdir);
         }
 
         File subdir = new File(this.workdir, TZDATA + version);
@@ -517,39 +1019,7 @@ public class TimezoneRepositoryCompiler {
      */
     public void compile() throws IOException {
 
-        Comparator<String> comp = new VersionComparator();
-        String aversion = this.getNewestArchiveVersion(comp);
-        String dversion = this.getNewestDirectoryVersion(comp);
-
-        String version;
-        boolean directory;
-
-        if (aversion == null) {
-            if (dversion == null) {
-                throw new FileNotFoundException(
-                    "Time zone data not found in: " + this.workdir);
-            } else {
-                version = dversion;
-                directory = true;
-            }
-        } else if (dversion == null) {
-            version = aversion;
-            directory = false;
-        } else if (comp.compare(aversion, dversion) <= 0) {
-            version = dversion;
-            directory = true;
-        } else {
-            version = aversion;
-            directory = false;
-        }
-
-        String name = TZDATA + version;
-
-        if (!directory) {
-            name += TAR_GZ_EXTENSION;
-        }
-
-        this.compile(new File(this.workdir, name), version);
+        this.compile(this.getNewestVersion(true));
 
     }
 
@@ -569,346 +1039,1917 @@ public class TimezoneRepositoryCompiler {
      */
     public void compile(String version) throws IOException {
 
-        File file = new File(this.workdir, TZDATA + version);
+        this.startRun().compile(this.findSource(version), version);
 
-        if (
-            !file.exists()
-            || !file.isDirectory()
-        ) {
-            file = new File(this.workdir, TZDATA + version + TAR_GZ_EXTENSION);
+    }
 
-            if (!file.exists()) {
-                throw new FileNotFoundException(file.toString());
-            }
-        }
+    /**
+     * <p>Verifies the compiled repository of the newest version against
+     * the timezone data. </p>
+     *
+     * @throws  IOException in case of I/O-errors or if the verification
+     *          fails
+     * @see     #verify(String)
+     * @since   3.1
+     */
+    /*[deutsch]
+     * <p>Pr&uuml;ft das kompilierte Repository der neuesten Version gegen
+     * die Zeitzonendaten. </p>
+     *
+     * @throws  IOException bei Zugriffsfehlern oder wenn die Pr&uuml;fung
+     *          scheitert
+     * @see     #verify(String)
+     * @since   3.1
+     */
+    public void verify() throws IOException {
 
-        this.compile(file, version);
+        this.verify(this.getNewestVersion(true));
 
     }
 
-    private void compile(
-        File file,
-        String version
-    ) throws IOException {
-
-        if (this.verbose) {
-            System.out.println(
-                "Start compiling of version " + version + " ...");
-        }
+    /**
+     * <p>Verifies the compiled repository of given version against the
+     * timezone data. </p>
+     *
+     * <p>The repository file is read again, and the transitions of every
+     * zone are compared with the transitions compiled from the timezone
+     * data in memory, using the parallelism of this compiler. Aliases,
+     * leap seconds and the version are compared, too. The settings of
+     * this compiler, especially the inclusion of LMT entries, must be the
+     * same as during the compilation. </p>
+     *
+     * @param   version     timezone version to be verified
+     * @throws  IOException in case of I/O-errors or if the verification
+     *          fails
+     * @see     RepositoryReader
+     * @since   3.1
+     */
+    /*[deutsch]
+     * <p>Pr&uuml;ft das kompilierte Repository der angegebenen Version
+     * gegen die Zeitzonendaten. </p>
+     *
+     * <p>Die Repository-Datei wird neu eingelesen, und die &Uuml;berg&auml;nge
+     * jeder Zeitzone werden mit den im Speicher aus den Zeitzonendaten
+     * kompilierten &Uuml;berg&auml;ngen verglichen, und zwar mit der
+     * Parallelit&auml;t dieses Compilers. Aliasnamen, Schaltsekunden und die
+     * Version werden ebenfalls verglichen. Die Einstellungen dieses Compilers,
+     * besonders die Einbeziehung von LMT-Eintr&auml;gen, m&uuml;ssen dieselben
+     * wie bei der Kompilierung sein. </p>
+     *
+     * @param   version     zu pr&uuml;fende Version
+     * @throws  IOException bei Zugriffsfehlern oder wenn die Pr&uuml;fung
+     *          scheitert
+     * @see     RepositoryReader
+     * @since   3.1
+     */
+    public void verify(String version) throws IOException {
 
-        Map<String, String> contents;
+        File repository = new File(new File(this.workdir, TZDATA + version), REPOSITORY_FILE);
 
-        if (file.isDirectory()) {
-            contents = loadDirectory(file);
-        } else {
-            contents = loadArchive(file);
+        if (!repository.isFile()) {
+            throw new FileNotFoundException(
+                "Compiled repository of version " + version + " not found: " + repository);
         }
 
-        Map<String, List<ZoneLine>> zones = new TreeMap<>();
-        Map<String, List<RuleLine>> rules = new HashMap<>();
-        List<LinkLine> links = new ArrayList<>();
-        List<LeapLine> leaps = new ArrayList<>();
-        PlainDate expires = PlainDate.axis().getMinimum();
-        boolean expireMode = false;
-
-        for (Map.Entry<String, String> e : contents.entrySet()) {
-
-            String key = e.getKey();
+        final RepositoryReader reader = RepositoryReader.read(repository);
+        final Tables tables = this.parse(this.findSource(version));
+        List<String> problems = new ArrayList<>();
 
-            if (!FILES_ACCEPTED_BY_COMPILER.contains(key)) {
-                continue;
-            } else if (this.verbose && !key.endsWith(".tab")) {
-                System.out.println(
-                    "Parsing content of \""
-                    + key
-                    + "\" in process...");
-            }
-
-            if (key.equals("leap-seconds.list")) {
-                expireMode = true;
-            }
-
-            BufferedReader br = // Zeilenumbrüche herausfiltern
-                new BufferedReader(new StringReader(e.getValue()));
-            String zoneID = null;
-            String line;
-
-            while ((line = br.readLine()) != null) {
-                line = line.trim();
-                int n = line.length();
-                StringBuilder sb = new StringBuilder(n);
-                boolean quotation = false;
+        if (!reader.getVersion().equals(version)) {
+            problems.add("version " + reader.getVersion());
+        }
 
-                // Kommentare ausschneiden
-                for (int i = 0; i < n; i++) {
-                    char c = line.charAt(i);
+        if (!reader.getZoneIDs().equals(tables.zones.keySet())) {
+            problems.add("zone identifiers");
+        }
 
-                    if (c == '\"') {
-                        quotation = !quotation;
-                    } else if (quotation) {
-                        // ignore char
-                    } else if (c == '#') {
-                        if (
-                            expireMode
-                            && (i + 1 < n)
-                            && (line.charAt(i + 1) == '@')
-                        ) {
-                            long ntp = Long.parseLong(line.substring(2).trim());
-                            expires =
-                                PlainTimestamp.of(1900, 1, 1, 0, 0)
-                                .plus(ntp, ClockUnit.SECONDS)
-                                .getCalendarDate();
-                            expireMode = false;
-                        }
-                        break;
-                    } else if (Character.isWhitespace(c)) {
-                        if (
-                            (sb.length() == 0)
-                            || (sb.charAt(sb.length() - 1) != '\t')
-                        ) {
-                            sb.append('\t');
-                        }
-                    } else {
-                        sb.append(c);
+        Map<String, Boolean> matches =
+            this.compileZones(
+                tables,
+                Collections.<String, Boolean>emptyMap(),
+                new ZoneTask<Boolean>() {
+                    @Override
+                    public Boolean apply(String zoneID) throws IOException {
+                        return Boolean.valueOf(
+                            compileZone(tables, zoneID).equals(reader.getHistory(zoneID)));
                     }
                 }
+            );
 
-                line = sb.toString().trim();
-
-                if (!line.isEmpty()) {
-                    String[] fields = line.split("\t");
-
-                    if (fields[0].equals("Rule")) {
-                        if (!fields[4].equals("-")) { // TYPE-Feld
-                            if (this.verbose) {
-                                System.out.println(
-                                    "Ignoring line with filled type info: "
-                                    + key
-                                    + " => "
-                                    + line
-                                );
-                            }
-                        } else {
-                            String ruleName = fields[1];
-                            List<RuleLine> ruleLines = rules.get(ruleName);
-
-                            if (ruleLines == null) {
-                                ruleLines = new ArrayList<>();
-                                rules.put(ruleName, ruleLines);
-                            }
-
-                            ruleLines.add(new RuleLine(fields));
-                            Collections.sort(ruleLines, RC);
-                        }
-                    } else if (fields[0].equals("Zone")) {
-                        zoneID = fields[1];
-                        List<ZoneLine> zoneLines = new ArrayList<>();
-                        ZoneLine zl = new ZoneLine(zoneID, fields);
-                        zoneLines.add(zl);
-                        zones.put(zoneID, zoneLines);
-                        if (zl.indicator == null) {
-                            zoneID = null; // last zone line
-                        }
-                    } else if (zoneID != null) { // continuation zone line
-                        ZoneLine zl = new ZoneLine(zoneID, fields);
-                        zones.get(zoneID).add(zl);
-                        if (zl.indicator == null) {
-                            zoneID = null; // last zone line
-                        }
-                    } else if (fields[0].equals("Link")) {
-                        links.add(new LinkLine(fields));
-                    } else if (fields[0].equals("Leap")) {
-                        leaps.add(new LeapLine(fields));
-                    }
-                }
+        for (Map.Entry<String, Boolean> e : matches.entrySet()) {
+            if (!e.getValue().booleanValue()) {
+                problems.add(e.getKey());
             }
         }
 
-        File subdir = new File(this.workdir, TZDATA + version);
+        if (!reader.getAliases().equals(getAliases(tables.zones.keySet(), tables.links))) {
+            problems.add("aliases");
+        }
 
-        if (
-            !subdir.exists()
-            && !subdir.mkdir()
-        ) {
-            throw new IOException(
-                "Cannot create subdirectory for compiled version: " + subdir);
+        if (!reader.getLeapSeconds().equals(getLeapSeconds(tables.leaps))) {
+            problems.add("leap seconds");
         }
 
-        DataOutputStream dos =
-            new DataOutputStream(
-                new FileOutputStream(
-                    new File(subdir, TZDATA + ".repository")));
-        try {
-            dos.writeByte('t');
-            dos.writeByte('z');
-            dos.writeByte('r');
-            dos.writeByte('e');
-            dos.writeByte('p');
-            dos.writeByte('o');
-            dos.writeUTF(version);
-            this.compile(dos, zones, rules);
-            this.compileLinks(dos, zones.keySet(), links);
-            this.compileLeapSeconds(dos, leaps, expires);
-        } finally {
-            try {
-                dos.close();
-            } catch (IOException ex) {
-                // ignored
-            }
+        if (!reader.getLeapSecondExpiration().equals(tables.expires)) {
+            problems.add("leap second expiration");
+        }
+
+        if (!problems.isEmpty()) {
+            throw new IOException(
+                "Verification of version " + version + " failed: " + problems);
         }
 
         if (this.verbose) {
-            int rcount = 0;
-            for (List<?> list : rules.values()) {
-                rcount += list.size();
-            }
-            int zcount = 0;
-            for (List<?> list : zones.values()) {
-                zcount += list.size();
-            }
-            System.out.println("Size of tz-repository: " + zones.size());
-            System.out.println("Count of parsed zone lines = " + zcount);
-            System.out.println("Count of parsed rule lines = " + rcount);
-            System.out.println("Count of parsed link lines = " + links.size());
-            System.out.println("Count of parsed leap lines = " + leaps.size());
+            System.out.println(
+                "Count of verified zones = " + matches.size()
+                + " (format: " + reader.getFormat() + ")");
         }
 
-        System.out.println("Version \"" + version + "\" compiled.");
+        System.out.println("Version \"" + version + "\" verified.");
 
     }
 
-    private void compile(
-        DataOutputStream dos,
-        Map<String, List<ZoneLine>> zoneMap,
-        Map<String, List<RuleLine>> ruleMap
-    ) throws IOException {
+    /**
+     * <p>Compiles the timezone data of all given versions in one run. </p>
+     *
+     * <p>Up to {@link #withParallelism(int) parallelism} versions are
+     * compiled concurrently while the zones of every single version are
+     * compiled sequentially. Versions with byte-identical archives or
+     * identical accepted source files in their directories are parsed only
+     * once and share the parsed tables.
+     * In incremental mode other versions of the same batch are never used
+     * as baseline because they might just be rewritten. The compilation
+     * continues if a version fails and reports all failures at the
+     * end. </p>
+     *
+     * @param   versions    timezone versions to be compiled
+     * @throws  IOException if any version cannot be found or compiled
+     * @since   3.1
+     * @see     #getAvailableVersions()
+     */
+    /*[deutsch]
+     * <p>Kompiliert die Zeitzonendaten aller angegebenen Versionen in einem
+     * Lauf. </p>
+     *
+     * <p>Bis zu {@link #withParallelism(int) Parallelit&auml;t} Versionen
+     * werden gleichzeitig kompiliert, w&auml;hrend die Zeitzonen jeder
+     * einzelnen Version sequentiell kompiliert werden. Versionen mit
+     * bytegleichen Archiven oder gleichen akzeptierten Quelldateien in
+     * ihren Verzeichnissen werden nur einmal geparst und teilen sich die geparsten Tabellen. Im inkrementellen
+     * Modus werden andere Versionen desselben Laufs nie als Basis
+     * verwendet, weil sie gerade neu geschrieben werden k&ouml;nnten. Die
+     * Kompilierung wird fortgesetzt, wenn eine Version scheitert, und meldet
+     * am Ende alle Fehler. </p>
+     *
+     * @param   versions    zu kompilierende Versionen
+     * @throws  IOException wenn eine Version nicht gefunden oder kompiliert
+     *          werden kann
+     * @since   3.1
+     * @see     #getAvailableVersions()
+     */
+    public void compileAll(Collection<String> versions) throws IOException {
+
+        final Map<String, File> sources = new LinkedHashMap<>();
+
+        for (String version : versions) {
+            sources.put(version, this.findSource(version));
+        }
 
-        dos.writeInt(zoneMap.size());
-
-        for (Map.Entry<String, List<ZoneLine>> zoneEntry : zoneMap.entrySet()) {
-            String zoneID = zoneEntry.getKey();
-            List<ZonalTransition> transitions = new ArrayList<>();
-            List<DaylightSavingRule> rules = new ArrayList<>();
-            ZoneLine previous = null;
-            int initialOffset = 0;
-            int dstOffset = 0;
-            boolean hasLMT = true;
-            int lmtCount = 0;
-
-            for (ZoneLine current : zoneEntry.getValue()) {
-                if (previous == null) { // first line
-                    if (current.fixedSaving != null) {
-                        dstOffset = current.fixedSaving.intValue();
-                    } else if (current.ruleName != null) {
-                        List<RuleLine> rlines = ruleMap.get(current.ruleName);
-                        RuleLine first = null;
-                        for (RuleLine rline : rlines) {
-                            if ((first == null) || (rline.from < first.from)) {
-                                first = rline;
+        final Set<String> batch = Collections.unmodifiableSet(sources.keySet());
+        final TimezoneRepositoryCompiler sequential = this.withParallelism(1);
+        ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+        List<String> failed = new ArrayList<>();
+
+        try {
+            Map<String, Future<String>> hashes = new LinkedHashMap<>();
+
+            for (final Map.Entry<String, File> e : sources.entrySet()) {
+                hashes.put(
+                    e.getKey(),
+                    pool.submit(
+                        new Callable<String>() {
+                            @Override
+                            public String call() throws IOException {
+                                return getContentHash(e.getValue());
                             }
                         }
-                        dstOffset =
-                            addTransitions(
-                                transitions,
-                                rules,
-                                current,
-                                dstOffset,
-                                rlines,
-                                first.from,
-                                Long.MIN_VALUE);
-                    }
-                    initialOffset = current.rawOffset + dstOffset;
-                } else {
-                    int oldDst = dstOffset;
-                    int shift = getShift(previous, oldDst);
-                    long startTime = previous.until - shift;
-                    int startYear = getStartYear(startTime);
-
-                    if (current.fixedSaving != null) {
-                        dstOffset = current.fixedSaving.intValue();
-                    } else if (current.ruleName != null) {
-                        dstOffset =
-                            getRuleOffset(
-                                ruleMap.get(current.ruleName),
-                                previous.rawOffset,
-                                oldDst,
-                                startYear,
-                                startTime);
-                    }
+                    )
+                );
+            }
 
-                    if (
-                        (previous.rawOffset != current.rawOffset)
-                        || (dstOffset != oldDst)
-                    ) {
-                        addTransition(
-                            transitions,
-                            new ZonalTransition(
-                                startTime,
-                                previous.rawOffset + oldDst,
-                                current.rawOffset + dstOffset,
-                                dstOffset));
-                    }
+            Map<String, List<String>> groups = new LinkedHashMap<>();
 
-                    if (current.ruleName != null) {
-                        dstOffset =
-                            addTransitions(
-                                transitions,
-                                rules,
-                                current,
-                                dstOffset,
-                                ruleMap.get(current.ruleName),
-                                startYear,
-                                startTime);
-                    }
+            for (Map.Entry<String, Future<String>> e : hashes.entrySet()) {
+                String hash;
+
+                try {
+                    hash = getResult(e.getValue());
+                } catch (IOException | RuntimeException ex) {
+                    reportFailure(Collections.singletonList(e.getKey()), ex, failed);
+                    continue;
                 }
 
-                previous = current;
-                hasLMT = hasLMT && current.format.equals("LMT");
-                if (hasLMT) {
-                    lmtCount++;
+                List<String> group = groups.get(hash);
+
+                if (group == null) {
+                    group = new ArrayList<>();
+                    groups.put(hash, group);
                 }
+
+                group.add(e.getKey());
             }
 
-            if (!this.lmt) {
-                while ((lmtCount > 0) && !transitions.isEmpty()) {
-                    ZonalTransition lmtTransition = transitions.remove(0);
-                    initialOffset = lmtTransition.getTotalOffset();
-                    lmtCount--;
-                }
+            Map<List<String>, Future<Void>> futures = new LinkedHashMap<>();
+
+            for (final List<String> group : groups.values()) {
+                futures.put(
+                    group,
+                    pool.submit(
+                        new Callable<Void>() {
+                            @Override
+                            public Void call() throws IOException {
+                                sequential.compileGroup(group, sources, batch);
+                                return null;
+                            }
+                        }
+                    )
+                );
             }
 
-            try {
-                TransitionHistory history =
-                    TransitionModel.of(
-                        ZonalOffset.ofTotalSeconds(initialOffset),
-                        transitions,
-                        rules);
-                dos.writeUTF(zoneID);
-                ByteArrayOutputStream bos = new ByteArrayOutputStream(8192 * 10);
-                ObjectOutputStream oos = new ObjectOutputStream(bos);
-                oos.writeObject(history);
-                byte[] data = bos.toByteArray();
-                oos.close();
-                dos.writeInt(data.length);
-                dos.write(data);
-            } catch (IllegalArgumentException iae) {
-                throw new IllegalArgumentException(
-                    "Inconsistent data found for: " + zoneID,
-                    iae);
+            for (Map.Entry<List<String>, Future<Void>> e : futures.entrySet()) {
+                try {
+                    getResult(e.getValue());
+                } catch (IOException | RuntimeException ex) {
+                    reportFailure(e.getKey(), ex, failed);
+                }
             }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (!failed.isEmpty()) {
+            throw new IOException("Compilation failed for versions: " + failed);
         }
 
     }
 
-    private void compileLinks(
-        DataOutputStream dos,
-        Set<String> zones,
-        List<LinkLine> links
+    /**
+     * <p>Yields all versions which are available as archive or as
+     * subdirectory with source files in the working directory. </p>
+     *
+     * @return  list of versions in ascending order
+     * @since   3.1
+     */
+    /*[deutsch]
+     * <p>Liefert alle Versionen, die im Arbeitsverzeichnis als Archiv oder
+     * als Unterverzeichnis mit Quelldateien vorhanden sind. </p>
+     *
+     * @return  Liste der Versionen in aufsteigender Reihenfolge
+     * @since   3.1
+     */
+    public List<String> getAvailableVersions() {
+
+        Set<String> versions =
+            new TreeSet<>(Collections.reverseOrder(new VersionComparator()));
+
+        for (File file : this.workdir.listFiles()) {
+            String name = file.getName();
+
+            if (file.isFile()) {
+                String version = getArchiveVersion(name);
+                if (version != null) {
+                    versions.add(version);
+                }
+            } else if (
+                name.startsWith(TZDATA)
+                && (name.length() == 11)
+                && hasSources(file)
+            ) {
+                versions.add(name.substring(6));
+            }
+        }
+
+        return new ArrayList<>(versions);
+
+    }
+
+    // directories with source files are preferred compared with archives
+    private File findSource(String version) throws FileNotFoundException {
+
+        File file = new File(this.workdir, TZDATA + version);
+
+        if (
+            !file.exists()
+            || !file.isDirectory()
+            || !hasSources(file)
+        ) {
+            file = this.findArchive(version);
+
+            if (file == null) {
+                throw new FileNotFoundException(
+                    "Time zone data of version " + version
+                    + " not found in: " + this.workdir);
+            }
+        }
+
+        return file;
+
+    }
+
+    // versions with equal contents parse once, then compile one after another
+    private void compileGroup(
+        List<String> group,
+        Map<String, File> sources,
+        Set<String> batch
+    ) throws IOException {
+
+        Tables tables = null;
+
+        for (String version : group) {
+            TimezoneRepositoryCompiler run = this.startRun();
+
+            if (tables == null) {
+                if (this.verbose) {
+                    System.out.println(
+                        "Start compiling of version " + version + " ...");
+                }
+                tables = run.parse(sources.get(version));
+            } else if (this.verbose) {
+                System.out.println(
+                    "Start compiling of version "
+                    + version
+                    + " with the parsed tables of version "
+                    + group.get(0)
+                    + " ...");
+            }
+
+            run.writeRepository(version, tables, batch);
+        }
+
+    }
+
+    private static void reportFailure(
+        List<String> versions,
+        Exception ex,
+        List<String> failed
+    ) {
+
+        System.err.println(
+            "Compilation of version " + versions + " failed: " + ex);
+        failed.addAll(versions);
+
+    }
+
+    // archives are hashed as raw bytes without inflating them, directories
+    // by names and bytes of all accepted source files in sorted order
+    private static String getContentHash(File source) throws IOException {
+
+        if (!source.isDirectory()) {
+            return getArchiveHash(source);
+        }
+
+        MessageDigest md = getMessageDigest();
+        Map<String, File> files = new TreeMap<>();
+
+        for (File file : source.listFiles()) {
+            if (file.isFile() && isAccepted(file.getName())) {
+                files.put(file.getName(), file);
+            }
+        }
+
+        for (Map.Entry<String, File> e : files.entrySet()) {
+            md.update(e.getKey().getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+            update(md, e.getValue());
+            md.update((byte) 0);
+        }
+
+        return Base64.getEncoder().encodeToString(md.digest());
+
+    }
+
+    /**
+     * <p>Compiles given source files in memory without touching the working
+     * directory. </p>
+     *
+     * <p>The keys are the file names without directory part like
+     * &quot;europe&quot; or &quot;leapseconds&quot;. Files not relevant
+     * for this compiler are ignored. </p>
+     *
+     * @param   sources     contents of source files mapped by their names
+     * @return  compiled model
+     * @throws  IllegalArgumentException if the data are inconsistent
+     * @throws  IOException in case of I/O-errors
+     * @since   3.1
+     */
+    /*[deutsch]
+     * <p>Kompiliert die angegebenen Quelldateien im Speicher, ohne das
+     * Arbeitsverzeichnis zu ber&uuml;hren. </p>
+     *
+     * <p>Die Schl&uuml;ssel sind die Dateinamen ohne Verzeichnisteil wie
+     * &quot;europe&quot; oder &quot;leapseconds&quot;. F&uuml;r diesen
+     * Compiler nicht relevante Dateien werden ignoriert. </p>
+     *
+     * @param   sources     Inhalte der Quelldateien zugeordnet nach Namen
+     * @return  kompiliertes Modell
+     * @throws  IllegalArgumentException wenn die Daten inkonsistent sind
+     * @throws  IOException bei Zugriffsfehlern
+     * @since   3.1
+     */
+    public CompiledRepository compile(Map<String, ? extends CharSequence> sources)
+        throws IOException {
+
+        TimezoneRepositoryCompiler run = this.startRun();
+        return run.createRepository(run.parse(sources));
+
+    }
+
+    /**
+     * <p>Compiles the source files of given tar-gz-archive in memory
+     * without touching the working directory. </p>
+     *
+     * @param   archive     stream of tar-gz-archive (will be closed)
+     * @return  compiled model
+     * @throws  IllegalArgumentException if the data are inconsistent
+     * @throws  IOException in case of I/O-errors
+     * @since   3.1
+     */
+    /*[deutsch]
+     * <p>Kompiliert die Quelldateien des angegebenen tar-gz-Archivs im
+     * Speicher, ohne das Arbeitsverzeichnis zu ber&uuml;hren. </p>
+     *
+     * @param   archive     Datenstrom des tar-gz-Archivs (wird geschlossen)
+     * @return  kompiliertes Modell
+     * @throws  IllegalArgumentException wenn die Daten inkonsistent sind
+     * @throws  IOException bei Zugriffsfehlern
+     * @since   3.1
+     */
+    public CompiledRepository compile(InputStream archive) throws IOException {
+
+        TimezoneRepositoryCompiler run = this.startRun();
+        return run.createRepository(
+            run.parseArchive(archive, Decompressors.find(TAR_GZ_EXTENSION)));
+
+    }
+
+    /**
+     * <p>Compiles the source files of given archive or directory in memory
+     * without writing any repository file. </p>
+     *
+     * <p>The archive format is determined by the file name extension, see
+     * {@link ArchiveDecompressor}. Files with an unknown extension are
+     * read as tar-gz-archives. Archives are always streamed, so neither
+     * the tar cache nor the model cache nor a tar index is used or
+     * written. </p>
+     *
+     * @param   source      path of archive or directory
+     * @return  compiled model
+     * @throws  IllegalArgumentException if the data are inconsistent
+     * @throws  IOException in case of I/O-errors
+     * @since   3.1
+     */
+    /*[deutsch]
+     * <p>Kompiliert die Quelldateien des angegebenen Archivs oder
+     * Verzeichnisses im Speicher, ohne eine Repository-Datei zu
+     * schreiben. </p>
+     *
+     * <p>Das Archivformat wird anhand der Dateiendung bestimmt, siehe
+     * {@link ArchiveDecompressor}. Dateien mit unbekannter Endung werden als
+     * tar-gz-Archive gelesen. Archive werden immer als Datenstrom gelesen,
+     * so da&szlig; weder tar- noch Modell-Zwischenspeicher oder ein
+     * tar-Index benutzt oder geschrieben werden. </p>
+     *
+     * @param   source      Pfad des Archivs oder Verzeichnisses
+     * @return  kompiliertes Modell
+     * @throws  IllegalArgumentException wenn die Daten inkonsistent sind
+     * @throws  IOException bei Zugriffsfehlern
+     * @since   3.1
+     */
+    public CompiledRepository compile(Path source) throws IOException {
+
+        File file = source.toFile();
+        TimezoneRepositoryCompiler run = this.startRun();
+
+        if (file.isDirectory()) {
+            return run.createRepository(run.parseDirectory(file));
+        }
+
+        // streamed even with tar or model cache so that no file is written
+        ArchiveDecompressor decompressor = Decompressors.find(file.getName());
+
+        if (decompressor == null) {
+            decompressor = Decompressors.find(TAR_GZ_EXTENSION);
+        }
+
+        return run.createRepository(run.parseArchive(new FileInputStream(file), decompressor));
+
+    }
+
+    private void compile(
+        File file,
+        String version
+    ) throws IOException {
+
+        if (this.verbose) {
+            System.out.println(
+                "Start compiling of version " + version + " ...");
+        }
+
+        this.writeRepository(version, this.parse(file), Collections.<String>emptySet());
+
+    }
+
+    // batch: versions whose output must not serve as incremental baseline
+    private void writeRepository(
+        String version,
+        Tables tables,
+        Set<String> batch
+    ) throws IOException {
+
+        File subdir = new File(this.workdir, TZDATA + version);
+
+        if (
+            !subdir.exists()
+            && !subdir.mkdir()
+        ) {
+            throw new IOException(
+                "Cannot create subdirectory for compiled version: " + subdir);
+        }
+
+        Map<String, byte[]> digests = null;
+        Map<String, byte[]> reusable = Collections.emptyMap();
+
+        if (this.incremental) {
+            digests = this.getDigests(tables);
+            reusable = this.getReusableZones(version, digests, batch);
+        }
+
+        DataOutputStream dos =
+            new DataOutputStream(
+                new FileOutputStream(
+                    new File(subdir, REPOSITORY_FILE)));
+        try {
+            this.write(dos, version, tables, reusable);
+        } finally {
+            try {
+                dos.close();
+            } catch (IOException ex) {
+                // ignored
+            }
+        }
+
+        if (digests != null) {
+            writeDigests(new File(subdir, CHECKSUM_FILE), digests);
+        }
+
+        if (this.recorder.isEnabled()) {
+            File metricsFile = new File(subdir, METRICS_FILE);
+            writeMetrics(metricsFile, this.recorder.getMetrics());
+            if (this.verbose) {
+                System.out.println("Metrics written to: " + metricsFile);
+            }
+        }
+
+        if (this.verbose) {
+            int rcount = 0;
+            for (List<?> list : tables.rules.values()) {
+                rcount += list.size();
+            }
+            int zcount = 0;
+            for (List<?> list : tables.zones.values()) {
+                zcount += list.size();
+            }
+            System.out.println("Size of tz-repository: " + tables.zones.size());
+            System.out.println("Count of parsed zone lines = " + zcount);
+            System.out.println("Count of parsed rule lines = " + rcount);
+            System.out.println("Count of parsed link lines = " + tables.links.size());
+            System.out.println("Count of parsed leap lines = " + tables.leaps.size());
+            if (this.recorder.isEnabled()) {
+                CompilerMetrics metrics = this.recorder.getMetrics();
+                System.out.println(
+                    "Rule run cache: "
+                    + metrics.getRuleCacheHits() + " hits, "
+                    + metrics.getRuleCacheMisses() + " misses");
+            }
+        }
+
+        System.out.println("Version \"" + version + "\" compiled.");
+
+    }
+
+    /**
+     * <p>Parses all files accepted by this compiler into rule, zone, link
+     * and leap tables. </p>
+     *
+     * <p>With a parallelism greater than one every file is parsed into its
+     * own tables on a worker thread. The partial tables are always merged
+     * in the order of the file names. </p>
+     *
+     * @param   contents    file contents mapped by their names
+     * @return  parsed tables
+     * @throws  IllegalArgumentException if a zone or rule set is defined
+     *          more than once
+     * @throws  IOException in case of I/O-errors
+     */
+    Tables parse(Map<String, ? extends CharSequence> contents)
+        throws IOException {
+
+        ParseStage stage = new ParseStage();
+
+        try {
+            for (Map.Entry<String, ? extends CharSequence> e : contents.entrySet()) {
+                final String key = e.getKey();
+
+                if (!isAccepted(key)) {
+                    continue;
+                }
+
+                final String text = e.getValue().toString();
+
+                stage.submit(
+                    key,
+                    new SourceTask() {
+                        @Override
+                        public void apply(Tables part) throws IOException {
+                            if (verbose && !key.endsWith(".tab")) {
+                                System.out.println(
+                                    "Parsing content of \""
+                                    + key
+                                    + "\" in process...");
+                            }
+                            parse(key, new StringReader(text), part);
+                        }
+                    }
+                );
+            }
+
+            return stage.merge();
+        } finally {
+            stage.close();
+        }
+
+    }
+
+    /**
+     * <p>Parses all files accepted by this compiler which are found in given
+     * directory or archive. </p>
+     *
+     * <p>The source files are streamed line by line. Archive entries which
+     * are not accepted by this compiler will be skipped without reading
+     * their contents. Tar files are read via an index of their entries,
+     * compressed archives only if the tar cache is enabled. Like in
+     * {@link #parse(Map)} the files can be parsed in parallel. </p>
+     *
+     * @param   file        directory or archive file
+     * @return  parsed tables
+     * @throws  IllegalArgumentException if a zone or rule set is defined
+     *          more than once
+     * @throws  IOException in case of I/O-errors
+     */
+    Tables parse(File file) throws IOException {
+
+        if (file.isDirectory()) {
+            return this.parseDirectory(file);
+        } else if (this.modelCache) {
+            return this.parseCached(file);
+        } else {
+            return this.parseArchive(file);
+        }
+
+    }
+
+    // tables of an archive with known hash come from the model cache
+    private Tables parseCached(File archive) throws IOException {
+
+        File cache = new File(this.workdir, MODEL_CACHE_DIRECTORY);
+        File model = new File(cache, getArchiveHash(archive) + MODEL_EXTENSION);
+
+        if (model.isFile()) {
+            long[] probe = this.recorder.start();
+
+            try {
+                Tables tables = readModel(model);
+                if (this.verbose) {
+                    System.out.println(
+                        "Parsed tables of " + archive + " read from " + model);
+                }
+                return tables;
+            } catch (IOException ioe) {
+                System.err.println(
+                    "Ignoring unreadable model cache: " + model + " (" + ioe + ")");
+            } finally {
+                this.recorder.stop(MetricsRecorder.LOAD, probe);
+            }
+        }
+
+        Tables tables = this.parseArchive(archive);
+
+        if (
+            !cache.exists()
+            && !cache.mkdir()
+        ) {
+            throw new IOException("Cannot create model cache: " + cache);
+        }
+
+        // a concurrent run might write the same model so use a unique name
+        File tmp = File.createTempFile(model.getName(), ".tmp", cache);
+
+        try {
+            writeModel(tmp, tables);
+            Files.move(tmp.toPath(), model.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+
+        return tables;
+
+    }
+
+    // hex encoded SHA-256 of the raw archive bytes
+    private static String getArchiveHash(File archive) throws IOException {
+
+        MessageDigest md = getMessageDigest();
+        update(md, archive);
+        StringBuilder sb = new StringBuilder(64);
+
+        for (byte b : md.digest()) {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+            sb.append(Character.forDigit(b & 0xF, 16));
+        }
+
+        return sb.toString();
+
+    }
+
+    // feeds the raw bytes of given file into the digest
+    private static void update(
+        MessageDigest md,
+        File file
+    ) throws IOException {
+
+        InputStream inStream = new FileInputStream(file);
+
+        try {
+            byte[] buffer = new byte[8192];
+            int n;
+
+            while ((n = inStream.read(buffer)) != -1) {
+                md.update(buffer, 0, n);
+            }
+        } finally {
+            try {
+                inStream.close();
+            } catch (IOException ex) {
+                // ignored
+            }
+        }
+
+    }
+
+    private Tables parseArchive(File archive) throws IOException {
+
+        String name = archive.getName();
+        ArchiveDecompressor decompressor = Decompressors.find(name);
+
+        if (name.endsWith(TAR_EXTENSION)) {
+            return this.parseTar(TarIndex.of(archive));
+        } else if (decompressor == null) {
+            return new Tables();
+        } else if (this.tarCache) {
+            return this.parseTar(TarIndex.of(this.inflate(archive, decompressor)));
+        } else {
+            return this.parseArchive(new FileInputStream(archive), decompressor);
+        }
+
+    }
+
+    private Tables parseTar(final TarIndex index) throws IOException {
+
+        ParseStage stage = new ParseStage();
+
+        try {
+            for (final String entryName : index.getNames()) {
+                final String name = getFileName(entryName);
+
+                if (!isAccepted(name)) {
+                    continue;
+                }
+
+                stage.submit(
+                    name,
+                    new SourceTask() {
+                        @Override
+                        public void apply(Tables part) throws IOException {
+                            if (verbose) {
+                                System.out.println(
+                                    "Parsing content of \""
+                                    + name
+                                    + "\" in process...");
+                            }
+                            long[] probe = recorder.start();
+                            CharBuffer chars =
+                                StandardCharsets.UTF_8.decode(index.map(entryName));
+                            recorder.stop(MetricsRecorder.LOAD, probe);
+                            Reader reader =
+                                new CharArrayReader(
+                                    chars.array(),
+                                    chars.arrayOffset() + chars.position(),
+                                    chars.remaining());
+                            parse(name, reader, part);
+                        }
+                    }
+                );
+            }
+
+            return stage.merge();
+        } finally {
+            stage.close();
+        }
+
+    }
+
+    // decompresses given archive into the tar cache unless already done
+    private File inflate(
+        File archive,
+        ArchiveDecompressor decompressor
+    ) throws IOException {
+
+        File cache = new File(this.workdir, TAR_CACHE_DIRECTORY);
+        String name = archive.getName();
+        String base = name.substring(0, name.length() - decompressor.getExtension().length());
+        File tar = new File(cache, base + TAR_EXTENSION);
+        File source = new File(cache, tar.getName() + SOURCE_EXTENSION);
+
+        if (
+            tar.isFile()
+            && source.isFile()
+            && isSource(source, archive)
+        ) {
+            return tar;
+        } else if (
+            !cache.exists()
+            && !cache.mkdir()
+        ) {
+            throw new IOException("Cannot create tar cache: " + cache);
+        }
+
+        if (this.verbose) {
+            System.out.println("Decompressing " + archive + " to " + tar);
+        }
+
+        // a concurrent run might inflate the same archive so use unique names
+        File tmp = File.createTempFile(tar.getName(), ".tmp", cache);
+
+        try {
+            InputStream inStream = open(archive, decompressor);
+
+            try {
+                Files.copy(inStream, tmp.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                try {
+                    inStream.close();
+                } catch (IOException ioe) {
+                    System.err.println(ioe.getMessage());
+                }
+            }
+
+            Files.move(tmp.toPath(), tar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            tmp = File.createTempFile(source.getName(), ".tmp", cache);
+            writeSource(tmp, archive);
+            Files.move(tmp.toPath(), source.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp.toPath());
+        }
+
+        return tar;
+
+    }
+
+    // false if the inflated tar file does not belong to the current state of the archive
+    private static boolean isSource(
+        File source,
+        File archive
+    ) throws IOException {
+
+        DataInputStream dis = new DataInputStream(new FileInputStream(source));
+
+        try {
+            return (
+                (dis.readLong() == archive.length())
+                && (dis.readLong() == archive.lastModified())
+            );
+        } catch (EOFException eof) {
+            return false; // incomplete stamp
+        } finally {
+            try {
+                dis.close();
+            } catch (IOException ex) {
+                // ignored
+            }
+        }
+
+    }
+
+    // records length and modification time of the archive behind an inflated tar file
+    private static void writeSource(
+        File source,
+        File archive
+    ) throws IOException {
+
+        DataOutputStream dos = new DataOutputStream(new FileOutputStream(source));
+
+        try {
+            dos.writeLong(archive.length());
+            dos.writeLong(archive.lastModified());
+        } finally {
+            try {
+                dos.close();
+            } catch (IOException ex) {
+                // ignored
+            }
+        }
+
+    }
+
+    // closes the stream, entries are only buffered if parsed in parallel
+    private Tables parseArchive(
+        InputStream archive,
+        ArchiveDecompressor decompressor
+    ) throws IOException {
+
+        ParseStage stage = new ParseStage();
+        TarInputStream inStream = null;
+
+        try {
+            inStream = new TarInputStream(decompressor.decompress(archive));
+            final TarInputStream tarStream = inStream;
+            TarEntry entry;
+
+            while ((entry = inStream.getNextEntry()) != null) {
+                final String name = getFileName(entry.getName());
+
+                if (!entry.isNormalFile() || !isAccepted(name)) {
+                    continue;
+                } else if (!stage.isParallel()) {
+                    stage.submit(
+                        name,
+                        new SourceTask() {
+                            @Override
+                            public void apply(Tables part) throws IOException {
+                                parse(name, tarStream, part);
+                            }
+                        }
+                    );
+                    continue;
+                }
+
+                long[] probe = this.recorder.start();
+                ByteArrayOutputStream bos =
+                    new ByteArrayOutputStream((int) entry.getSize());
+                inStream.transferTo(bos);
+                final byte[] data = bos.toByteArray();
+                this.recorder.stop(MetricsRecorder.LOAD, probe);
+
+                stage.submit(
+                    name,
+                    new SourceTask() {
+                        @Override
+                        public void apply(Tables part) throws IOException {
+                            parse(name, new ByteArrayInputStream(data), part);
+                        }
+                    }
+                );
+            }
+
+            return stage.merge();
+        } finally {
+            stage.close();
+            try {
+                if (inStream == null) {
+                    archive.close();
+                } else {
+                    inStream.close();
+                }
+            } catch (IOException ioe) {
+                System.err.println(ioe.getMessage());
+            }
+        }
+
+    }
+
+    private Tables parseDirectory(File directory) throws IOException {
+
+        ParseStage stage = new ParseStage();
+
+        try {
+            for (final File file : directory.listFiles()) {
+                final String name = file.getName();
+
+                if (!file.isFile() || !isAccepted(name)) {
+                    continue;
+                }
+
+                stage.submit(
+                    name,
+                    new SourceTask() {
+                        @Override
+                        public void apply(Tables part) throws IOException {
+                            InputStream inStream =
+                                new BufferedInputStream(new FileInputStream(file));
+
+                            try {
+                                parse(name, inStream, part);
+                            } finally {
+                                try {
+                                    inStream.close();
+                                } catch (IOException ioe) {
+                                    System.err.println(ioe.getMessage());
+                                }
+                            }
+                        }
+                    }
+                );
+            }
+
+            return stage.merge();
+        } finally {
+            stage.close();
+        }
+
+    }
+
+    // does not close the stream because it might be an archive stream
+    private void parse(
+        String key,
+        InputStream inStream,
+        Tables tables
+    ) throws IOException {
+
+        if (this.verbose) {
+            System.out.println(
+                "Parsing content of \""
+                + key
+                + "\" in process...");
+        }
+
+        this.parse(key, new InputStreamReader(inStream, "UTF-8"), tables);
+
+    }
+
+    private void parse(
+        String key,
+        Reader reader,
+        Tables tables
+    ) throws IOException {
+
+        // reading and tokenizing are measured within the streaming pass
+        long[] probe = this.recorder.start();
+        long tokenizing = this.parseLines(key, reader, tables, (probe != null));
+        this.recorder.stop(MetricsRecorder.PARSE, probe, MetricsRecorder.TOKENIZE, tokenizing);
+
+    }
+
+    // yields the wall time spent in the tokenizer if measured
+    private long parseLines(
+        String key,
+        Reader reader,
+        Tables tables,
+        boolean measured
+    ) throws IOException {
+
+        boolean expireMode = key.equals("leap-seconds.list");
+        String zoneID = null;
+        LineTokenizer tokenizer = new LineTokenizer(reader);
+        long tokenizing = 0;
+
+        while (true) {
+            long start = (measured ? System.nanoTime() : 0);
+            boolean hasNext = tokenizer.next();
+
+            if (measured) {
+                tokenizing += System.nanoTime() - start;
+            }
+
+            if (!hasNext) {
+                break;
+            }
+
+            if (expireMode) {
+                String trimmed = tokenizer.getLine().trim();
+
+                if (trimmed.startsWith("#@")) {
+                    long ntp = Long.parseLong(trimmed.substring(2).trim());
+                    tables.expires =
+                        PlainTimestamp.of(1900, 1, 1, 0, 0)
+                        .plus(ntp, ClockUnit.SECONDS)
+                        .getCalendarDate();
+                    expireMode = false;
+                    continue;
+                }
+            }
+
+            if (tokenizer.getFieldCount() == 0) {
+                continue;
+            }
+
+            if (tokenizer.isField(0, "Rule")) {
+                if (!tokenizer.isField(4, "-")) { // TYPE-Feld
+                    if (this.verbose) {
+                        System.out.println(
+                            "Ignoring line with filled type info: "
+                            + key
+                            + " => "
+                            + tokenizer
+                        );
+                    }
+                } else {
+                    int nameID = tokenizer.getSymbol(1, tables.symbols);
+                    String ruleName = tables.symbols.get(nameID);
+                    List<RuleLine> ruleLines = tables.rules.get(ruleName);
+
+                    if (ruleLines == null) {
+                        ruleLines = new ArrayList<>();
+                        tables.rules.put(ruleName, ruleLines);
+                    }
+
+                    ruleLines.add(RuleLine.parse(nameID, tokenizer)); // sorted later
+                }
+            } else if (tokenizer.isField(0, "Zone")) {
+                zoneID = tables.symbols.get(tokenizer.getSymbol(1, tables.symbols));
+                List<ZoneLine> zoneLines = new ArrayList<>();
+                ZoneLine zl = new ZoneLine(zoneID, tokenizer, tables.symbols);
+                zoneLines.add(zl);
+                if (tables.zones.put(zoneID, zoneLines) != null) {
+                    throw new IllegalArgumentException(
+                        "Duplicate zone definition: " + zoneID + " in " + key);
+                }
+                if (zl.indicator == null) {
+                    zoneID = null; // last zone line
+                }
+            } else if (zoneID != null) { // continuation zone line
+                ZoneLine zl = new ZoneLine(zoneID, tokenizer, tables.symbols);
+                tables.zones.get(zoneID).add(zl);
+                if (zl.indicator == null) {
+                    zoneID = null; // last zone line
+                }
+            } else if (tokenizer.isField(0, "Link")) {
+                tables.links.add(new LinkLine(tokenizer, tables.symbols));
+            } else if (tokenizer.isField(0, "Leap")) {
+                tables.leaps.add(new LeapLine(tokenizer));
+            }
+        }
+
+        return tokenizing;
+
+    }
+
+    /**
+     * <p>Determines if given file name denotes a source file which is
+     * relevant for this compiler. </p>
+     *
+     * @param   name    file name without directory part
+     * @return  {@code true} if the file shall be parsed else {@code false}
+     */
+    static boolean isAccepted(String name) {
+
+        return FILES_ACCEPTED_BY_COMPILER.contains(name);
+
+    }
+
+    /**
+     * <p>Writes the complete repository of given version. </p>
+     *
+     * @param   dos         target stream
+     * @param   version     timezone version
+     * @param   tables      parsed tables
+     * @throws  IOException in case of I/O-errors
+     */
+    void write(
+        DataOutputStream dos,
+        String version,
+        Tables tables
+    ) throws IOException {
+
+        this.write(dos, version, tables, Collections.<String, byte[]>emptyMap());
+
+    }
+
+    private void write(
+        DataOutputStream dos,
+        String version,
+        Tables tables,
+        Map<String, byte[]> reusable
+    ) throws IOException {
+
+        dos.writeByte('t');
+        dos.writeByte('z');
+        dos.writeByte('r');
+        dos.writeByte('e');
+        dos.writeByte('p');
+        dos.writeByte('o');
+        if (this.format != RepositoryFormat.STANDARD) {
+            dos.writeByte(this.format.getCode());
+        }
+        dos.writeUTF(version);
+        this.compile(dos, tables, reusable);
+
+        long[] probe = this.recorder.start();
+        this.compileLinks(dos, tables.zones.keySet(), tables.links);
+        this.recorder.stop(MetricsRecorder.LINKS, probe);
+
+        probe = this.recorder.start();
+        this.compileLeapSeconds(dos, tables.leaps, tables.expires);
+        this.recorder.stop(MetricsRecorder.LEAPS, probe);
+
+    }
+
+    private void compile(
+        DataOutputStream dos,
+        final Tables tables,
+        Map<String, byte[]> reusable
+    ) throws IOException {
+
+        Map<String, byte[]> zones =
+            this.compileZones(
+                tables,
+                reusable,
+                new ZoneTask<byte[]>() {
+                    @Override
+                    public byte[] apply(String zoneID) throws IOException {
+                        return encode(tables, zoneID);
+                    }
+                }
+            );
+
+        if (this.format == RepositoryFormat.INDEXED) {
+            IndexedFormat.writeZones(dos, zones);
+        } else if (this.format == RepositoryFormat.POOLED) {
+            PooledFormat.writeZones(dos, zones);
+        } else {
+            dos.writeInt(zones.size());
+            for (Map.Entry<String, byte[]> e : zones.entrySet()) {
+                dos.writeUTF(e.getKey());
+                dos.writeInt(e.getValue().length);
+                dos.write(e.getValue());
+            }
+        }
+
+    }
+
+    // results in order of zone identifiers, independent of completion
+    private <T> Map<String, T> compileZones(
+        Tables tables,
+        Map<String, T> reusable,
+        final ZoneTask<T> task
+    ) throws IOException {
+
+        ForkJoinPool pool = (
+            (this.parallelism > 1)
+            ? new ForkJoinPool(this.parallelism)
+            : null);
+
+        try {
+            Map<String, Future<T>> futures = new LinkedHashMap<>();
+
+            for (final String zoneID : tables.zones.keySet()) {
+                T result = reusable.get(zoneID);
+                if ((result == null) && (pool == null)) {
+                    result = task.apply(zoneID);
+                }
+                if (result != null) {
+                    futures.put(zoneID, CompletableFuture.completedFuture(result));
+                    continue;
+                }
+                futures.put(
+                    zoneID,
+                    pool.submit(
+                        new Callable<T>() {
+                            @Override
+                            public T call() throws IOException {
+                                return task.apply(zoneID);
+                            }
+                        }
+                    )
+                );
+            }
+
+            Map<String, T> results = new LinkedHashMap<>();
+
+            for (Map.Entry<String, Future<T>> e : futures.entrySet()) {
+                results.put(e.getKey(), getResult(e.getValue()));
+            }
+
+            return results;
+        } finally {
+            if (pool != null) {
+                pool.shutdownNow();
+            }
+        }
+
+    }
+
+    private CompiledRepository createRepository(final Tables tables)
+        throws IOException {
+
+        Map<String, TransitionHistory> histories =
+            this.compileZones(
+                tables,
+                Collections.<String, TransitionHistory>emptyMap(),
+                new ZoneTask<TransitionHistory>() {
+                    @Override
+                    public TransitionHistory apply(String zoneID) {
+                        return compileZone(tables, zoneID);
+                    }
+                }
+            );
+
+        long[] probe = this.recorder.start();
+        Map<String, String> aliases =
+            new TreeMap<>(getAliases(tables.zones.keySet(), tables.links));
+        this.recorder.stop(MetricsRecorder.LINKS, probe);
+
+        probe = this.recorder.start();
+        Map<PlainDate, Integer> leapSeconds = getLeapSeconds(tables.leaps);
+        this.recorder.stop(MetricsRecorder.LEAPS, probe);
+
+        return new CompiledRepository(
+            histories,
+            aliases,
+            leapSeconds,
+            tables.expires,
+            this.recorder.isEnabled() ? this.recorder.getMetrics() : null);
+
+    }
+
+    private static Map<PlainDate, Integer> getLeapSeconds(List<LeapLine> leaps) {
+
+        Map<PlainDate, Integer> leapSeconds = new LinkedHashMap<>();
+
+        for (LeapLine ll : leaps) {
+            leapSeconds.put(
+                PlainDate.of(ll.year, ll.month, ll.day),
+                Integer.valueOf(ll.shift));
+        }
+
+        return leapSeconds;
+
+    }
+
+    private byte[] encode(
+        Tables tables,
+        String zoneID
+    ) throws IOException {
+
+        long[] probe = this.recorder.start();
+        ZoneModel model = this.compileModel(tables, zoneID);
+        TransitionHistory history = model.toHistory(); // validation
+        this.recorder.stopZone(zoneID, probe);
+
+        probe = this.recorder.start();
+        byte[] data;
+
+        switch (this.format) {
+            case COMPACT:
+            case INDEXED:
+            case POOLED: // shared blocks are only formed when writing
+                data = CompactFormat.encode(model);
+                break;
+            default:
+                data = serialize(history);
+        }
+
+        this.recorder.stop(MetricsRecorder.SERIALIZATION, probe);
+        return data;
+
+    }
+
+    private Map<String, byte[]> getDigests(Tables tables) throws IOException {
+
+        Map<String, byte[]> digests = new TreeMap<>();
+
+        for (Map.Entry<String, List<ZoneLine>> e : tables.zones.entrySet()) {
+            ByteArrayOutputStream bos = new ByteArrayOutputStream(1024);
+            DataOutputStream dos = new DataOutputStream(bos);
+            Set<String> ruleNames = new LinkedHashSet<>();
+            dos.writeUTF(DIGEST_SALT);
+            dos.writeBoolean(this.lmt);
+            dos.writeByte(this.format.getCode());
+
+            for (ZoneLine zl : e.getValue()) {
+                zl.write(dos, tables.symbols);
+                if (zl.hasRules()) {
+                    ruleNames.add(tables.symbols.get(zl.ruleID));
+                }
+            }
+
+            for (String ruleName : ruleNames) {
+                List<RuleLine> ruleLines = tables.rules.get(ruleName);
+                dos.writeUTF(ruleName);
+                if (ruleLines == null) {
+                    dos.writeInt(-1);
+                } else {
+                    dos.writeInt(ruleLines.size());
+                    for (RuleLine rl : ruleLines) {
+                        rl.write(dos);
+                    }
+                }
+            }
+
+            dos.close();
+            digests.put(e.getKey(), getMessageDigest().digest(bos.toByteArray()));
+        }
+
+        return digests;
+
+    }
+
+    private Map<String, byte[]> getReusableZones(
+        String version,
+        Map<String, byte[]> digests,
+        Set<String> batch
+    ) throws IOException {
+
+        File baseline = this.getBaselineDirectory(version, batch);
+
+        if (baseline == null) {
+            if (this.verbose) {
+                System.out.println(
+                    "No previous repository found, compiling all zones.");
+            }
+            return Collections.emptyMap();
+        }
+
+        Map<String, byte[]> oldDigests =
+            readDigests(new File(baseline, CHECKSUM_FILE));
+        Map<String, byte[]> oldZones =
+            readZones(new File(baseline, REPOSITORY_FILE));
+        Map<String, byte[]> reusable = new HashMap<>();
+
+        for (Map.Entry<String, byte[]> e : digests.entrySet()) {
+            String zoneID = e.getKey();
+            byte[] data = oldZones.get(zoneID);
+
+            if (
+                (data != null)
+                && Arrays.equals(e.getValue(), oldDigests.get(zoneID))
+            ) {
+                reusable.put(zoneID, data);
+            }
+        }
+
+        if (this.verbose) {
+            System.out.println(
+                "Reusing "
+                + reusable.size()
+                + " of "
+                + digests.size()
+                + " zones from: "
+                + baseline);
+        }
+
+        return reusable;
+
+    }
+
+    // preferring the same version, else the newest older version
+    private File getBaselineDirectory(
+        String version,
+        Set<String> batch
+    ) {
+
+        File subdir = new File(this.workdir, TZDATA + version);
+
+        if (isBaseline(subdir)) {
+            return subdir;
+        }
+
+        Comparator<String> comp = new VersionComparator();
+        List<String> versions = new ArrayList<>();
+
+        for (File file : this.workdir.listFiles()) {
+            String name = file.getName();
+            if (
+                file.isDirectory()
+                && name.startsWith(TZDATA)
+                && (name.length() == 11)
+                && (comp.compare(name.substring(6), version) > 0)
+                && !batch.contains(name.substring(6))
+                && isBaseline(file)
+            ) {
+                versions.add(name.substring(6));
+            }
+        }
+
+        if (versions.isEmpty()) {
+            return null;
+        } else {
+            Collections.sort(versions, comp);
+            return new File(this.workdir, TZDATA + versions.get(0));
+        }
+
+    }
+
+    private static boolean isBaseline(File subdir) {
+
+        return (
+            new File(subdir, REPOSITORY_FILE).isFile()
+            && new File(subdir, CHECKSUM_FILE).isFile()
+        );
+
+    }
+
+    private static Map<String, byte[]> readZones(File repository)
+        throws IOException {
+
+        Map<String, byte[]> zones = new HashMap<>();
+        DataInputStream dis =
+            new DataInputStream(
+                new BufferedInputStream(
+                    new FileInputStream(repository)));
+
+        try {
+            byte[] magic = new byte[6];
+            dis.readFully(magic);
+
+            if (!new String(magic, "US-ASCII").equals("tzrepo")) {
+                throw new IOException("Not a repository: " + repository);
+            }
+
+            dis.mark(1);
+            int format = dis.readByte();
+            if (format == 0) { // standard format without format code
+                dis.reset();
+            }
+
+            dis.readUTF(); // version
+
+            if (format == RepositoryFormat.INDEXED.getCode()) {
+                zones.putAll(IndexedFormat.readZones(dis));
+            } else if (format == RepositoryFormat.POOLED.getCode()) {
+                zones.putAll(PooledFormat.readZones(dis));
+            } else {
+                int count = dis.readInt();
+
+                for (int i = 0; i < count; i++) {
+                    String zoneID = dis.readUTF();
+                    byte[] data = new byte[dis.readInt()];
+                    dis.readFully(data);
+                    zones.put(zoneID, data);
+                }
+            }
+        } finally {
+            try {
+                dis.close();
+            } catch (IOException ex) {
+                // ignored
+            }
+        }
+
+        return zones;
+
+    }
+
+    private static Map<String, byte[]> readDigests(File file)
+        throws IOException {
+
+        Map<String, byte[]> digests = new HashMap<>();
+        DataInputStream dis =
+            new DataInputStream(
+                new BufferedInputStream(
+                    new FileInputStream(file)));
+
+        try {
+            int count = dis.readInt();
+
+            for (int i = 0; i < count; i++) {
+                String zoneID = dis.readUTF();
+                byte[] digest = new byte[dis.readUnsignedByte()];
+                dis.readFully(digest);
+                digests.put(zoneID, digest);
+            }
+        } finally {
+            try {
+                dis.close();
+            } catch (IOException ex) {
+                // ignored
+            }
+        }
+
+        return digests;
+
+    }
+
+    private static Tables readModel(File file) throws IOException {
+
+        DataInputStream dis =
+            new DataInputStream(
+                new BufferedInputStream(
+                    new FileInputStream(file)));
+
+        try {
+            return Tables.read(dis);
+        } finally {
+            try {
+                dis.close();
+            } catch (IOException ex) {
+                // ignored
+            }
+        }
+
+    }
+
+    private static void writeModel(
+        File file,
+        Tables tables
+    ) throws IOException {
+
+        DataOutputStream dos =
+            new DataOutputStream(
+                new BufferedOutputStream(
+                    new FileOutputStream(file)));
+
+        try {
+            tables.write(dos);
+        } finally {
+            try {
+                dos.close();
+            } catch (IOException ex) {
+                // ignored
+            }
+        }
+
+    }
+
+    private static void writeDigests(
+        File file,
+        Map<String, byte[]> digests
+    ) throws IOException {
+
+        DataOutputStream dos =
+            new DataOutputStream(
+                new BufferedOutputStream(
+                    new FileOutputStream(file)));
+
+        try {
+            dos.writeInt(digests.size());
+
+            for (Map.Entry<String, byte[]> e : digests.entrySet()) {
+                dos.writeUTF(e.getKey());
+                dos.writeByte(e.getValue().length);
+                dos.write(e.getValue());
+            }
+        } finally {
+            try {
+                dos.close();
+            } catch (IOException ex) {
+                // ignored
+            }
+        }
+
+    }
+
+    private static void writeMetrics(
+        File file,
+        CompilerMetrics metrics
+    ) throws IOException {
+
+        Writer writer =
+            new BufferedWriter(
+                new OutputStreamWriter(
+                    new FileOutputStream(file), "UTF-8"));
+
+        try {
+            writer.write(metrics.toJson());
+        } finally {
+            try {
+                writer.close();
+            } catch (IOException ex) {
+                // ignored
+            }
+        }
+
+    }
+
+    // a copy with a fresh recorder so that every run has its own metrics
+    private TimezoneRepositoryCompiler startRun() {
+
+        if (!this.metrics) {
+            return this;
+        }
+
+        return new TimezoneRepositoryCompiler(
+            this.workdir,
+            this.verbose,
+            this.lmt,
+            this.parallelism,
+            this.incremental,
+            this.format,
+            this.tarCache,
+            this.modelCache,
+            true,
+            new MetricsRecorder());
+
+    }
+
+    private static MessageDigest getMessageDigest() {
+
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException(nsae); // guaranteed by JDK
+        }
+
+    }
+
+    private static <T> T getResult(Future<T> future) throws IOException {
+
+        try {
+            return future.get();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(ie.getMessage());
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new IllegalStateException(cause);
+            }
+        }
+
+    }
+
+    /**
+     * <p>Determines the transition history of given zone. </p>
+     *
+     * @param   tables      parsed tables
+     * @param   zoneID      timezone identifier
+     * @return  compiled transition history
+     * @throws  IllegalArgumentException if the zone data are inconsistent
+     */
+    TransitionHistory compileZone(
+        Tables tables,
+        String zoneID
+    ) {
+
+        long[] probe = this.recorder.start();
+        TransitionHistory history = this.compileModel(tables, zoneID).toHistory();
+        this.recorder.stopZone(zoneID, probe);
+        return history;
+
+    }
+
+    /**
+     * <p>Determines the transitions and rules of given zone without
+     * validating them. </p>
+     *
+     * @param   tables      parsed tables
+     * @param   zoneID      timezone identifier
+     * @return  compiled zone model
+     */
+    ZoneModel compileModel(
+        Tables tables,
+        String zoneID
+    ) {
+
+        TransitionBuffer transitions = TransitionBuffer.acquire();
+        List<RuleLine> rules = new ArrayList<>();
+        ZoneLine previous = null;
+        int initialOffset = 0;
+        int dstOffset = 0;
+        boolean hasLMT = true;
+        int lmtCount = 0;
+
+        for (ZoneLine current : tables.zones.get(zoneID)) {
+            if (previous == null) { // first line
+                if (!current.hasRules()) {
+                    dstOffset = current.fixedSaving;
+                } else {
+                    RuleSet ruleSet = tables.getRules(current.ruleID);
+                    dstOffset =
+                        addTransitions(
+                            transitions,
+                            rules,
+                            current,
+                            dstOffset,
+                            ruleSet,
+                            ruleSet.getFirstYear(),
+                            Long.MIN_VALUE,
+                            this.recorder);
+                }
+                initialOffset = current.rawOffset + dstOffset;
+            } else {
+                int oldDst = dstOffset;
+                int shift = getShift(previous, oldDst);
+                long startTime = previous.until - shift;
+                int startYear = getStartYear(startTime);
+
+                if (!current.hasRules()) {
+                    dstOffset = current.fixedSaving;
+                } else {
+                    dstOffset =
+                        getRuleOffset(
+                            tables.getRules(current.ruleID),
+                            previous.rawOffset,
+                            oldDst,
+                            startYear,
+                            startTime);
+                }
+
+                if (
+                    (previous.rawOffset != current.rawOffset)
+                    || (dstOffset != oldDst)
+                ) {
+                    transitions.add(
+                        startTime,
+                        previous.rawOffset + oldDst,
+                        current.rawOffset + dstOffset,
+                        dstOffset);
+                }
+
+                if (current.hasRules()) {
+                    dstOffset =
+                        addTransitions(
+                            transitions,
+                            rules,
+                            current,
+                            dstOffset,
+                            tables.getRules(current.ruleID),
+                            startYear,
+                            startTime,
+                            this.recorder);
+                }
+            }
+
+            previous = current;
+            hasLMT = hasLMT && (current.formatID == tables.lmtID);
+            if (hasLMT) {
+                lmtCount++;
+            }
+        }
+
+        int start = 0;
+
+        if (!this.lmt) {
+            while ((lmtCount > 0) && (start < transitions.size())) {
+                initialOffset = transitions.getTotalOffset(start);
+                start++;
+                lmtCount--;
+            }
+        }
+
+        return new ZoneModel(zoneID, initialOffset, transitions.toList(start), rules);
+
+    }
+
+    /**
+     * <p>Serializes given transition history as single zone entry of
+     * the repository. </p>
+     *
+     * @param   history     transition history to be serialized
+     * @return  serialized bytes
+     * @throws  IOException in case of I/O-errors
+     */
+    static byte[] serialize(TransitionHistory history) throws IOException {
+
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(8192 * 10);
+        ObjectOutputStream oos = new ObjectOutputStream(bos);
+        oos.writeObject(history);
+        byte[] data = bos.toByteArray();
+        oos.close();
+        return data;
+
+    }
+
+    private void compileLinks(
+        DataOutputStream dos,
+        Set<String> zones,
+        List<LinkLine> links
     ) throws IOException {
 
         List<String> sortedZones = new ArrayList<>(zones);
+        Map<String, String> normalized = getAliases(zones, links);
+        dos.writeShort(normalized.size());
+
+        for (Map.Entry<String, String> e : normalized.entrySet()) {
+            dos.writeUTF(e.getKey());
+            dos.writeShort(Collections.binarySearch(sortedZones, e.getValue()));
+        }
+
+    }
+
+    // maps every alias to the finally referenced zone
+    private static Map<String, String> getAliases(
+        Set<String> zones,
+        List<LinkLine> links
+    ) {
+
         Map<String, String> aliases = new HashMap<>();
-        Map<String, Integer> normalized = new HashMap<>();
+        Map<String, String> normalized = new HashMap<>();
 
         for (LinkLine link : links) {
             aliases.put(link.from, link.to);
@@ -922,22 +2963,15 @@ public class TimezoneRepositoryCompiler {
                 key = value;
             }
 
-            int index = Collections.binarySearch(sortedZones, key);
-
-            if (index < 0) {
+            if (!zones.contains(key)) {
                 throw new IllegalArgumentException(
                     "Link target not found: " + alias);
             }
 
-            normalized.put(alias, index);
+            normalized.put(alias, key);
         }
 
-        dos.writeShort(normalized.size());
-
-        for (String alias : normalized.keySet()) {
-            dos.writeUTF(alias);
-            dos.writeShort(normalized.get(alias).shortValue());
-        }
+        return normalized;
 
     }
 
@@ -963,58 +2997,52 @@ public class TimezoneRepositoryCompiler {
     }
 
     private static int getRuleOffset(
-        List<RuleLine> rules,
+        RuleSet rules,
         int rawOffset,
         int oldDst,
         int year,
         long startTime
     ) {
 
-        List<RuleLine> lines = new ArrayList<>(rules.size());
-
-        for (RuleLine rline : rules) {
-            if ((rline.from <= year) && (rline.to >= year)) {
-                lines.add(rline);
-            }
-        }
+        RuleLine[] lines = rules.getActive(year);
 
-        for (int i = lines.size() - 1; i >= 0; i--) {
-            RuleLine rline = lines.get(i);
+        for (int i = lines.length - 1; i >= 0; i--) {
+            RuleLine rline = lines[i];
             int prevSavings = (
                 (i > 0)
-                ? lines.get(i - 1).pattern.getSavings()
+                ? lines[i - 1].savings
                 : oldDst);
             int shift =
-                getShift(rline.pattern.getIndicator(), rawOffset, prevSavings);
+                getShift(rline.getIndicator(), rawOffset, prevSavings);
             if (startTime >= rline.getPosixTime(year, shift)) {
-                return rline.pattern.getSavings();
+                return rline.savings;
             }
         }
 
-        return (lines.isEmpty() ? 0 : oldDst);
+        return ((lines.length == 0) ? 0 : oldDst);
 
     }
 
     private static int addTransitions(
-        List<ZonalTransition> transitions,
-        List<DaylightSavingRule> rules,
+        TransitionBuffer transitions,
+        List<RuleLine> rules,
         ZoneLine zoneLine,
         int dstOffset,
-        List<RuleLine> ruleLines,
+        RuleSet ruleSet,
         int startYear,
-        long startTime
+        long startTime,
+        MetricsRecorder recorder
     ) {
 
-        boolean exit = false;
         int endYear = startYear;
 
         if (zoneLine.indicator == null) { // last line
-            for (RuleLine line : ruleLines) {
+            for (RuleLine line : ruleSet.getLines()) {
                 if (line.to == Integer.MAX_VALUE) {
                     if (line.from > endYear) {
                         endYear = line.from;
                     }
-                    rules.add(line.pattern);
+                    rules.add(line);
                 } else if (line.to > endYear) {
                     endYear = line.to;
                 }
@@ -1023,80 +3051,48 @@ public class TimezoneRepositoryCompiler {
             endYear = getEstimatedYear(zoneLine);
         }
 
-        for (int year = startYear - 1; !exit && (year <= endYear + 1); year++) {
-            for (RuleLine line : ruleLines) { // ascending order within a year
-                if (
-                    (line.from > year)
-                    || (line.to < year)
-                ) {
-                    continue;
-                }
+        RuleRun run =
+            ruleSet.getRun(zoneLine.rawOffset, startYear, endYear, dstOffset, recorder);
 
-                int oldDst = dstOffset;
+        // only the clipping to the zone line is specific to the zone
+        for (int i = 0, n = run.size(); i < n; i++) { // ascending order
+            RuleLine line = run.getLine(i);
+            int oldDst = dstOffset;
+            long tt;
+
+            if (run.getPreviousSaving(i) == oldDst) {
+                tt = run.getPosixTime(i);
+            } else { // an earlier event was clipped
                 int ruleShift =
                     getShift(
-                        line.pattern.getIndicator(),
+                        line.getIndicator(),
                         zoneLine.rawOffset,
                         oldDst);
-                long tt = line.getPosixTime(year, ruleShift);
-                long endTime = Long.MAX_VALUE;
-
-                if (zoneLine.indicator != null) { // continuation line
-                    endTime = zoneLine.until - getShift(zoneLine, oldDst);
-                }
-
-                if (tt < startTime) {
-                    continue;
-                } else if (tt >= endTime) {
-                    exit = true;
-                    break;
-                } else {
-                    dstOffset = line.pattern.getSavings();
-                }
-
-                addTransition(
-                    transitions,
-                    new ZonalTransition(
-                        tt,
-                        zoneLine.rawOffset + oldDst,
-                        zoneLine.rawOffset + dstOffset,
-                        dstOffset));
+                tt = line.getPosixTime(run.getYear(i), ruleShift);
             }
-        }
 
-        return dstOffset;
+            long endTime = Long.MAX_VALUE;
 
-    }
+            if (zoneLine.indicator != null) { // continuation line
+                endTime = zoneLine.until - getShift(zoneLine, oldDst);
+            }
 
-    private static void addTransition(
-        List<ZonalTransition> transitions,
-        ZonalTransition newTransition
-    ) {
+            if (tt < startTime) {
+                continue;
+            } else if (tt >= endTime) {
+                break;
+            } else {
+                dstOffset = line.savings;
+            }
 
-        if (transitions.isEmpty()) {
-            transitions.add(newTransition);
-            return;
+            transitions.add(
+                tt,
+                zoneLine.rawOffset + oldDst,
+                zoneLine.rawOffset + dstOffset,
+                dstOffset);
         }
 
-        int index = transitions.size() - 1;
-        ZonalTransition last = transitions.get(index);
-
-        int total = newTransition.getTotalOffset();
-        int dst = newTransition.getDaylightSavingOffset();
-        long tt = newTransition.getPosixTime();
-
-        if (last.getPosixTime() == tt) {
-            // TODO: Wird das wirklich gebraucht?
-            ZonalTransition zt =
-                new ZonalTransition(
-                    last.getPosixTime(),
-                    last.getPreviousOffset(),
-                    total,
-                    dst);
-            transitions.set(index, zt);
-        } else if ((last.getTotalOffset() != total) || (last.getDaylightSavingOffset() != dst)) {
-            transitions.add(newTransition);
-        }
+        return dstOffset;
 
     }
 
@@ -1108,11 +3104,7 @@ public class TimezoneRepositoryCompiler {
 
     private static int getStartYear(long time) {
 
-        long mjd =
-            EpochDays.MODIFIED_JULIAN_DATE.transform(
-                MathUtils.floorDivide(time, 86400),
-                EpochDays.UNIX);
-        return GregorianMath.readYear(GregorianMath.toPackedDate(mjd));
+        return CalendarKernel.getYear(MathUtils.floorDivide(time, 86400));
 
     }
 
@@ -1144,10 +3136,12 @@ public class TimezoneRepositoryCompiler {
 
     }
 
-    private static Map<String, String> loadArchive(File archive)
+    static Map<String, String> loadArchive(File archive)
         throws IOException {
 
-        if (!archive.getName().endsWith("tar.gz")) {
+        ArchiveDecompressor decompressor = Decompressors.find(archive.getName());
+
+        if (decompressor == null) {
             return Collections.emptyMap();
         }
 
@@ -1155,26 +3149,16 @@ public class TimezoneRepositoryCompiler {
         TarInputStream inStream = null;
 
         try {
-            inStream =
-                new TarInputStream(
-                    new GZIPInputStream(
-                        new FileInputStream(archive)));
+            inStream = new TarInputStream(open(archive, decompressor));
 
             TarEntry entry;
 
             while ((entry = inStream.getNextEntry()) != null) {
-                byte[] data = new byte[2048];
-                int count;
-
                 if (entry.isNormalFile()) {
                     ByteArrayOutputStream bos =
-                        new ByteArrayOutputStream();
-
-                    while ((count = inStream.read(data)) != -1) {
-                        bos.write(data, 0, count);
-                    }
-
-                    contents.put(entry.getName(), bos.toString("UTF-8"));
+                        new ByteArrayOutputStream((int) entry.getSize());
+                    inStream.transferTo(bos);
+                    contents.put(getFileName(entry.getName()), bos.toString("UTF-8"));
                     bos.close();
                 }
             }
@@ -1193,7 +3177,7 @@ public class TimezoneRepositoryCompiler {
 
     }
 
-    private static Map<String, String> loadDirectory(File directory)
+    static Map<String, String> loadDirectory(File directory)
         throws IOException {
 
         if (!directory.isDirectory()) {
@@ -1237,6 +3221,34 @@ public class TimezoneRepositoryCompiler {
 
     }
 
+    // yields the decompressed content of given archive file
+    private static InputStream open(
+        File archive,
+        ArchiveDecompressor decompressor
+    ) throws IOException {
+
+        InputStream raw = new FileInputStream(archive);
+
+        try {
+            return decompressor.decompress(raw);
+        } catch (IOException | RuntimeException ex) {
+            try {
+                raw.close();
+            } catch (IOException ioe) {
+                // ignored
+            }
+            throw ex;
+        }
+
+    }
+
+    // strips any directory prefix from the name of an archive entry
+    private static String getFileName(String entryName) {
+
+        return entryName.substring(entryName.lastIndexOf('/') + 1);
+
+    }
+
     private static File getDefaultWorkDirectory() throws IOException {
 
         ClassLoader loader = TimezoneRepositoryCompiler.class.getClassLoader();
@@ -1252,41 +3264,110 @@ public class TimezoneRepositoryCompiler {
                     }
                 }
             }
-        } catch (URISyntaxException use) {
-            throw new IOException(use);
+        } catch (URISyntaxException use) {
+            throw new IOException(use);
+        }
+
+        throw new FileNotFoundException(
+            "Editable timezone directory \""
+            + WORK_DIRECTORY_NAME
+            + "\" not found in classpath."
+        );
+
+    }
+
+    // floating mode: newest version, directories preferred at equal versions
+    private String getNewestVersion(boolean directories) throws FileNotFoundException {
+
+        Comparator<String> comp = new VersionComparator(); // newest first
+        String aversion = this.getNewestArchiveVersion(comp);
+
+        if (!directories) {
+            if (aversion == null) {
+                throw new FileNotFoundException(
+                    "Archive not found in: " + this.workdir);
+            }
+            return aversion;
+        }
+
+        String dversion = this.getNewestDirectoryVersion(comp);
+
+        if (aversion == null) {
+            if (dversion == null) {
+                throw new FileNotFoundException(
+                    "Time zone data not found in: " + this.workdir);
+            }
+            return dversion;
+        } else if (
+            (dversion == null)
+            || (comp.compare(aversion, dversion) < 0)
+        ) {
+            return aversion;
+        } else {
+            return dversion;
+        }
+
+    }
+
+    private String getNewestArchiveVersion(Comparator<String> comp) {
+
+        List<String> versions = new ArrayList<>();
+
+        for (File file : this.workdir.listFiles()) {
+            if (file.isFile()) {
+                String version = getArchiveVersion(file.getName());
+                if (version != null) {
+                    versions.add(version);
+                }
+            }
+        }
+
+        if (versions.isEmpty()) {
+            return null;
+        } else {
+            Collections.sort(versions, comp);
+            return versions.get(0);
+        }
+
+    }
+
+    // null if given name is not the name of a supported archive
+    private static String getArchiveVersion(String name) {
+
+        ArchiveDecompressor decompressor = Decompressors.find(name);
+
+        if (decompressor == null) {
+            return null;
+        }
+
+        String base = name.substring(0, name.length() - decompressor.getExtension().length());
+
+        for (String prefix : ARCHIVE_PREFIXES) {
+            if (
+                base.startsWith(prefix)
+                && (base.length() == prefix.length() + 5)
+            ) {
+                return base.substring(prefix.length());
+            }
         }
 
-        throw new FileNotFoundException(
-            "Editable timezone directory \""
-            + WORK_DIRECTORY_NAME
-            + "\" not found in classpath."
-        );
+        return null;
 
     }
 
-    private String getNewestArchiveVersion(Comparator<String> comp) {
-
-        List<String> versions = new ArrayList<>();
+    // searches the archive of given version, preferring plugged-in formats
+    private File findArchive(String version) {
 
-        for (File file : this.workdir.listFiles()) {
-            if (file.isFile()) {
-                String name = file.getName();
-                if (
-                    name.startsWith(TZDATA)
-                    && name.endsWith(TAR_GZ_EXTENSION)
-                    && (name.length() == 18)
-                ) {
-                    versions.add(name.substring(6, 11));
+        for (ArchiveDecompressor decompressor : Decompressors.getAll()) {
+            for (String prefix : ARCHIVE_PREFIXES) {
+                File file = new File(this.workdir, prefix + version + decompressor.getExtension());
+                if (file.isFile()) {
+                    return file;
                 }
             }
         }
 
-        if (versions.isEmpty()) {
-            return null;
-        } else {
-            Collections.sort(versions, comp);
-            return versions.get(0);
-        }
+        return null;
 
     }
 
@@ -1300,6 +3381,7 @@ public class TimezoneRepositoryCompiler {
                 if (
                     name.startsWith(TZDATA)
                     && (name.length() == 11)
+                    && hasSources(file)
                 ) {
                     versions.add(name.substring(6));
                 }
@@ -1315,6 +3397,19 @@ public class TimezoneRepositoryCompiler {
 
     }
 
+    // a directory with only compiled output is not a source directory
+    private static boolean hasSources(File directory) {
+
+        for (File file : directory.listFiles()) {
+            if (file.isFile() && isAccepted(file.getName())) {
+                return true;
+            }
+        }
+
+        return false;
+
+    }
+
     private static void printOptions() {
 
         System.out.println(
@@ -1331,88 +3426,196 @@ public class TimezoneRepositoryCompiler {
             + LF
             + "-compile   Compile timezone data " + "(archives or subdirectories)"
             + LF
+            + "-verify    Compare the compiled repository with the timezone "
+            + "data (use the same -lmt setting as for compiling)"
+            + LF
             + "-version   Use only given timezone version "
             + "instead of newest available version "
             + "(example: -version 2011n)"
             + LF
             + "-lmt       Include LMT zone entries during compilation"
+            + LF
+            + "-threads   Compile zones in parallel using given count of "
+            + "threads (example: -threads 8)"
+            + LF
+            + "-incremental Only recompile zones whose source lines have "
+            + "changed since the last compilation"
+            + LF
+            + "-format    Write the repository in given format, either "
+            + "standard, compact, indexed or pooled (example: -format compact)"
+            + LF
+            + "-tarcache  Decompress archives only once into an indexed "
+            + "tar file in the subdirectory tarcache"
+            + LF
+            + "-modelcache Reuse the parsed tables of unchanged archives "
+            + "from the subdirectory modelcache"
+            + LF
+            + "-metrics   Write time and allocation per phase and zone "
+            + "next to the repository (example: -metrics json)"
+            + LF
+            + "-versions  Use all available versions in given inclusive "
+            + "range (example: -versions 2020a..2024b)"
+            + LF
+            + "-all       Use all available versions, with -threads "
+            + "versions compiled at the same time"
             + LF);
 
     }
 
-    private static int getMonth(String field) {
+    // range in the form "from..to", both ends inclusive
+    private static List<String> selectVersions(
+        List<String> available,
+        String range
+    ) {
+
+        int sep = range.indexOf("..");
+
+        if (
+            (sep <= 0)
+            || (sep + 2 >= range.length())
+        ) {
+            throw new IllegalArgumentException(
+                "Version range must have the form from..to: " + range);
+        }
 
-        int found = -1;
+        String from = range.substring(0, sep);
+        String to = range.substring(sep + 2);
+        Comparator<String> comp = new VersionComparator(); // newest first
+        List<String> selected = new ArrayList<>();
 
-        for (int i = 0; i < 12; i++) {
-            if (field.equalsIgnoreCase(SHORT_MONTHS[i])) {
-                found = i;
-                break;
+        for (String version : available) {
+            if (
+                (comp.compare(version, from) <= 0)
+                && (comp.compare(version, to) >= 0)
+            ) {
+                selected.add(version);
             }
         }
 
-        if (found == -1) {
-            String ucase = field.toUpperCase(Locale.US);
+        return selected;
 
-            for (int i = 0; i < 12; i++) {
-                if (LONG_MONTHS[i].startsWith(ucase)) {
-                    found = i;
-                    break;
-                }
+    }
+
+    // count of threads given by the option -threads
+    private static int getParallelism(String threads) {
+
+        try {
+            int parallelism = Integer.parseInt(threads);
+            if (parallelism >= 1) {
+                return parallelism;
             }
+        } catch (NumberFormatException nfe) {
+            // handled below
         }
 
-        if (found == -1) {
-            throw new IllegalArgumentException(
-                "Not representable as month: " + field);
-        } else {
-            return found + 1;
+        throw new IllegalArgumentException(
+            "Count of threads must be a positive number: " + threads);
+
+    }
+
+    // repository format given by the option -format, case-insensitive
+    private static RepositoryFormat getFormat(String name) {
+
+        for (RepositoryFormat format : RepositoryFormat.values()) {
+            if (format.name().equalsIgnoreCase(name)) {
+                return format;
+            }
         }
 
+        throw new IllegalArgumentException(
+            "Unsupported repository format: " + name);
+
     }
 
-    private static Weekday getWeekday(String field) {
+    private static int getMonth(
+        LineTokenizer tokenizer,
+        int index
+    ) {
 
-        int found = -1;
+        int len = tokenizer.getFieldLength(index);
 
-        for (int i = 0; i < 7; i++) {
-            if (field.equalsIgnoreCase(SHORT_DAYS[i])) {
-                found = i;
-                break;
+        for (int i = 0; i < 12; i++) {
+            if (
+                (len == SHORT_MONTHS[i].length())
+                && tokenizer.isPrefixOf(index, SHORT_MONTHS[i], true)
+            ) {
+                return i + 1;
+            }
+        }
+
+        for (int i = 0; i < 12; i++) {
+            if (tokenizer.isPrefixOf(index, LONG_MONTHS[i], true)) {
+                return i + 1;
             }
         }
 
-        if (found == -1) {
-            String ucase = field.toUpperCase(Locale.US);
+        throw new IllegalArgumentException(
+            "Not representable as month: " + tokenizer.getField(index));
 
-            for (int i = 0; i < 7; i++) {
-                if (LONG_DAYS[i].startsWith(ucase)) {
-                    found = i;
-                    break;
-                }
+    }
+
+    // weekday in given part of a field as value from 1 (Monday) to 7 (Sunday)
+    private static int getWeekday(
+        LineTokenizer tokenizer,
+        int index,
+        int from,
+        int to
+    ) {
+
+        for (int i = 0; i < 7; i++) {
+            if (
+                (to - from == SHORT_DAYS[i].length())
+                && tokenizer.isPrefixOf(index, from, to, SHORT_DAYS[i], true)
+            ) {
+                return i + 1;
             }
         }
 
-        if (found == -1) {
-            throw new IllegalArgumentException(
-                "Not representable as weekday: " + field);
-        } else {
-            return Weekday.valueOf(found + 1);
+        for (int i = 0; i < 7; i++) {
+            if (tokenizer.isPrefixOf(index, from, to, LONG_DAYS[i], true)) {
+                return i + 1;
+            }
         }
 
+        throw new IllegalArgumentException(
+            "Not representable as weekday: " + tokenizer.getField(index));
+
     }
 
-    private static int[] getTimeInfo(String timeOfDay) {
+    // position of the first comparison sign in a pattern like Sun>=8
+    private static int getComparisonPosition(
+        LineTokenizer tokenizer,
+        int index
+    ) {
+
+        int after = tokenizer.indexOf(index, '>', 0);
+        int before = tokenizer.indexOf(index, '<', 0);
+        int pos = (
+            ((after == -1) || ((before != -1) && (before < after)))
+            ? before
+            : after);
+
+        if (
+            (pos == -1)
+            || (tokenizer.getChar(index, pos + 1) != '=')
+        ) {
+            throw new IllegalArgumentException(tokenizer.getField(index));
+        }
+
+        return pos;
+
+    }
 
-        int[] ret = new int[2];
-        ret[0] = 0; // Vorgabe
-        ret[1] = 2; // WALL TIME als Standard
+    private static int getTimeOfDay(
+        LineTokenizer tokenizer,
+        int index
+    ) {
 
-        int len = timeOfDay.length();
-        char c = timeOfDay.charAt(len - 1);
+        int len = tokenizer.getFieldLength(index);
+        char c = tokenizer.getChar(index, len - 1);
 
         if ((len == 1) && (c == '-')) {
-            return ret;
+            return 0;
         }
 
         // Großbuchstaben eigentlich nicht zulässig => Toleranz-Einstellung
@@ -1423,113 +3626,114 @@ public class TimezoneRepositoryCompiler {
             case 'G':
             case 'z':
             case 'Z':
-                timeOfDay = timeOfDay.substring(0, len - 1);
-                ret[1] = 0; // UNIX-Zeit
-                break;
             case 's':
             case 'S':
-                timeOfDay = timeOfDay.substring(0, len - 1);
-                ret[1] = 1; // Standardzeit
-                break;
             case 'w':
             case 'W':
-                timeOfDay = timeOfDay.substring(0, len - 1);
+                len--;
                 break;
             default:
                 if (!isDigit(c)) {
-                    throw new IllegalArgumentException(timeOfDay);
+                    throw new IllegalArgumentException(tokenizer.getField(index));
                 }
         }
 
-        if (timeOfDay.equals("-")) {
-            return ret;
-        }
+        return getSeconds(tokenizer, index, len, true);
 
-        StringTokenizer st = new StringTokenizer(timeOfDay, ":");
-        int h = 0;
-        int m = 0;
-        int s = 0;
-        boolean negative = false;
+    }
 
-        for (int i = 0; st.hasMoreTokens(); i++) {
-            String part = st.nextToken();
-
-            switch (i) {
-                case 0:
-                    if (part.charAt(0) == '-') {
-                        negative = true;
-                        h = Integer.parseInt(part.substring(1));
-                    } else if (part.charAt(0) == '+') { // possible exotic edge case
-                        h = Integer.parseInt(part.substring(1));
-                    } else {
-                        h = Integer.parseInt(part);
-                    }
-                    break;
-                case 1:
-                    m = Integer.parseInt(part);
-                    break;
-                case 2:
-                    int dot = part.indexOf('.');
-                    if (dot == -1) { // standard case in second precision
-                        s = Integer.parseInt(part);
-                    } else { // truncate subseconds, we don't handle this conceptual nonsense
-                        s = Integer.parseInt(part.substring(0, dot));
-                    }
-                    break;
-                default:
-                    // no-op
-            }
+    // 0 = UNIX-Zeit, 1 = Standardzeit, 2 = WALL TIME als Standard
+    private static int getTimeIndicator(
+        LineTokenizer tokenizer,
+        int index
+    ) {
 
+        switch (tokenizer.getChar(index, tokenizer.getFieldLength(index) - 1)) {
+            case 'u':
+            case 'U':
+            case 'g':
+            case 'G':
+            case 'z':
+            case 'Z':
+                return 0;
+            case 's':
+            case 'S':
+                return 1;
+            default:
+                return 2;
         }
 
-        int total = h * 3600 + m * 60 + s;
-        ret[0] = (negative ? -total : total);
-        return ret;
+    }
+
+    private static int getOffset(
+        LineTokenizer tokenizer,
+        int index
+    ) {
+
+        return getSeconds(tokenizer, index, tokenizer.getFieldLength(index), false);
 
     }
 
-    private static int getOffset(String field) {
+    // [-]h[:m[:s]] up to given end of field, empty parts are skipped
+    private static int getSeconds(
+        LineTokenizer tokenizer,
+        int index,
+        int to,
+        boolean fraction
+    ) {
 
-        boolean negative = (field.charAt(0) == '-');
+        int from = 0;
+        boolean negative = false;
 
-        if (negative) {
-            if (field.length() == 1) {
-                return 0;
-            } else {
-                field = field.substring(1);
-            }
+        if (
+            (to > 0)
+            && (tokenizer.getChar(index, 0) == '-')
+        ) {
+            negative = true;
+            from = 1;
         }
 
-        StringTokenizer st = new StringTokenizer(field, ":");
-        int h = 0;
-        int m = 0;
-        int s = 0;
+        int total = 0;
+        int part = 0;
 
-        for (int i = 0; st.hasMoreTokens(); i++) {
-            String part = st.nextToken();
+        while (from < to) {
+            int colon = tokenizer.indexOf(index, ':', from);
+            int end = (((colon == -1) || (colon > to)) ? to : colon);
 
-            if (part.charAt(0) == '-') {
-                throw new IllegalArgumentException(field);
-            }
+            if (end > from) {
+                if (tokenizer.getChar(index, from) == '-') {
+                    throw new IllegalArgumentException(tokenizer.getField(index));
+                }
 
-            switch (i) {
-                case 0:
-                    h = Integer.parseInt(part);
-                    break;
-                case 1:
-                    m = Integer.parseInt(part);
-                    break;
-                case 2:
-                    s = Integer.parseInt(part);
-                    break;
-                default:
-                    // break;
+                switch (part) {
+                    case 0:
+                        total += tokenizer.getInt(index, from, end) * 3600;
+                        break;
+                    case 1:
+                        total += tokenizer.getInt(index, from, end) * 60;
+                        break;
+                    case 2:
+                        int dot = (fraction ? tokenizer.indexOf(index, '.', from) : -1);
+                        if (
+                            (dot != -1)
+                            && (dot < end)
+                        ) { // truncate subseconds, we don't handle this conceptual nonsense
+                            total += tokenizer.getInt(index, from, dot);
+                        } else { // standard case in second precision
+                            total += tokenizer.getInt(index, from, end);
+                        }
+                        break;
+                    default:
+                        // no-op
+                }
+
+                part++;
             }
 
+            from = end + 1;
         }
 
-        int ret =  h * 3600 + m * 60 + s;
-        return (negative ? -ret : ret);
+        return (negative ? -total : total);
 
     }
 
@@ -1582,143 +3786,457 @@ public class TimezoneRepositoryCompiler {
 
     }
 
-    private static class RuleLine {
+    static class RuleLine {
+
+        //~ Statische Felder/Initialisierungen ----------------------------
+
+        static final int FIXED_DAY = 0;
+        static final int LAST_WEEKDAY = 1;
+        static final int WEEKDAY_AFTER_DATE = 2;
+        static final int WEEKDAY_BEFORE_DATE = 3;
+
+        private static final int PROTOTYPE_YEAR = 2000; // must be a leap year
+        private static final OffsetIndicator[] INDICATORS = OffsetIndicator.values();
 
         //~ Instanzvariablen ----------------------------------------------
 
-        private final String name;
+        private final int nameID;
         private final int from;
         private final int to;
-        private final DaylightSavingRule pattern;
+        private final long sortKey;
 
-        private final String letter;
-        private final String[] fields;
+        // primitive form of the pattern
+        final int month;
+        final int dayKind;
+        final int dayOfMonth; // zero for last weekday
+        final int dayOfWeek; // zero for fixed day
+        final int timeOfDay;
+        final int indicator;
+        final int savings;
+
+        // created on first use so that parsed but not compiled lines stay small
+        private volatile DaylightSavingRule pattern;
 
         //~ Konstruktoren -------------------------------------------------
 
-        RuleLine(String[] fields) {
+        private RuleLine(
+            int nameID,
+            int from,
+            int to,
+            int month,
+            int dayKind,
+            int dayOfMonth,
+            int dayOfWeek,
+            int timeOfDay,
+            int indicator,
+            int savings
+        ) {
             super();
 
-            String[] f = new String[fields.length];
-            System.arraycopy(fields, 0, f, 0, fields.length);
-            this.fields = f;
+            this.nameID = nameID;
+            this.from = from;
+            this.to = to;
+            this.month = month;
+            this.dayKind = dayKind;
+            this.dayOfMonth = dayOfMonth;
+            this.dayOfWeek = dayOfWeek;
+            this.timeOfDay = timeOfDay;
+            this.indicator = indicator;
+            this.savings = savings;
+
+            // validates the pattern without keeping it
+            getPattern(month, dayKind, dayOfMonth, dayOfWeek, timeOfDay, indicator, savings);
+            this.sortKey = this.getLocalMidnight(PROTOTYPE_YEAR) + timeOfDay;
+
+        }
+
+        //~ Methoden ------------------------------------------------------
+
+        /**
+         * <p>Interprets the fields of a rule line from a source file. </p>
+         *
+         * @param   nameID      symbol of the rule name in the second field
+         * @param   tokenizer   tokenizer positioned on a rule line starting
+         *                      with &quot;Rule&quot;
+         * @return  parsed rule line
+         * @throws  IllegalStateException if the line is malformed
+         */
+        static RuleLine parse(
+            int nameID,
+            LineTokenizer tokenizer
+        ) {
 
             try {
-                this.name = this.fields[1];
+                int from;
+                int to;
 
-                if ("minimum".startsWith(this.fields[2])) {
-                    this.from = Integer.MIN_VALUE;
+                if (tokenizer.isPrefixOf(2, "minimum", false)) {
+                    from = Integer.MIN_VALUE;
                 } else {
-                    this.from = Integer.parseInt(this.fields[2]);
+                    from = tokenizer.getInt(2);
                 }
 
-                if ("maximum".startsWith(this.fields[3])) {
-                    this.to = Integer.MAX_VALUE;
-                } else if (this.fields[3].equals("only")) {
-                    this.to = this.from;
+                if (tokenizer.isPrefixOf(3, "maximum", false)) {
+                    to = Integer.MAX_VALUE;
+                } else if (tokenizer.isField(3, "only")) {
+                    to = from;
+                } else {
+                    to = tokenizer.getInt(3);
+                }
+
+                int month = getMonth(tokenizer, 5);
+                int len = tokenizer.getFieldLength(6);
+                int dayKind;
+                int dayOfMonth;
+                int dayOfWeek;
+
+                if (isDigit(tokenizer.getChar(6, 0))) {
+                    dayKind = FIXED_DAY;
+                    dayOfMonth = tokenizer.getInt(6);
+                    dayOfWeek = 0;
+                } else if (
+                    (len >= 4)
+                    && tokenizer.isPrefixOf(6, 0, 4, "last", false)
+                ) {
+                    dayKind = LAST_WEEKDAY;
+                    dayOfMonth = 0;
+                    dayOfWeek = getWeekday(tokenizer, 6, 4, len);
                 } else {
-                    this.to = Integer.parseInt(this.fields[3]);
+                    int pos = getComparisonPosition(tokenizer, 6);
+                    dayKind = (
+                        (tokenizer.getChar(6, pos) == '>')
+                        ? WEEKDAY_AFTER_DATE
+                        : WEEKDAY_BEFORE_DATE);
+                    dayOfMonth = tokenizer.getInt(6, pos + 2, len);
+                    dayOfWeek = getWeekday(tokenizer, 6, 0, pos);
                 }
 
-                int month = getMonth(this.fields[5]);
-                String on = this.fields[6];
-                int[] timeInfo = getTimeInfo(this.fields[7]);
-                OffsetIndicator idx = OffsetIndicator.values()[timeInfo[1]];
-                int dst = getOffset(this.fields[8]);
-                this.pattern = getPattern(month, on, timeInfo[0], idx, dst);
+                int timeOfDay = getTimeOfDay(tokenizer, 7);
 
-                this.letter = (this.fields[9].equals("-") ? "" : this.fields[9]);
+                return new RuleLine(
+                    nameID,
+                    from,
+                    to,
+                    month,
+                    dayKind,
+                    dayOfMonth,
+                    dayOfWeek,
+                    timeOfDay,
+                    getTimeIndicator(tokenizer, 7),
+                    getOffset(tokenizer, 8));
 
             } catch (RuntimeException re) {
                 throw new IllegalStateException(
-                    "Actual rule line: " + Arrays.toString(this.fields),
+                    "Actual rule line: " + tokenizer,
                     re
                 );
             }
 
         }
 
-        //~ Methoden ------------------------------------------------------
+        // the name is given by the enclosing rule set
+        void write(DataOutputStream dos) throws IOException {
+
+            dos.writeInt(this.from);
+            dos.writeInt(this.to);
+            dos.writeByte(this.month);
+            dos.writeByte(this.dayKind);
+            dos.writeByte(this.dayOfMonth);
+            dos.writeByte(this.dayOfWeek);
+            dos.writeInt(this.timeOfDay);
+            dos.writeByte(this.indicator);
+            dos.writeInt(this.savings);
+
+        }
+
+        static RuleLine read(
+            DataInputStream dis,
+            int nameID
+        ) throws IOException {
+
+            int from = dis.readInt();
+            int to = dis.readInt();
+            int month = dis.readByte();
+            int dayKind = dis.readByte();
+            int dayOfMonth = dis.readByte();
+            int dayOfWeek = dis.readByte();
+            int timeOfDay = dis.readInt();
+            int indicator = dis.readByte();
+            int savings = dis.readInt();
+
+            try {
+                return new RuleLine(
+                    nameID, from, to, month, dayKind, dayOfMonth, dayOfWeek, timeOfDay, indicator, savings);
+            } catch (RuntimeException re) {
+                throw new IOException("Invalid rule line.", re);
+            }
+
+        }
+
+        DaylightSavingRule getPattern() {
+
+            DaylightSavingRule p = this.pattern;
+
+            if (p == null) {
+                p =
+                    getPattern(
+                        this.month,
+                        this.dayKind,
+                        this.dayOfMonth,
+                        this.dayOfWeek,
+                        this.timeOfDay,
+                        this.indicator,
+                        this.savings);
+                this.pattern = p; // races are harmless
+            }
+
+            return p;
+
+        }
+
+        OffsetIndicator getIndicator() {
+
+            return INDICATORS[this.indicator];
+
+        }
 
+        // pure arithmetic, repeated evaluations are memoized by RuleSet.getRun()
         long getPosixTime(
             int year,
             int offset
         ) {
 
-            PlainDate date = this.pattern.getDate(year);
-            PlainTimestamp tsp = date.at(this.pattern.getTimeOfDay());
-            return tsp.at(ZonalOffset.ofTotalSeconds(offset)).getPosixTime();
+            return this.getLocalMidnight(year) + this.timeOfDay - offset;
+
+        }
+
+        private long getLocalMidnight(int year) {
+
+            return CalendarKernel.getLocalMidnight(
+                year,
+                this.month,
+                this.dayKind,
+                this.dayOfMonth,
+                this.dayOfWeek);
 
         }
 
-        private static DaylightSavingRule getPattern(
+        static DaylightSavingRule getPattern(
             int month,
-            String on,
+            int dayKind,
+            int dayOfMonth,
+            int dayOfWeek,
             int timeOfDay,
-            OffsetIndicator indicator,
-            int dst
+            int indicator,
+            int savings
         ) {
 
             Month m = Month.valueOf(month);
+            OffsetIndicator idx = OffsetIndicator.values()[indicator];
+
+            switch (dayKind) {
+                case FIXED_DAY:
+                    return GregorianTimezoneRule.ofFixedDay(
+                        m,
+                        dayOfMonth,
+                        timeOfDay,
+                        idx,
+                        savings);
+                case LAST_WEEKDAY:
+                    return GregorianTimezoneRule.ofLastWeekday(
+                        m,
+                        Weekday.valueOf(dayOfWeek),
+                        timeOfDay,
+                        idx,
+                        savings);
+                case WEEKDAY_AFTER_DATE:
+                    return GregorianTimezoneRule.ofWeekdayAfterDate(
+                        m,
+                        dayOfMonth,
+                        Weekday.valueOf(dayOfWeek),
+                        timeOfDay,
+                        idx,
+                        savings);
+                case WEEKDAY_BEFORE_DATE:
+                    return GregorianTimezoneRule.ofWeekdayBeforeDate(
+                        m,
+                        dayOfMonth,
+                        Weekday.valueOf(dayOfWeek),
+                        timeOfDay,
+                        idx,
+                        savings);
+                default:
+                    throw new IllegalArgumentException(
+                        "Unknown day pattern: " + dayKind);
+            }
 
-            if (isDigit(on.charAt(0))) {
+        }
 
-                return GregorianTimezoneRule.ofFixedDay(
-                    m,
-                    Integer.parseInt(on),
-                    timeOfDay,
-                    indicator,
-                    dst
-                );
+    }
+
+    /**
+     * <p>Index of the rule lines with the same name by year. </p>
+     *
+     * <p>The years are divided into segments where the same lines are
+     * active. Every segment holds its active lines in the order of the
+     * rule set so that a lookup is a binary search without any
+     * allocation. </p>
+     *
+     * <p>A rule set also caches the evaluated rule events for every
+     * combination of raw offset, year window and initial saving which
+     * occurs in the zone lines referring to it unless the cache is
+     * switched off for comparison. </p>
+     */
+    static class RuleSet {
 
-            } else if (on.startsWith("last")) {
+        //~ Statische Felder/Initialisierungen ----------------------------
 
-                return GregorianTimezoneRule.ofLastWeekday(
-                    m,
-                    getWeekday(on.substring(4)),
-                    timeOfDay,
-                    indicator,
-                    dst);
+        private static final RuleLine[] NO_LINES = new RuleLine[0];
 
-            } else {
+        //~ Instanzvariablen ----------------------------------------------
 
-                int pos = -1;
+        private final List<RuleLine> lines;
+        private final int[] starts; // first year of every segment
+        private final RuleLine[][] active;
+        private final ConcurrentMap<RuleRun.Key, RuleRun> runs = new ConcurrentHashMap<>();
+        private final boolean memoized;
 
-                for (int i = 0, n = on.length(); i < n; i++) {
-                    char c = on.charAt(i);
-                    if ((c == '>') || (c == '<')) {
-                        pos = i;
-                        break;
-                    }
+        //~ Konstruktoren -------------------------------------------------
+
+        RuleSet(
+            List<RuleLine> lines,
+            boolean memoized
+        ) {
+            super();
+
+            int[] bounds = new int[lines.size() * 2];
+            int n = 0;
+
+            for (RuleLine line : lines) {
+                bounds[n++] = line.from;
+                if (line.to != Integer.MAX_VALUE) {
+                    bounds[n++] = line.to + 1;
                 }
+            }
+
+            Arrays.sort(bounds, 0, n);
+            int count = 0;
 
-                if ((pos == -1) || (on.charAt(pos + 1) != '=')) {
-                    throw new IllegalArgumentException(on);
+            for (int i = 0; i < n; i++) {
+                if ((count == 0) || (bounds[i] != bounds[count - 1])) {
+                    bounds[count++] = bounds[i];
                 }
+            }
 
-                int dayOfMonth = Integer.parseInt(on.substring(pos + 2));
-                Weekday dayOfWeek = getWeekday(on.substring(0, pos));
+            this.lines = lines;
+            this.memoized = memoized;
+            this.starts = Arrays.copyOf(bounds, count);
+            this.active = new RuleLine[count][];
+            List<RuleLine> segment = new ArrayList<>();
+
+            for (int i = 0; i < count; i++) {
+                int year = this.starts[i];
+                segment.clear();
+                for (RuleLine line : lines) {
+                    if ((line.from <= year) && (line.to >= year)) {
+                        segment.add(line);
+                    }
+                }
+                this.active[i] = (segment.isEmpty() ? NO_LINES : segment.toArray(NO_LINES));
+            }
 
-                if (on.charAt(pos) == '>') {
-                    return GregorianTimezoneRule.ofWeekdayAfterDate(
-                        m,
-                        dayOfMonth,
-                        dayOfWeek,
-                        timeOfDay,
-                        indicator,
-                        dst);
-                } else {
-                    return GregorianTimezoneRule.ofWeekdayBeforeDate(
-                        m,
-                        dayOfMonth,
-                        dayOfWeek,
-                        timeOfDay,
-                        indicator,
-                        dst);
+        }
+
+        //~ Methoden ------------------------------------------------------
+
+        /**
+         * <p>Yields all lines of this rule set. </p>
+         *
+         * @return  lines in ascending order within a year
+         */
+        List<RuleLine> getLines() {
+
+            return this.lines;
+
+        }
+
+        /**
+         * <p>Yields the smallest start year of all lines. </p>
+         *
+         * @return  year
+         */
+        int getFirstYear() {
+
+            return this.starts[0];
+
+        }
+
+        /**
+         * <p>Yields the lines which are valid in given year. </p>
+         *
+         * @param   year    gregorian year
+         * @return  shared array which must not be modified
+         */
+        RuleLine[] getActive(int year) {
+
+            int index = Arrays.binarySearch(this.starts, year);
+
+            if (index < 0) {
+                index = -index - 2; // segment containing year
+            }
+
+            return ((index < 0) ? NO_LINES : this.active[index]);
+
+        }
+
+        /**
+         * <p>Yields the rule events from the year before the start year
+         * until the year after the end year, evaluated as if every event
+         * took effect. </p>
+         *
+         * @param   rawOffset       standard offset of the zone line
+         * @param   startYear       first year of the zone line
+         * @param   endYear         last year of the zone line
+         * @param   initialSaving   saving before the first event
+         * @param   recorder        counts cache hits and misses
+         * @return  shared immutable run
+         */
+        RuleRun getRun(
+            int rawOffset,
+            int startYear,
+            int endYear,
+            int initialSaving,
+            MetricsRecorder recorder
+        ) {
+
+            RuleRun.Key key = new RuleRun.Key(rawOffset, startYear, endYear, initialSaving);
+            RuleRun run = (this.memoized ? this.runs.get(key) : null);
+
+            if (run != null) {
+                recorder.countRuleRun(true);
+                return run;
+            }
+
+            run = new RuleRun((endYear - startYear + 3) * 2);
+            int dstOffset = initialSaving;
+
+            for (int year = startYear - 1; year <= endYear + 1; year++) {
+                for (RuleLine line : this.getActive(year)) {
+                    int shift = getShift(line.getIndicator(), rawOffset, dstOffset);
+                    run.add(year, line, line.getPosixTime(year, shift), dstOffset);
+                    dstOffset = line.savings;
                 }
+            }
 
+            recorder.countRuleRun(false);
+
+            if (!this.memoized) {
+                return run;
             }
 
+            RuleRun previous = this.runs.putIfAbsent(key, run);
+            return ((previous == null) ? run : previous);
+
         }
 
     }
@@ -1734,13 +4252,12 @@ public class TimezoneRepositoryCompiler {
             RuleLine o2
         ) {
 
-            if (!o1.name.equals(o2.name)) {
+            if (o1.nameID != o2.nameID) {
                 throw new ClassCastException("Different rule names.");
             }
 
-            int prototypeYear = 2000; // must be a leap year
-            long s1 = o1.getPosixTime(prototypeYear, 0);
-            long s2 = o2.getPosixTime(prototypeYear, 0);
+            long s1 = o1.sortKey;
+            long s2 = o2.sortKey;
 
             if (s1 < s2) {
                 return -1;
@@ -1759,9 +4276,9 @@ public class TimezoneRepositoryCompiler {
         //~ Instanzvariablen ----------------------------------------------
 
         private final int rawOffset;
-        private final String ruleName;
-        private final Integer fixedSaving;
-        private final String format;
+        private final int ruleID; // NONE in case of fixed saving
+        private final int fixedSaving;
+        private final int formatID;
         private final long until;
         private final OffsetIndicator indicator;
 
@@ -1769,153 +4286,181 @@ public class TimezoneRepositoryCompiler {
 
         ZoneLine(
             String id,
-            String[] fields
+            LineTokenizer tokenizer,
+            SymbolTable symbols
         ) {
             super();
 
-            int startIndex = (fields[0].equals("Zone") ? 2 : 0);
+            int startIndex = (tokenizer.isField(0, "Zone") ? 2 : 0);
 
             try {
-                String rawField = fields[startIndex];
-                if (rawField.equals("-")) {
+                if (tokenizer.isField(startIndex, "-")) {
                     throw new IllegalArgumentException(
                         "Undefined raw offset: " + id);
                 } else {
-                    this.rawOffset = getOffset(rawField);
+                    this.rawOffset = getOffset(tokenizer, startIndex);
                 }
 
-                String rulesave = fields[startIndex + 1];
-
-                if (Character.isLetter(rulesave.charAt(0))) {
-                    this.ruleName = rulesave;
-                    this.fixedSaving = null;
+                if (Character.isLetter(tokenizer.getChar(startIndex + 1, 0))) {
+                    this.ruleID = tokenizer.getSymbol(startIndex + 1, symbols);
+                    this.fixedSaving = 0;
                 } else {
-                    this.ruleName = null;
-                    this.fixedSaving = Integer.valueOf(getOffset(rulesave));
+                    this.ruleID = SymbolTable.NONE;
+                    this.fixedSaving = getOffset(tokenizer, startIndex + 1);
                 }
 
-                this.format = fields[startIndex + 2];
+                this.formatID = tokenizer.getSymbol(startIndex + 2, symbols);
 
                 int year = Integer.MAX_VALUE;
                 int month = 1;
                 int day = 1;
                 int timeOfDay = 0;
                 OffsetIndicator tl = OffsetIndicator.WALL_TIME;
+                int n = tokenizer.getFieldCount();
 
-                for (int i = startIndex + 3; i < fields.length; i++) {
-                    String f = fields[i];
-
+                for (int i = startIndex + 3; i < n; i++) {
                     switch (i - startIndex - 3) {
                         case 0:
-                            year = Integer.parseInt(f);
+                            year = tokenizer.getInt(i);
                             break;
                         case 1:
-                            month = getMonth(f);
+                            month = getMonth(tokenizer, i);
                             break;
                         case 2:
-                            day = getDayOfMonth(year, month, f);
+                            day = getDayOfMonth(year, month, tokenizer, i);
                             break;
                         case 3:
-                            int[] timeInfo = getTimeInfo(f);
-                            tl = OffsetIndicator.values()[timeInfo[1]];
-                            timeOfDay = timeInfo[0];
+                            timeOfDay = getTimeOfDay(tokenizer, i);
+                            tl = OffsetIndicator.values()[getTimeIndicator(tokenizer, i)];
                             break;
                         default:
                             throw new IllegalArgumentException(
-                                "Unknown UNTIL-field: " + f);
+                                "Unknown UNTIL-field: " + tokenizer.getField(i));
                     }
                 }
 
-                if (fields.length == startIndex + 3) {
+                if (n == startIndex + 3) {
                     this.until = Long.MAX_VALUE; // UNTIL is missing
                     this.indicator = null; // marks last Zone-line
                 } else {
-                    this.until =
-                        EpochDays.UNIX.transform(
-                            GregorianMath.toMJD(year, month, day),
-                            EpochDays.MODIFIED_JULIAN_DATE) * 86400L
-                        + timeOfDay;
+                    this.until = CalendarKernel.toEpochDay(year, month, day) * 86400L + timeOfDay;
                     this.indicator = tl;
                 }
 
             } catch (RuntimeException re) {
                 throw new IllegalStateException(
-                    "[" + id + "] Actual zone line: " + Arrays.toString(fields),
+                    "[" + id + "] Actual zone line: " + tokenizer,
                     re
                 );
             }
 
         }
 
+        private ZoneLine(
+            int rawOffset,
+            int ruleID,
+            int fixedSaving,
+            int formatID,
+            long until,
+            OffsetIndicator indicator
+        ) {
+            super();
+
+            this.rawOffset = rawOffset;
+            this.ruleID = ruleID;
+            this.fixedSaving = fixedSaving;
+            this.formatID = formatID;
+            this.until = until;
+            this.indicator = indicator;
+
+        }
+
         //~ Methoden ------------------------------------------------------
 
-        private static int getDayOfMonth(
-            int year,
-            int month,
-            String on
-        ) {
+        // names instead of symbols because the output must not depend on parse order
+        void write(
+            DataOutputStream dos,
+            SymbolTable symbols
+        ) throws IOException {
 
-            if (isDigit(on.charAt(0))) {
+            dos.writeInt(this.rawOffset);
+            dos.writeUTF(this.hasRules() ? symbols.get(this.ruleID) : "");
+            dos.writeBoolean(!this.hasRules());
+            dos.writeInt(this.fixedSaving);
+            dos.writeUTF(symbols.get(this.formatID));
+            dos.writeLong(this.until);
+            dos.writeByte((this.indicator == null) ? -1 : this.indicator.ordinal());
 
-                return Integer.parseInt(on);
+        }
 
-            } else if (on.startsWith("last")) {
+        static ZoneLine read(
+            DataInputStream dis,
+            SymbolTable symbols
+        ) throws IOException {
+
+            int rawOffset = dis.readInt();
+            String ruleName = dis.readUTF();
+            boolean fixed = dis.readBoolean();
+            int saving = dis.readInt();
+            String format = dis.readUTF();
+            long until = dis.readLong();
+            byte indicator = dis.readByte();
+
+            return new ZoneLine(
+                rawOffset,
+                (fixed ? SymbolTable.NONE : symbols.intern(ruleName)),
+                saving,
+                symbols.intern(format),
+                until,
+                ((indicator == -1) ? null : OffsetIndicator.values()[indicator]));
 
-                int weekday = getWeekday(on.substring(4)).getValue();
-                int lastDay = GregorianMath.getLengthOfMonth(year, month);
-                int lastW = GregorianMath.getDayOfWeek(year, month, lastDay);
-                int delta = (lastW - weekday);
+        }
 
-                if (delta < 0) {
-                    delta += 7;
-                }
+        boolean hasRules() {
 
-                return (lastDay - delta);
+            return (this.ruleID != SymbolTable.NONE);
 
-            } else {
+        }
 
-                int pos = -1;
+        private static int getDayOfMonth(
+            int year,
+            int month,
+            LineTokenizer tokenizer,
+            int index
+        ) {
 
-                for (int i = 0, n = on.length(); i < n; i++) {
-                    char c = on.charAt(i);
-                    if (
-                        (c == '>')
-                        || (c == '<')
-                    ) {
-                        pos = i;
-                        break;
-                    }
-                }
+            int len = tokenizer.getFieldLength(index);
 
-                if (
-                    (pos == -1)
-                    || (on.charAt(pos + 1) != '=')
-                ) {
-                    throw new IllegalArgumentException(on);
-                }
+            if (isDigit(tokenizer.getChar(index, 0))) {
 
-                int dayOfMonth = Integer.parseInt(on.substring(pos + 2));
-                int dayOfWeek = getWeekday(on.substring(0, pos)).getValue();
-                int ref = GregorianMath.getDayOfWeek(year, month, dayOfMonth);
+                return tokenizer.getInt(index);
 
-                if (ref == dayOfWeek) {
-                    return dayOfMonth;
-                }
+            } else if (
+                (len >= 4)
+                && tokenizer.isPrefixOf(index, 0, 4, "last", false)
+            ) {
 
-                boolean after = (on.charAt(pos) == '>');
-                int delta = (ref - dayOfWeek);
-                int sgn = -1;
+                int weekday = getWeekday(tokenizer, index, 4, len);
+                long last =
+                    CalendarKernel.getEpochDay(
+                        year, month, RuleLine.LAST_WEEKDAY, 0, weekday);
+                return (int) (last - CalendarKernel.toEpochDay(year, month, 1)) + 1;
 
-                if (after) {
-                    delta = -delta;
-                    sgn = 1;
-                }
+            } else {
 
-                if (delta < 0) {
-                    delta += 7;
-                }
+                int pos = getComparisonPosition(tokenizer, index);
+                int dayOfMonth = tokenizer.getInt(index, pos + 2, len);
+                int dayOfWeek = getWeekday(tokenizer, index, 0, pos);
+                int dayKind = (
+                    (tokenizer.getChar(index, pos) == '>')
+                    ? RuleLine.WEEKDAY_AFTER_DATE
+                    : RuleLine.WEEKDAY_BEFORE_DATE);
+                long day =
+                    CalendarKernel.getEpochDay(
+                        year, month, dayKind, dayOfMonth, dayOfWeek);
 
-                return dayOfMonth + delta * sgn;
+                // may leave the month, the epoch day arithmetic handles that
+                return (int) (day - CalendarKernel.toEpochDay(year, month, 1)) + 1;
 
             }
 
@@ -1932,11 +4477,45 @@ public class TimezoneRepositoryCompiler {
 
         //~ Konstruktoren -------------------------------------------------
 
-        LinkLine(String[] fields) {
+        // both names are shared with the zone identifiers
+        LinkLine(
+            LineTokenizer tokenizer,
+            SymbolTable symbols
+        ) {
+            super();
+
+            this.from = symbols.get(tokenizer.getSymbol(2, symbols));
+            this.to = symbols.get(tokenizer.getSymbol(1, symbols));
+
+        }
+
+        private LinkLine(
+            String from,
+            String to
+        ) {
             super();
 
-            this.from = fields[2];
-            this.to = fields[1];
+            this.from = from;
+            this.to = to;
+
+        }
+
+        //~ Methoden ------------------------------------------------------
+
+        void write(DataOutputStream dos) throws IOException {
+
+            dos.writeUTF(this.from);
+            dos.writeUTF(this.to);
+
+        }
+
+        static LinkLine read(
+            DataInputStream dis,
+            SymbolTable symbols
+        ) throws IOException {
+
+            String from = symbols.get(symbols.intern(dis.readUTF()));
+            return new LinkLine(from, symbols.get(symbols.intern(dis.readUTF())));
 
         }
 
@@ -1953,39 +4532,460 @@ public class TimezoneRepositoryCompiler {
 
         //~ Konstruktoren -------------------------------------------------
 
-        LeapLine(String[] fields) {
+        LeapLine(LineTokenizer tokenizer) {
             super();
 
             try {
-                this.year = Integer.parseInt(fields[1]);
-                this.month = getMonth(fields[2]);
-                this.day = Integer.parseInt(fields[3]);
+                this.year = tokenizer.getInt(1);
+                this.month = getMonth(tokenizer, 2);
+                this.day = tokenizer.getInt(3);
             } catch (RuntimeException re) {
-                throw new IllegalStateException(Arrays.toString(fields), re);
+                throw new IllegalStateException(tokenizer.toString(), re);
             }
 
-            String corr = fields[5];
-
-            if (corr.equals("+")) {
+            if (tokenizer.isField(5, "+")) {
                 this.shift = 1;
-                if (!fields[4].equals("23:59:60")) {
+                if (!tokenizer.isField(4, "23:59:60")) {
                     throw new IllegalArgumentException(
-                        "Unexpected leap time: " + Arrays.toString(fields));
+                        "Unexpected leap time: " + tokenizer);
                 }
-            } else if (corr.equals("-")) {
+            } else if (tokenizer.isField(5, "-")) {
                 this.shift = -1;
-                if (!fields[4].equals("23:59:58")) {
+                if (!tokenizer.isField(4, "23:59:58")) {
                     throw new IllegalArgumentException(
-                        "Unexpected leap time: " + Arrays.toString(fields));
+                        "Unexpected leap time: " + tokenizer);
                 }
             } else {
                 throw new IllegalArgumentException(
-                    "Unexpected correction: " + Arrays.toString(fields));
+                    "Unexpected correction: " + tokenizer);
             }
 
-            if (!"STATIONARY".startsWith(fields[6].toUpperCase(Locale.US))) {
+            if (!tokenizer.isPrefixOf(6, "STATIONARY", true)) {
                 throw new UnsupportedOperationException(
-                    "Leap line not stationary: " + Arrays.toString(fields));
+                    "Leap line not stationary: " + tokenizer);
+            }
+
+        }
+
+        private LeapLine(
+            int year,
+            int month,
+            int day,
+            byte shift
+        ) {
+            super();
+
+            this.year = year;
+            this.month = month;
+            this.day = day;
+            this.shift = shift;
+
+        }
+
+        //~ Methoden ------------------------------------------------------
+
+        void write(DataOutputStream dos) throws IOException {
+
+            dos.writeInt(this.year);
+            dos.writeByte(this.month);
+            dos.writeByte(this.day);
+            dos.writeByte(this.shift);
+
+        }
+
+        static LeapLine read(DataInputStream dis) throws IOException {
+
+            int year = dis.readInt();
+            int month = dis.readByte();
+            int day = dis.readByte();
+            return new LeapLine(year, month, day, dis.readByte());
+
+        }
+
+    }
+
+    private interface ZoneTask<T> {
+
+        //~ Methoden ------------------------------------------------------
+
+        T apply(String zoneID) throws IOException;
+
+    }
+
+    // parses one source file into its own partial tables
+    private interface SourceTask {
+
+        //~ Methoden ------------------------------------------------------
+
+        void apply(Tables part) throws IOException;
+
+    }
+
+    /**
+     * <p>Parses source files into partial tables, either directly or on a
+     * pool of worker threads, and merges them in the order of the file
+     * names so that the result and the detection of duplicates do not
+     * depend on thread scheduling. </p>
+     */
+    private class ParseStage {
+
+        //~ Instanzvariablen ----------------------------------------------
+
+        private final ForkJoinPool pool;
+        private final Map<String, Future<Tables>> parts = new TreeMap<>();
+        private final SymbolTable symbols = new SymbolTable(); // shared by all parts
+
+        //~ Konstruktoren -------------------------------------------------
+
+        ParseStage() {
+            super();
+
+            this.pool = (
+                (parallelism > 1)
+                ? new ForkJoinPool(parallelism)
+                : null);
+
+        }
+
+        //~ Methoden ------------------------------------------------------
+
+        boolean isParallel() {
+
+            return (this.pool != null);
+
+        }
+
+        // sequential tasks run immediately
+        void submit(
+            String key,
+            final SourceTask task
+        ) throws IOException {
+
+            if (this.parts.containsKey(key)) {
+                throw new IllegalArgumentException("Duplicate source file: " + key);
+            }
+
+            final Tables part = new Tables(this.symbols);
+
+            if (this.pool == null) {
+                task.apply(part);
+                this.parts.put(key, CompletableFuture.completedFuture(part));
+            } else {
+                this.parts.put(
+                    key,
+                    this.pool.submit(
+                        new Callable<Tables>() {
+                            @Override
+                            public Tables call() throws IOException {
+                                task.apply(part);
+                                return part;
+                            }
+                        }
+                    )
+                );
+            }
+
+        }
+
+        Tables merge() throws IOException {
+
+            Tables tables = new Tables(this.symbols);
+
+            for (Map.Entry<String, Future<Tables>> e : this.parts.entrySet()) {
+                tables.merge(e.getKey(), getResult(e.getValue()));
+            }
+
+            long[] probe = recorder.start();
+            tables.sortRules();
+            recorder.stop(MetricsRecorder.RULE_SORT, probe);
+            tables.index();
+            return tables;
+
+        }
+
+        void close() {
+
+            if (this.pool != null) {
+                this.pool.shutdownNow();
+            }
+
+        }
+
+    }
+
+    /**
+     * <p>Collects the parsed lines of all source files. </p>
+     */
+    static class Tables {
+
+        //~ Statische Felder/Initialisierungen ----------------------------
+
+        // to be changed whenever the binary layout of the tables changes
+        private static final String MODEL_MAGIC = "tzmodel-2";
+
+        //~ Instanzvariablen ----------------------------------------------
+
+        private final Map<String, List<ZoneLine>> zones = new TreeMap<>();
+        private final Map<String, List<RuleLine>> rules = new HashMap<>();
+        private final List<LinkLine> links = new ArrayList<>();
+        private final List<LeapLine> leaps = new ArrayList<>();
+        private PlainDate expires = PlainDate.axis().getMinimum();
+        private final Map<String, String> zoneSources = new HashMap<>();
+        private final Map<String, String> ruleSources = new HashMap<>();
+        private final SymbolTable symbols;
+
+        // lookups by symbol, prepared once before compiling
+        private List<RuleSet> ruleIndex = Collections.emptyList();
+        private int lmtID = SymbolTable.NONE;
+        private boolean runCache = true;
+
+        //~ Konstruktoren -------------------------------------------------
+
+        Tables() {
+            this(new SymbolTable());
+
+        }
+
+        private Tables(SymbolTable symbols) {
+            super();
+
+            this.symbols = symbols;
+
+        }
+
+        //~ Methoden ------------------------------------------------------
+
+        /**
+         * <p>Yields all parsed zone identifiers in ascending order. </p>
+         *
+         * @return  unmodifiable set of zone identifiers
+         */
+        Set<String> getZoneIDs() {
+
+            return Collections.unmodifiableSet(this.zones.keySet());
+
+        }
+
+        // null if a zone refers to an undefined rule set
+        private RuleSet getRules(int ruleID) {
+
+            return ((ruleID < this.ruleIndex.size()) ? this.ruleIndex.get(ruleID) : null);
+
+        }
+
+        // evaluates every rule run again instead of sharing it, only for comparing in tests
+        void disableRunCache() {
+
+            this.runCache = false;
+            this.index();
+
+        }
+
+        // maps every rule symbol to its indexed rule set so that compiling needs no hashing
+        private void index() {
+
+            int n = this.symbols.size();
+            List<RuleSet> list = new ArrayList<>(Collections.<RuleSet>nCopies(n, null));
+
+            for (Map.Entry<String, List<RuleLine>> e : this.rules.entrySet()) {
+                list.set(this.symbols.find(e.getKey()), new RuleSet(e.getValue(), this.runCache));
+            }
+
+            this.ruleIndex = list;
+            this.lmtID = this.symbols.find("LMT");
+
+        }
+
+        // adds the partial tables of given source file
+        private void merge(
+            String key,
+            Tables part
+        ) {
+
+            for (Map.Entry<String, List<ZoneLine>> e : part.zones.entrySet()) {
+                String previous = this.zoneSources.put(e.getKey(), key);
+                if (previous != null) {
+                    throw new IllegalArgumentException(
+                        "Duplicate zone definition: " + e.getKey()
+                        + " in " + previous + " and " + key);
+                }
+                this.zones.put(e.getKey(), e.getValue());
+            }
+
+            for (Map.Entry<String, List<RuleLine>> e : part.rules.entrySet()) {
+                String previous = this.ruleSources.put(e.getKey(), key);
+                if (previous != null) {
+                    throw new IllegalArgumentException(
+                        "Duplicate rule definition: " + e.getKey()
+                        + " in " + previous + " and " + key);
+                }
+                this.rules.put(e.getKey(), e.getValue());
+            }
+
+            this.links.addAll(part.links);
+            this.leaps.addAll(part.leaps);
+
+            if (part.expires.isAfter(this.expires)) {
+                this.expires = part.expires;
+            }
+
+        }
+
+        // once after parsing instead of after every inserted rule line
+        private void sortRules() {
+
+            for (List<RuleLine> ruleLines : this.rules.values()) {
+                Collections.sort(ruleLines, RC);
+            }
+
+        }
+
+        // rule sets are written in name order and keep their sorted lines
+        private void write(DataOutputStream dos) throws IOException {
+
+            dos.writeUTF(MODEL_MAGIC);
+            dos.writeInt(this.zones.size());
+
+            for (Map.Entry<String, List<ZoneLine>> e : this.zones.entrySet()) {
+                dos.writeUTF(e.getKey());
+                dos.writeInt(e.getValue().size());
+                for (ZoneLine zl : e.getValue()) {
+                    zl.write(dos, this.symbols);
+                }
+            }
+
+            dos.writeInt(this.rules.size());
+
+            for (Map.Entry<String, List<RuleLine>> e : new TreeMap<>(this.rules).entrySet()) {
+                dos.writeUTF(e.getKey());
+                dos.writeInt(e.getValue().size());
+                for (RuleLine rl : e.getValue()) {
+                    rl.write(dos);
+                }
+            }
+
+            dos.writeInt(this.links.size());
+
+            for (LinkLine ll : this.links) {
+                ll.write(dos);
+            }
+
+            dos.writeInt(this.leaps.size());
+
+            for (LeapLine ll : this.leaps) {
+                ll.write(dos);
+            }
+
+            dos.writeInt(this.expires.getYear());
+            dos.writeByte(this.expires.getMonth());
+            dos.writeByte(this.expires.getDayOfMonth());
+
+        }
+
+        private static Tables read(DataInputStream dis) throws IOException {
+
+            String magic = dis.readUTF();
+
+            if (!magic.equals(MODEL_MAGIC)) {
+                throw new IOException("Unknown model format: " + magic);
+            }
+
+            Tables tables = new Tables();
+
+            for (int i = dis.readInt(); i > 0; i--) {
+                String zoneID = tables.symbols.get(tables.symbols.intern(dis.readUTF()));
+                int n = dis.readInt();
+                List<ZoneLine> zoneLines = new ArrayList<>(n);
+                for (int j = 0; j < n; j++) {
+                    zoneLines.add(ZoneLine.read(dis, tables.symbols));
+                }
+                tables.zones.put(zoneID, zoneLines);
+            }
+
+            for (int i = dis.readInt(); i > 0; i--) {
+                String name = dis.readUTF();
+                int nameID = tables.symbols.intern(name);
+                int n = dis.readInt();
+                List<RuleLine> ruleLines = new ArrayList<>(n);
+                for (int j = 0; j < n; j++) {
+                    ruleLines.add(RuleLine.read(dis, nameID));
+                }
+                tables.rules.put(name, ruleLines);
+            }
+
+            for (int i = dis.readInt(); i > 0; i--) {
+                tables.links.add(LinkLine.read(dis, tables.symbols));
+            }
+
+            for (int i = dis.readInt(); i > 0; i--) {
+                tables.leaps.add(LeapLine.read(dis));
+            }
+
+            int year = dis.readInt();
+            int month = dis.readByte();
+            tables.expires = PlainDate.of(year, month, dis.readByte());
+            tables.index();
+            return tables;
+
+        }
+
+    }
+
+    /**
+     * <p>Holds the compiled data of one zone before they are turned into
+     * a transition history. </p>
+     */
+    static class ZoneModel {
+
+        //~ Instanzvariablen ----------------------------------------------
+
+        final String zoneID;
+        final int initialOffset;
+        final List<ZonalTransition> transitions;
+        final List<RuleLine> rules;
+
+        //~ Konstruktoren -------------------------------------------------
+
+        ZoneModel(
+            String zoneID,
+            int initialOffset,
+            List<ZonalTransition> transitions,
+            List<RuleLine> rules
+        ) {
+            super();
+
+            this.zoneID = zoneID;
+            this.initialOffset = initialOffset;
+            this.transitions = transitions;
+            this.rules = rules;
+
+        }
+
+        //~ Methoden ------------------------------------------------------
+
+        /**
+         * <p>Creates the transition history of this zone. </p>
+         *
+         * @return  validated transition history
+         * @throws  IllegalArgumentException if the data are inconsistent
+         */
+        TransitionHistory toHistory() {
+
+            List<DaylightSavingRule> patterns = new ArrayList<>(this.rules.size());
+
+            for (RuleLine rule : this.rules) {
+                patterns.add(rule.getPattern());
+            }
+
+            try {
+                return TransitionModel.of(
+                    ZonalOffset.ofTotalSeconds(this.initialOffset),
+                    this.transitions,
+                    patterns);
+            } catch (IllegalArgumentException iae) {
+                throw new IllegalArgumentException(
+                    "Inconsistent data found for: " + this.zoneID,
+                    iae);
             }
 
         }
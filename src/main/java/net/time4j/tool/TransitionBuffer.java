@@ -0,0 +1,181 @@
+/*
+ * -----------------------------------------------------------------------
+ * Copyright © 2013-2021 Meno Hochschild, <http://www.menodata.de/>
+ * -----------------------------------------------------------------------
+ * This file (TransitionBuffer.java) is part of project Time4J.
+ *
+ * Time4J is free software: You can redistribute it and/or modify it
+ * under the terms of the GNU Lesser General Public License as published
+ * by the Free Software Foundation, either version 2.1 of the License, or
+ * (at your option) any later version.
+ *
+ * Time4J is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Time4J. If not, see <http://www.gnu.org/licenses/>.
+ * -----------------------------------------------------------------------
+ */
+
+package net.time4j.tool;
+
+import net.time4j.tz.ZonalTransition;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+
+/**
+ * <p>Sammelt die &Uuml;berg&auml;nge einer Zeitzone in parallelen
+ * primitiven Feldern. </p>
+ *
+ * <p>Ein &Uuml;bergang zur gleichen Zeit wie der letzte ersetzt dessen
+ * neuen Versatz, und ein &Uuml;bergang ohne &Auml;nderung des Versatzes
+ * wird verworfen. Beides geschieht direkt in den Feldern, so da&szlig;
+ * Objekte vom Typ {@code ZonalTransition} nur f&uuml;r das Endergebnis
+ * entstehen. Jeder Thread verwendet seine Instanz f&uuml;r alle
+ * Zeitzonen wieder. </p>
+ *
+ * @author  Meno Hochschild
+ */
+final class TransitionBuffer {
+
+    //~ Statische Felder/Initialisierungen --------------------------------
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final ThreadLocal<TransitionBuffer> CURRENT =
+        new ThreadLocal<TransitionBuffer>() {
+            @Override
+            protected TransitionBuffer initialValue() {
+                return new TransitionBuffer();
+            }
+        };
+
+    //~ Instanzvariablen --------------------------------------------------
+
+    private long[] posixTimes = new long[INITIAL_CAPACITY];
+    private int[] previousOffsets = new int[INITIAL_CAPACITY];
+    private int[] totalOffsets = new int[INITIAL_CAPACITY];
+    private int[] dstOffsets = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    //~ Konstruktoren -----------------------------------------------------
+
+    private TransitionBuffer() {
+        super();
+
+    }
+
+    //~ Methoden ----------------------------------------------------------
+
+    /**
+     * <p>Liefert den geleerten Puffer des aktuellen Threads. </p>
+     *
+     * @return  leerer Puffer
+     */
+    static TransitionBuffer acquire() {
+
+        TransitionBuffer buffer = CURRENT.get();
+        buffer.size = 0;
+        return buffer;
+
+    }
+
+    /**
+     * <p>F&uuml;gt einen &Uuml;bergang hinzu oder verschmilzt ihn mit dem
+     * letzten. </p>
+     *
+     * @param   posixTime       Zeitpunkt in Sekunden seit 1970
+     * @param   previousOffset  Gesamtversatz vor dem &Uuml;bergang
+     * @param   totalOffset     Gesamtversatz nach dem &Uuml;bergang
+     * @param   dstOffset       DST-Anteil nach dem &Uuml;bergang
+     */
+    void add(
+        long posixTime,
+        int previousOffset,
+        int totalOffset,
+        int dstOffset
+    ) {
+
+        int last = this.size - 1;
+
+        if (last >= 0) {
+            if (this.posixTimes[last] == posixTime) {
+                this.totalOffsets[last] = totalOffset; // keeps previous offset
+                this.dstOffsets[last] = dstOffset;
+                return;
+            } else if (
+                (this.totalOffsets[last] == totalOffset)
+                && (this.dstOffsets[last] == dstOffset)
+            ) {
+                return;
+            }
+        }
+
+        if (this.size == this.posixTimes.length) {
+            int capacity = this.size * 2;
+            this.posixTimes = Arrays.copyOf(this.posixTimes, capacity);
+            this.previousOffsets = Arrays.copyOf(this.previousOffsets, capacity);
+            this.totalOffsets = Arrays.copyOf(this.totalOffsets, capacity);
+            this.dstOffsets = Arrays.copyOf(this.dstOffsets, capacity);
+        }
+
+        this.posixTimes[this.size] = posixTime;
+        this.previousOffsets[this.size] = previousOffset;
+        this.totalOffsets[this.size] = totalOffset;
+        this.dstOffsets[this.size] = dstOffset;
+        this.size++;
+
+    }
+
+    /**
+     * <p>Liefert die Anzahl der gesammelten &Uuml;berg&auml;nge. </p>
+     *
+     * @return  int
+     */
+    int size() {
+
+        return this.size;
+
+    }
+
+    /**
+     * <p>Liefert den Gesamtversatz nach dem angegebenen &Uuml;bergang. </p>
+     *
+     * @param   index   Position des &Uuml;bergangs
+     * @return  Versatz in Sekunden
+     */
+    int getTotalOffset(int index) {
+
+        return this.totalOffsets[index];
+
+    }
+
+    /**
+     * <p>Erzeugt die &Uuml;berg&auml;nge ab der angegebenen Position. </p>
+     *
+     * @param   start   Position des ersten &Uuml;bergangs im Ergebnis
+     * @return  neue Liste
+     */
+    List<ZonalTransition> toList(int start) {
+
+        List<ZonalTransition> list = new ArrayList<>(Math.max(this.size - start, 0));
+
+        for (int i = start; i < this.size; i++) {
+            list.add(
+                new ZonalTransition(
+                    this.posixTimes[i],
+                    this.previousOffsets[i],
+                    this.totalOffsets[i],
+                    this.dstOffsets[i]));
+        }
+
+        return list;
+
+    }
+
+}
@@ -0,0 +1,145 @@
+package net.time4j.tool;
+
+import net.time4j.PlainDate;
+import net.time4j.base.GregorianMath;
+import net.time4j.engine.EpochDays;
+import net.time4j.tz.model.DaylightSavingRule;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static net.time4j.tool.TimezoneRepositoryCompiler.RuleLine.FIXED_DAY;
+import static net.time4j.tool.TimezoneRepositoryCompiler.RuleLine.LAST_WEEKDAY;
+import static net.time4j.tool.TimezoneRepositoryCompiler.RuleLine.WEEKDAY_AFTER_DATE;
+import static net.time4j.tool.TimezoneRepositoryCompiler.RuleLine.WEEKDAY_BEFORE_DATE;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+
+@RunWith(JUnit4.class)
+public class CalendarKernelTest {
+
+    private static final int MIN_YEAR = 1800;
+    private static final int MAX_YEAR = 2200;
+    private static final int WALL_TIME = 2;
+
+    @Test
+    public void fixedDay() {
+        for (int month = 1; month <= 12; month++) {
+            for (int dom = 1; dom <= 28; dom++) {
+                checkPattern(month, FIXED_DAY, dom, 0);
+            }
+        }
+    }
+
+    @Test
+    public void lastWeekday() { // lastSun
+        for (int month = 1; month <= 12; month++) {
+            for (int dow = 1; dow <= 7; dow++) {
+                checkPattern(month, LAST_WEEKDAY, 0, dow);
+            }
+        }
+    }
+
+    @Test
+    public void weekdayAfterDate() { // Sun>=8
+        for (int month = 1; month <= 12; month++) {
+            for (int dom = 1; dom <= 28; dom++) {
+                for (int dow = 1; dow <= 7; dow++) {
+                    checkPattern(month, WEEKDAY_AFTER_DATE, dom, dow);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void weekdayBeforeDate() { // Fri<=1, possibly in previous month
+        for (int month = 1; month <= 12; month++) {
+            for (int dom = 1; dom <= 28; dom++) {
+                for (int dow = 1; dow <= 7; dow++) {
+                    checkPattern(month, WEEKDAY_BEFORE_DATE, dom, dow);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void epochDayRoundTrip() {
+        long start = CalendarKernel.toEpochDay(MIN_YEAR, 1, 1);
+        long end = CalendarKernel.toEpochDay(MAX_YEAR, 12, 31);
+        assertThat(start, is(toEpochDay(PlainDate.of(MIN_YEAR, 1, 1))));
+        assertThat(end, is(toEpochDay(PlainDate.of(MAX_YEAR, 12, 31))));
+
+        for (long day = start; day <= end; day++) {
+            long mjd = EpochDays.MODIFIED_JULIAN_DATE.transform(day, EpochDays.UNIX);
+            long packed = GregorianMath.toPackedDate(mjd);
+            int year = GregorianMath.readYear(packed);
+            int month = GregorianMath.readMonth(packed);
+            int dom = GregorianMath.readDayOfMonth(packed);
+            assertThat(CalendarKernel.toEpochDay(year, month, dom), is(day));
+            assertThat(CalendarKernel.getYear(day), is(year));
+            assertThat(
+                CalendarKernel.getDayOfWeek(day),
+                is(GregorianMath.getDayOfWeek(year, month, dom)));
+        }
+    }
+
+    @Test
+    public void epochDayAtUnixEpoch() {
+        assertThat(CalendarKernel.toEpochDay(1970, 1, 1), is(0L));
+        assertThat(CalendarKernel.getYear(0), is(1970));
+        assertThat(CalendarKernel.getYear(-1), is(1969));
+        assertThat(CalendarKernel.getDayOfWeek(0), is(4)); // Thursday
+    }
+
+    @Test
+    public void dayOfMonthBeyondEndOfMonth() {
+        assertThat(
+            CalendarKernel.toEpochDay(2000, 1, 32),
+            is(CalendarKernel.toEpochDay(2000, 2, 1)));
+        assertThat(
+            CalendarKernel.toEpochDay(2000, 2, 30),
+            is(CalendarKernel.toEpochDay(2000, 3, 1)));
+        assertThat(
+            CalendarKernel.toEpochDay(1999, 12, 32),
+            is(CalendarKernel.toEpochDay(2000, 1, 1)));
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void unknownDayPattern() {
+        CalendarKernel.getEpochDay(2000, 1, 4, 1, 1);
+    }
+
+    private static void checkPattern(
+        int month,
+        int dayKind,
+        int dayOfMonth,
+        int dayOfWeek
+    ) {
+        DaylightSavingRule rule =
+            TimezoneRepositoryCompiler.RuleLine.getPattern(
+                month, dayKind, dayOfMonth, dayOfWeek, 0, WALL_TIME, 0);
+
+        for (int year = MIN_YEAR; year <= MAX_YEAR; year++) {
+            long expected = toEpochDay(rule.getDate(year));
+            assertThat(
+                rule + " in " + year,
+                CalendarKernel.getEpochDay(year, month, dayKind, dayOfMonth, dayOfWeek),
+                is(expected));
+            assertThat(
+                CalendarKernel.getLocalMidnight(year, month, dayKind, dayOfMonth, dayOfWeek),
+                is(expected * 86400));
+        }
+    }
+
+    private static long toEpochDay(PlainDate date) {
+        long mjd =
+            GregorianMath.toMJD(
+                date.getYear(),
+                date.getMonth(),
+                date.getDayOfMonth());
+        return EpochDays.UNIX.transform(mjd, EpochDays.MODIFIED_JULIAN_DATE);
+    }
+
+}
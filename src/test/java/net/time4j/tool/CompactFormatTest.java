@@ -0,0 +1,104 @@
+package net.time4j.tool;
+
+import net.time4j.tz.TransitionHistory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+
+@RunWith(JUnit4.class)
+public class CompactFormatTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TimezoneRepositoryCompiler compiler;
+    private TimezoneRepositoryCompiler.Tables tables;
+
+    @Before
+    public void setUp() throws IOException {
+        File sources = RepositoryFixture.writeSources(folder.getRoot(), true);
+        this.compiler = new TimezoneRepositoryCompiler(folder.getRoot(), false);
+        this.tables = this.compiler.parse(sources);
+    }
+
+    @Test
+    public void roundTripOfAllZones() throws IOException {
+        assertTrue(this.tables.getZoneIDs().contains("Europe/Dublin")); // negative savings
+        assertTrue(this.tables.getZoneIDs().contains("Etc/UTC")); // no transitions
+
+        for (String zoneID : this.tables.getZoneIDs()) {
+            TimezoneRepositoryCompiler.ZoneModel model = this.compiler.compileModel(this.tables, zoneID);
+            TransitionHistory expected = model.toHistory();
+            assertThat(zoneID, CompactFormat.decode(CompactFormat.encode(model)), is(expected));
+        }
+    }
+
+    @Test
+    public void zoneWithoutTransitions() throws IOException {
+        TimezoneRepositoryCompiler.ZoneModel model = this.compiler.compileModel(this.tables, "Etc/GMT+5");
+        assertThat(model.transitions.isEmpty(), is(true));
+        TransitionHistory history = CompactFormat.decode(CompactFormat.encode(model));
+        assertThat(history.getInitialOffset().getIntegralAmount(), is(-5 * 3600));
+        assertThat(history.isEmpty(), is(true));
+    }
+
+    @Test
+    public void negativeValues() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CompactFormat.writeSigned(out, -3600); // negative savings or time of day
+        CompactFormat.writeSigned(out, -1);
+        CompactFormat.writeSigned(out, Long.MIN_VALUE);
+        CompactFormat.writeSigned(out, Long.MAX_VALUE);
+        byte[] data = out.toByteArray();
+
+        CompactFormat reader = new CompactFormat(data);
+        assertThat(reader.readSigned(), is(-3600L));
+        assertThat(reader.readSigned(), is(-1L));
+        assertThat(reader.readSigned(), is(Long.MIN_VALUE));
+        assertThat(reader.readSigned(), is(Long.MAX_VALUE));
+        assertThat(reader.getPosition(), is(data.length));
+    }
+
+    @Test(expected=IOException.class)
+    public void truncatedData() throws IOException {
+        byte[] data = this.encode("Europe/Berlin");
+        CompactFormat.decode(Arrays.copyOf(data, data.length - 1));
+    }
+
+    @Test(expected=IOException.class)
+    public void trailingBytes() throws IOException {
+        byte[] data = this.encode("Europe/Berlin");
+        CompactFormat.decode(Arrays.copyOf(data, data.length + 1));
+    }
+
+    @Test(expected=IOException.class)
+    public void varintTooLong() throws IOException {
+        byte[] data = new byte[11];
+        Arrays.fill(data, (byte) 0x80);
+        CompactFormat.decode(data);
+    }
+
+    @Test(expected=IOException.class)
+    public void emptyData() throws IOException {
+        CompactFormat.decode(new byte[0]);
+    }
+
+    private byte[] encode(String zoneID) {
+        return CompactFormat.encode(this.compiler.compileModel(this.tables, zoneID));
+    }
+
+}
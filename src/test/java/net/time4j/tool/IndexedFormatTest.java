@@ -0,0 +1,108 @@
+package net.time4j.tool;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+
+@RunWith(JUnit4.class)
+public class IndexedFormatTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private byte[] content;
+    private Map<String, byte[]> zones;
+    private ByteBuffer repository;
+    private int table;
+
+    @Before
+    public void setUp() throws IOException {
+        File file = RepositoryFixture.compile(folder.getRoot(), RepositoryFormat.INDEXED, true);
+        this.content = Files.readAllBytes(file.toPath());
+
+        try (DataInputStream dis = RepositoryFixture.open(file, RepositoryFormat.INDEXED)) {
+            this.zones = IndexedFormat.readZones(dis);
+        }
+
+        this.repository = IndexedFormat.map(file);
+        this.table = IndexedFormat.getTablePosition(this.repository);
+    }
+
+    @Test
+    public void lookupOfAllZones() throws IOException {
+        assertTrue(this.zones.containsKey("Etc/UTC"));
+        assertTrue(this.zones.containsKey("Europe/Vienna"));
+
+        for (Map.Entry<String, byte[]> e : this.zones.entrySet()) {
+            ByteBuffer found = IndexedFormat.lookup(this.repository, e.getKey());
+            assertThat(e.getKey(), toArray(found), is(e.getValue()));
+            found = IndexedFormat.lookup(this.repository, this.table, e.getKey());
+            assertThat(e.getKey(), toArray(found), is(e.getValue()));
+        }
+    }
+
+    @Test
+    public void lookupOfUnknownZone() {
+        assertThat(IndexedFormat.lookup(this.repository, this.table, "America/New_York"), nullValue());
+        assertThat(IndexedFormat.lookup(this.repository, this.table, "Europe/Bern"), nullValue());
+        assertThat(IndexedFormat.lookup(this.repository, this.table, "Europe/Vienna2"), nullValue());
+        assertThat(IndexedFormat.lookup(this.repository, this.table, "Zulu"), nullValue());
+        assertThat(IndexedFormat.lookup(this.repository, this.table, ""), nullValue());
+    }
+
+    @Test
+    public void lookupDoesNotMoveRepositoryBuffer() throws IOException {
+        IndexedFormat.lookup(this.repository, "Europe/Paris");
+        assertThat(this.repository.position(), is(0));
+        assertThat(this.repository.limit(), is(this.content.length));
+    }
+
+    @Test
+    public void readNames() throws IOException {
+        String[] names = IndexedFormat.readNames(this.repository, this.table);
+        assertThat(new ArrayList<>(this.zones.keySet()), is(Arrays.asList(names)));
+    }
+
+    @Test
+    public void aliasesFollowEnd() throws IOException {
+        int end = IndexedFormat.getEnd(this.repository, this.table);
+        String[] names = IndexedFormat.readNames(this.repository, this.table);
+        DataInputStream dis =
+            new DataInputStream(new ByteArrayInputStream(this.content, end, this.content.length - end));
+        Map<String, String> aliases = RepositoryReader.readAliases(dis, names);
+        assertThat(aliases.get("Eire"), is("Europe/Dublin"));
+        assertThat(aliases.get("UTC"), is("Etc/UTC"));
+    }
+
+    @Test(expected=IOException.class)
+    public void tablePositionOfOtherFormat() throws IOException {
+        File file = RepositoryFixture.compile(folder, RepositoryFormat.COMPACT);
+        IndexedFormat.getTablePosition(IndexedFormat.map(file));
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] data = new byte[buffer.remaining()];
+        buffer.get(data);
+        return data;
+    }
+
+}
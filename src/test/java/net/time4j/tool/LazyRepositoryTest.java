@@ -0,0 +1,159 @@
+package net.time4j.tool;
+
+import net.time4j.tz.TransitionHistory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+
+@RunWith(JUnit4.class)
+public class LazyRepositoryTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private CompiledRepository expected;
+
+    @Before
+    public void setUp() throws IOException {
+        this.expected =
+            new TimezoneRepositoryCompiler(folder.getRoot(), false)
+                .compile(RepositoryFixture.getSources(true));
+    }
+
+    @Test
+    public void allFormats() throws IOException {
+        for (RepositoryFormat format : RepositoryFormat.values()) {
+            LazyRepository repository = LazyRepository.open(RepositoryFixture.compile(folder, format));
+            assertThat(repository.getFormat(), is(format));
+            assertThat(repository.getVersion(), is(RepositoryFixture.VERSION));
+            assertThat(repository.getZoneIDs(), is(this.expected.getHistories().keySet()));
+
+            for (String zoneID : repository.getZoneIDs()) {
+                assertThat(
+                    format + ": " + zoneID,
+                    repository.getHistory(zoneID),
+                    is(this.expected.getHistory(zoneID)));
+            }
+
+            assertThat(repository.getAliases(), is(this.expected.getAliases()));
+            assertThat(repository.getLeapSeconds(), is(this.expected.getLeapSeconds()));
+            assertThat(
+                repository.getLeapSecondExpiration(),
+                is(this.expected.getLeapSecondExpiration()));
+        }
+    }
+
+    @Test
+    public void aliasesResolved() throws IOException {
+        for (RepositoryFormat format : RepositoryFormat.values()) {
+            LazyRepository repository = LazyRepository.open(RepositoryFixture.compile(folder, format));
+            assertThat(
+                repository.getHistory("Eire"),
+                sameInstance(repository.getHistory("Europe/Dublin")));
+            assertThat(repository.getHistory("UTC"), is(this.expected.getHistory("Etc/UTC")));
+        }
+    }
+
+    @Test
+    public void unknownZone() throws IOException {
+        for (RepositoryFormat format : RepositoryFormat.values()) {
+            LazyRepository repository = LazyRepository.open(RepositoryFixture.compile(folder, format));
+            assertThat(repository.getHistory("America/New_York"), nullValue());
+            assertThat(repository.getCachedZoneCount(), is(0));
+        }
+    }
+
+    @Test
+    public void cacheSizeNeverExceeded() throws IOException {
+        for (RepositoryFormat format : RepositoryFormat.values()) {
+            LazyRepository repository = LazyRepository.open(RepositoryFixture.compile(folder, format), 2);
+
+            for (int round = 0; round < 2; round++) {
+                for (String zoneID : repository.getZoneIDs()) {
+                    TransitionHistory history = repository.getHistory(zoneID);
+                    assertTrue(repository.getCachedZoneCount() <= 2);
+                    assertThat(repository.getHistory(zoneID), sameInstance(history));
+                }
+            }
+
+            assertThat(repository.getCachedZoneCount(), is(2));
+        }
+    }
+
+    @Test
+    public void leastRecentlyUsedEvicted() throws IOException {
+        File file = RepositoryFixture.compile(folder, RepositoryFormat.COMPACT);
+        LazyRepository repository = LazyRepository.open(file, 2);
+        TransitionHistory berlin = repository.getHistory("Europe/Berlin");
+        TransitionHistory dublin = repository.getHistory("Europe/Dublin");
+        assertThat(repository.getHistory("Europe/Berlin"), sameInstance(berlin)); // now most recent
+        repository.getHistory("Europe/Paris"); // evicts Dublin
+        assertThat(repository.getHistory("Europe/Berlin"), sameInstance(berlin));
+        assertThat(repository.getHistory("Europe/Dublin") == dublin, is(false));
+    }
+
+    @Test
+    public void indexedTableTruncated() throws IOException {
+        File repository = RepositoryFixture.compile(folder, RepositoryFormat.INDEXED);
+        int table = IndexedFormat.getTablePosition(IndexedFormat.map(repository));
+        checkTruncated(repository, table + 2, IndexOutOfBoundsException.class); // inside count of zones
+    }
+
+    @Test
+    public void indexedNameTruncated() throws IOException {
+        File repository = RepositoryFixture.compile(folder, RepositoryFormat.INDEXED);
+        ByteBuffer buffer = IndexedFormat.map(repository);
+        int start = IndexedFormat.getTablePosition(buffer) + 4;
+        int name = start + buffer.getInt(start); // first name in the name area
+        checkTruncated(repository, name + 3, BufferUnderflowException.class);
+    }
+
+    @Test
+    public void indexedZoneDataTruncated() throws IOException {
+        File repository = RepositoryFixture.compile(folder, RepositoryFormat.INDEXED);
+        ByteBuffer buffer = IndexedFormat.map(repository);
+        int end = IndexedFormat.getEnd(buffer, IndexedFormat.getTablePosition(buffer));
+        checkTruncated(repository, end - 1, IllegalArgumentException.class);
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void cacheSizeZero() throws IOException {
+        LazyRepository.open(RepositoryFixture.compile(folder, RepositoryFormat.STANDARD), 0);
+    }
+
+    private void checkTruncated(
+        File repository,
+        int length,
+        Class<? extends RuntimeException> cause
+    ) throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), Arrays.copyOf(Files.readAllBytes(repository.toPath()), length));
+
+        try {
+            LazyRepository.open(file);
+            fail("Truncated at " + length);
+        } catch (IOException ioe) {
+            assertTrue(ioe.toString(), cause.isInstance(ioe.getCause()));
+        }
+    }
+
+}
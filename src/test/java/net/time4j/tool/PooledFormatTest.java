@@ -0,0 +1,106 @@
+package net.time4j.tool;
+
+import net.time4j.tz.TransitionHistory;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertThat;
+
+
+@RunWith(JUnit4.class)
+public class PooledFormatTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void readHistories() throws IOException {
+        File repository = RepositoryFixture.compile(folder.getRoot(), RepositoryFormat.POOLED, true);
+        Map<String, TransitionHistory> expected =
+            new TimezoneRepositoryCompiler(folder.getRoot(), false)
+                .compile(RepositoryFixture.getSources(true))
+                .getHistories();
+
+        try (DataInputStream dis = RepositoryFixture.open(repository, RepositoryFormat.POOLED)) {
+            assertThat(PooledFormat.readHistories(dis), is(expected));
+        }
+    }
+
+    @Test
+    public void everyBlockDecodedOnceForAllZones() throws IOException {
+        File repository = RepositoryFixture.compile(folder.getRoot(), RepositoryFormat.POOLED, true);
+        byte[][] blocks;
+        List<byte[]> zones = new ArrayList<>();
+
+        try (DataInputStream dis = RepositoryFixture.open(repository, RepositoryFormat.POOLED)) {
+            blocks = PooledFormat.readBlocks(dis);
+            for (int i = dis.readInt(); i > 0; i--) {
+                dis.readUTF();
+                byte[] data = new byte[dis.readInt()];
+                dis.readFully(data);
+                zones.add(data);
+            }
+        }
+
+        AtomicReferenceArray<Object> decoded = PooledFormat.createCache(blocks);
+
+        for (byte[] data : zones) {
+            PooledFormat.decode(blocks, data, decoded);
+        }
+
+        Object[] first = new Object[blocks.length];
+
+        for (int i = 0; i < blocks.length; i++) {
+            first[i] = decoded.get(i);
+            assertNotNull(first[i]); // every block is used by a zone
+        }
+
+        for (byte[] data : zones) {
+            PooledFormat.decode(blocks, data, decoded);
+        }
+
+        for (int i = 0; i < blocks.length; i++) {
+            assertThat(decoded.get(i), sameInstance(first[i]));
+        }
+    }
+
+    @Test(expected=IOException.class)
+    public void truncatedZone() throws IOException {
+        byte[][] blocks = {{0}}; // empty rule block
+        PooledFormat.decode(blocks, new byte[] {0, 0}, PooledFormat.createCache(blocks));
+    }
+
+    @Test(expected=IOException.class)
+    public void unknownRuleBlock() throws IOException {
+        byte[][] blocks = {{0}};
+        PooledFormat.decode(blocks, new byte[] {0, 0, 0, 5}, PooledFormat.createCache(blocks));
+    }
+
+    @Test(expected=IOException.class)
+    public void cyclicBlockChain() throws IOException {
+        byte[][] blocks = {{0, 1}}; // no transitions, next block is itself
+        PooledFormat.decode(blocks, new byte[] {0, 0, 1, 0}, PooledFormat.createCache(blocks));
+    }
+
+    @Test(expected=IOException.class)
+    public void trailingBytes() throws IOException {
+        byte[][] blocks = {{0}};
+        PooledFormat.decode(blocks, new byte[] {0, 0, 0, 0, 0}, PooledFormat.createCache(blocks));
+    }
+
+}
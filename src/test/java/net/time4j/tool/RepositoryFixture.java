@@ -0,0 +1,150 @@
+package net.time4j.tool;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.rules.TemporaryFolder;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+
+/**
+ * Small tzdata sources for round trip tests of the repository formats.
+ */
+final class RepositoryFixture {
+
+    static final String VERSION = "2000a";
+
+    private static final String EUROPE =
+        "# negative savings in winter like in tzdata since 2018e\n"
+        + "Rule Eire 1971 only - Oct 31 2:00u -1:00 -\n"
+        + "Rule Eire 1972 1980 - Mar Sun>=16 2:00u 0 -\n"
+        + "Rule Eire 1972 1980 - Oct Sun>=23 2:00u -1:00 -\n"
+        + "Rule Eire 1981 max - Mar lastSun 1:00u 0 -\n"
+        + "Rule Eire 1981 1989 - Oct Sun>=23 1:00u -1:00 -\n"
+        + "Rule Eire 1990 1995 - Oct Sun>=22 1:00u -1:00 -\n"
+        + "Rule Eire 1996 max - Oct lastSun 1:00u -1:00 -\n"
+        + "Rule EU 1977 1980 - Apr Sun>=1 1:00u 1:00 S\n"
+        + "Rule EU 1977 only - Sep lastSun 1:00u 0 -\n"
+        + "Rule EU 1978 only - Oct 1 1:00u 0 -\n"
+        + "Rule EU 1979 1995 - Sep lastSun 1:00u 0 -\n"
+        + "Rule EU 1981 max - Mar lastSun 1:00u 1:00 S\n"
+        + "Rule EU 1996 max - Oct lastSun 1:00u 0 -\n"
+        + "Zone Europe/Berlin 0:53:28 - LMT 1893 Apr\n"
+        + "\t1:00 - CET 1980\n"
+        + "\t1:00 EU CE%sT\n"
+        + "Zone Europe/Dublin -0:25:21 - LMT 1880 Aug 2\n"
+        + "\t0:00 - GMT 1971 Oct 31 2:00u\n"
+        + "\t1:00 Eire IST/GMT\n"
+        + "Zone Europe/Paris 0:09:21 - LMT 1891 Mar 16\n"
+        + "\t1:00 - CET 1977\n"
+        + "\t1:00 EU CE%sT\n"
+        + "Zone Europe/Vienna 1:05:21 - LMT 1893 Apr\n"
+        + "\t1:00 - CET 1981\n"
+        + "\t1:00 EU CE%sT\n";
+
+    private static final String ETCETERA =
+        "# zones without any transition\n"
+        + "Zone Etc/UTC 0 - UTC\n"
+        + "Zone Etc/GMT+5 -5 - -05\n";
+
+    private static final String BACKWARD =
+        "Link Europe/Dublin Eire\n"
+        + "Link Etc/UTC UTC\n";
+
+    private static final String LEAPSECONDS =
+        "Leap 1972 Jun 30 23:59:60 + S\n"
+        + "Leap 1972 Dec 31 23:59:60 + S\n"
+        + "Leap 2016 Dec 31 23:59:60 + S\n";
+
+    private static final String LEAP_SECONDS_LIST =
+        "#@ 3944332800\n";
+
+    private RepositoryFixture() {
+        // no instantiation
+    }
+
+    /**
+     * Yields the sources mapped by file name.
+     */
+    static Map<String, String> getSources(boolean withExpiration) {
+        Map<String, String> sources = new LinkedHashMap<>();
+        sources.put("backward", BACKWARD);
+        sources.put("etcetera", ETCETERA);
+        sources.put("europe", EUROPE);
+        sources.put("leapseconds", LEAPSECONDS);
+        if (withExpiration) {
+            sources.put("leap-seconds.list", LEAP_SECONDS_LIST);
+        }
+        return sources;
+    }
+
+    /**
+     * Writes the sources into a subdirectory of given working directory
+     * and compiles them in given format.
+     */
+    static File compile(
+        File workdir,
+        RepositoryFormat format,
+        boolean withExpiration
+    ) throws IOException {
+        File subdir = writeSources(workdir, withExpiration);
+        new TimezoneRepositoryCompiler(workdir, false).withFormat(format).compile(VERSION);
+        return new File(subdir, "tzdata.repository");
+    }
+
+    /**
+     * Compiles the sources with leap second expiration in given format
+     * within a new subfolder.
+     */
+    static File compile(
+        TemporaryFolder folder,
+        RepositoryFormat format
+    ) throws IOException {
+        return compile(folder.newFolder(), format, true);
+    }
+
+    /**
+     * Opens given repository and checks its header, positioned after the
+     * version.
+     */
+    static DataInputStream open(
+        File repository,
+        RepositoryFormat format
+    ) throws IOException {
+        DataInputStream dis =
+            new DataInputStream(new BufferedInputStream(new FileInputStream(repository)));
+        assertThat(RepositoryReader.readHeader(dis), is(format));
+        assertThat(dis.readUTF(), is(VERSION));
+        return dis;
+    }
+
+    /**
+     * Writes the sources into a subdirectory of given working directory.
+     */
+    static File writeSources(
+        File workdir,
+        boolean withExpiration
+    ) throws IOException {
+        File subdir = new File(workdir, "tzdata" + VERSION);
+        if (!subdir.isDirectory() && !subdir.mkdir()) {
+            throw new IOException("Cannot create: " + subdir);
+        }
+        for (Map.Entry<String, String> e : getSources(withExpiration).entrySet()) {
+            try (OutputStream out = new FileOutputStream(new File(subdir, e.getKey()))) {
+                out.write(e.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return subdir;
+    }
+
+}
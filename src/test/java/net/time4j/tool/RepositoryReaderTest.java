@@ -0,0 +1,115 @@
+package net.time4j.tool;
+
+import net.time4j.PlainDate;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+
+@RunWith(JUnit4.class)
+public class RepositoryReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void roundTripOfAllFormats() throws IOException {
+        checkRoundTrip(true);
+    }
+
+    @Test
+    public void roundTripWithoutExpiration() throws IOException {
+        checkRoundTrip(false);
+    }
+
+    @Test
+    public void unknownExpiration() throws IOException {
+        File file = RepositoryFixture.compile(folder.getRoot(), RepositoryFormat.COMPACT, false);
+        assertThat(
+            RepositoryReader.read(file).getLeapSecondExpiration(),
+            is(PlainDate.axis().getMinimum()));
+    }
+
+    @Test
+    public void knownExpiration() throws IOException {
+        File file = RepositoryFixture.compile(folder, RepositoryFormat.COMPACT);
+        assertThat(RepositoryReader.read(file).getLeapSecondExpiration(), is(PlainDate.of(2024, 12, 28)));
+    }
+
+    @Test
+    public void aliasesAndUnknownZones() throws IOException {
+        for (RepositoryFormat format : RepositoryFormat.values()) {
+            RepositoryReader reader = RepositoryReader.read(RepositoryFixture.compile(folder, format));
+            assertThat(reader.getHistory("Eire"), is(reader.getHistory("Europe/Dublin")));
+            assertThat(reader.getHistory("America/New_York"), nullValue());
+            assertThat(reader.getZoneIDs().contains("Eire"), is(false));
+        }
+    }
+
+    @Test
+    public void truncatedRepository() throws IOException {
+        for (RepositoryFormat format : RepositoryFormat.values()) {
+            byte[] content = Files.readAllBytes(RepositoryFixture.compile(folder, format).toPath());
+
+            for (int length = 0; length < content.length; length++) {
+                try {
+                    RepositoryReader.read(new ByteArrayInputStream(Arrays.copyOf(content, length)));
+                    fail(format + ": truncated at " + length + " of " + content.length);
+                } catch (IOException ioe) {
+                    // expected
+                }
+            }
+        }
+    }
+
+    @Test(expected=IOException.class)
+    public void notARepository() throws IOException {
+        RepositoryReader.read(new ByteArrayInputStream("tzdata2000a".getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    @Test(expected=IOException.class)
+    public void unknownFormatCode() throws IOException {
+        File file = RepositoryFixture.compile(folder, RepositoryFormat.STANDARD);
+        byte[] content = Files.readAllBytes(file.toPath());
+        content[6] = 99; // format code after magic bytes
+        RepositoryReader.read(new ByteArrayInputStream(content));
+    }
+
+    private void checkRoundTrip(boolean withExpiration) throws IOException {
+        CompiledRepository expected =
+            new TimezoneRepositoryCompiler(folder.getRoot(), false)
+                .compile(RepositoryFixture.getSources(withExpiration));
+
+        for (RepositoryFormat format : RepositoryFormat.values()) {
+            File file = RepositoryFixture.compile(folder.newFolder(), format, withExpiration);
+            RepositoryReader reader = RepositoryReader.read(file);
+            assertThat(reader.getFormat(), is(format));
+            assertThat(reader.getVersion(), is(RepositoryFixture.VERSION));
+
+            CompiledRepository actual = reader.toCompiledRepository();
+            assertThat(format.name(), actual.getHistories(), is(expected.getHistories()));
+            assertThat(format.name(), actual.getAliases(), is(expected.getAliases()));
+            assertThat(format.name(), actual.getLeapSeconds(), is(expected.getLeapSeconds()));
+            assertThat(
+                format.name(),
+                actual.getLeapSecondExpiration(),
+                is(expected.getLeapSecondExpiration()));
+        }
+    }
+
+}
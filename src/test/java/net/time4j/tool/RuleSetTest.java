@@ -0,0 +1,68 @@
+package net.time4j.tool;
+
+import net.time4j.tz.TransitionHistory;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+
+@RunWith(JUnit4.class)
+public class RuleSetTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TimezoneRepositoryCompiler compiler;
+    private TimezoneRepositoryCompiler.Tables cached;
+    private TimezoneRepositoryCompiler.Tables uncached;
+
+    @Before
+    public void setUp() throws IOException {
+        File sources = RepositoryFixture.writeSources(folder.getRoot(), true);
+        this.compiler = new TimezoneRepositoryCompiler(folder.getRoot(), false);
+        this.cached = this.compiler.parse(sources);
+        this.uncached = this.compiler.parse(sources);
+        this.uncached.disableRunCache();
+    }
+
+    @Test
+    public void sameHistoriesWithoutRunCache() {
+        assertThat(this.cached.getZoneIDs(), is(this.uncached.getZoneIDs()));
+
+        for (String zoneID : this.cached.getZoneIDs()) {
+            assertThat(zoneID, this.history(this.cached, zoneID), is(this.history(this.uncached, zoneID)));
+        }
+    }
+
+    @Test
+    public void sharedRulesWithDifferentStartYears() {
+        // Berlin, Paris and Vienna switch to the EU rules in 1980, 1977 and 1981
+        TransitionHistory berlin = this.history(this.cached, "Europe/Berlin");
+        TransitionHistory paris = this.history(this.cached, "Europe/Paris");
+        TransitionHistory vienna = this.history(this.cached, "Europe/Vienna");
+
+        assertThat(paris, is(this.history(this.uncached, "Europe/Paris")));
+        assertThat(vienna, is(this.history(this.uncached, "Europe/Vienna")));
+        assertThat(berlin.equals(paris), is(false));
+        assertThat(berlin.equals(vienna), is(false));
+        assertThat(paris.equals(vienna), is(false));
+    }
+
+    private TransitionHistory history(
+        TimezoneRepositoryCompiler.Tables tables,
+        String zoneID
+    ) {
+        return this.compiler.compileModel(tables, zoneID).toHistory();
+    }
+
+}
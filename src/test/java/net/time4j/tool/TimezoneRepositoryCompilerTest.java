@@ -0,0 +1,68 @@
+package net.time4j.tool;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+
+@RunWith(JUnit4.class)
+public class TimezoneRepositoryCompilerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void parallelOutputIdentical() throws IOException {
+        for (RepositoryFormat format : RepositoryFormat.values()) {
+            assertThat(format.name(), this.compile(format, 4), is(this.compile(format, 1)));
+        }
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void threadsNotNumeric() throws IOException {
+        this.main("-threads", "four");
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void threadsZero() throws IOException {
+        this.main("-threads", "0");
+    }
+
+    @Test(expected=IllegalArgumentException.class)
+    public void unknownFormat() throws IOException {
+        this.main("-format", "xml");
+    }
+
+    private byte[] compile(
+        RepositoryFormat format,
+        int parallelism
+    ) throws IOException {
+        File workdir = folder.newFolder();
+        File subdir = RepositoryFixture.writeSources(workdir, true);
+        new TimezoneRepositoryCompiler(workdir, false)
+            .withFormat(format)
+            .withParallelism(parallelism)
+            .compile(RepositoryFixture.VERSION);
+        return Files.readAllBytes(new File(subdir, "tzdata.repository").toPath());
+    }
+
+    private void main(
+        String option,
+        String value
+    ) throws IOException {
+        File workdir = folder.newFolder();
+        RepositoryFixture.writeSources(workdir, true);
+        TimezoneRepositoryCompiler.main(
+            new String[] {"-workdir", workdir.getAbsolutePath(), option, value, "-compile"});
+    }
+
+}